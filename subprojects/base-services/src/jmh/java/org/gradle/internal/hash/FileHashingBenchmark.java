@@ -0,0 +1,108 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.hash;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+/**
+ * Compares hashing the content of a file by copying it through a heap buffer with hashing a memory mapped view of the file.
+ */
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@State(Scope.Benchmark)
+public class FileHashingBenchmark {
+    @Param({"65536", "1048576", "16777216", "268435456"})
+    long fileSize;
+
+    @Param({"md5", "murmur3"})
+    String hashFunction;
+
+    Path file;
+    HashFunction function;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        file = Files.createTempFile("file-hashing", ".bin");
+        Random random = new Random(1234L);
+        byte[] buffer = new byte[65536];
+        OutputStream outputStream = Files.newOutputStream(file);
+        try {
+            for (long written = 0; written < fileSize; written += buffer.length) {
+                random.nextBytes(buffer);
+                outputStream.write(buffer, 0, (int) Math.min(buffer.length, fileSize - written));
+            }
+        } finally {
+            outputStream.close();
+        }
+        function = hashFunction.equals("md5") ? Hashing.md5() : Hashing.murmur3();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.delete(file);
+    }
+
+    @Benchmark
+    public void heapCopy(Blackhole blackhole) throws IOException {
+        PrimitiveHasher hasher = function.newPrimitiveHasher();
+        byte[] buffer = new byte[8192];
+        InputStream inputStream = new FileInputStream(file.toFile());
+        try {
+            int nread;
+            while ((nread = inputStream.read(buffer)) >= 0) {
+                hasher.putBytes(buffer, 0, nread);
+            }
+        } finally {
+            inputStream.close();
+        }
+        blackhole.consume(hasher.hash());
+    }
+
+    @Benchmark
+    public void mapped(Blackhole blackhole) throws IOException {
+        PrimitiveHasher hasher = function.newPrimitiveHasher();
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file.toFile(), "r");
+        try {
+            FileChannel channel = randomAccessFile.getChannel();
+            hasher.putBytes(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        } finally {
+            randomAccessFile.close();
+        }
+        blackhole.consume(hasher.hash());
+    }
+}
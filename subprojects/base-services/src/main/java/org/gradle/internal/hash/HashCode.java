@@ -58,6 +58,20 @@ public class HashCode implements Serializable, Comparable<HashCode> {
         });
     }
 
+    /**
+     * Creates a 16 byte hash code from two longs, in big-endian order.
+     */
+    public static HashCode fromLongs(long high, long low) {
+        byte[] bytes = new byte[16];
+        for (int i = 7; i >= 0; i--) {
+            bytes[i] = (byte) high;
+            bytes[i + 8] = (byte) low;
+            high >>>= 8;
+            low >>>= 8;
+        }
+        return fromBytesNoCopy(bytes);
+    }
+
     public static HashCode fromString(String string) {
         int length = string.length();
 
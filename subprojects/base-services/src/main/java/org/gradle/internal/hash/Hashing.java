@@ -38,8 +38,21 @@ public class Hashing {
 
     private static final HashFunction SHA1 = MessageDigestHashFunction.of("SHA-1");
 
+    private static final HashFunction MURMUR3 = new Murmur3HashFunction();
+
     private static final HashFunction DEFAULT = MD5;
 
+    /**
+     * System property to select the hash function used to hash the content of files. Supported values are {@code md5} (the default) and {@code murmur3}.
+     *
+     * The property is read once per process. It is an immutable daemon property, so a build which asks for a different value runs in a different daemon.
+     */
+    public static final String CONTENT_HASH_FUNCTION_PROPERTY = "org.gradle.internal.hash.content";
+
+    private static final String CONTENT_HASH_FUNCTION_NAME = System.getProperty(CONTENT_HASH_FUNCTION_PROPERTY, "md5");
+
+    private static final HashFunction CONTENT = contentHashFunction(CONTENT_HASH_FUNCTION_NAME);
+
     /**
      * Returns a new {@link Hasher} based on the default hashing implementation.
      */
@@ -106,6 +119,30 @@ public class Hashing {
         return DEFAULT;
     }
 
+    /**
+     * The hash function used to hash the content of files.
+     */
+    public static HashFunction contentHashFunction() {
+        return CONTENT;
+    }
+
+    /**
+     * The name of the hash function used to hash the content of files.
+     *
+     * Persistent state which contains content hashes should be keyed by this name, so that state created with different hash functions is never mixed.
+     */
+    public static String contentHashFunctionName() {
+        return CONTENT_HASH_FUNCTION_NAME;
+    }
+
+    /**
+     * Qualifies the name of some persistent state which contains content hashes with the name of the content hash function,
+     * unless the default hash function is used.
+     */
+    public static String qualifyWithContentHashFunction(String name) {
+        return CONTENT == DEFAULT ? name : name + "-" + CONTENT_HASH_FUNCTION_NAME;
+    }
+
     /**
      * MD5 hashing function.
      */
@@ -120,6 +157,23 @@ public class Hashing {
         return SHA1;
     }
 
+    /**
+     * Murmur3 x64 128-bit hashing function. This is not a cryptographic hash function, but it is a lot faster than MD5.
+     */
+    public static HashFunction murmur3() {
+        return MURMUR3;
+    }
+
+    private static HashFunction contentHashFunction(String name) {
+        if (name.equals("md5")) {
+            return MD5;
+        }
+        if (name.equals("murmur3")) {
+            return MURMUR3;
+        }
+        throw new IllegalArgumentException(String.format("Unknown content hash function '%s' specified by system property '%s'. Supported values are 'md5' and 'murmur3'.", name, CONTENT_HASH_FUNCTION_PROPERTY));
+    }
+
     private static abstract class MessageDigestHashFunction implements HashFunction {
         public static MessageDigestHashFunction of(String algorithm) {
             MessageDigest prototype;
@@ -231,6 +285,12 @@ public class Hashing {
             digest.update(bytes, off, len);
         }
 
+        @Override
+        public void putBytes(ByteBuffer bytes) {
+            checkNotDone();
+            digest.update(bytes);
+        }
+
         @Override
         public HashCode hash() {
             done = true;
@@ -279,6 +339,227 @@ public class Hashing {
         }
     }
 
+    private static class Murmur3HashFunction implements HashFunction {
+        @Override
+        public PrimitiveHasher newPrimitiveHasher() {
+            return new Murmur3Hasher();
+        }
+
+        @Override
+        public Hasher newHasher() {
+            return new DefaultHasher(newPrimitiveHasher());
+        }
+
+        @Override
+        public HashCode hashBytes(byte[] bytes) {
+            PrimitiveHasher hasher = newPrimitiveHasher();
+            hasher.putBytes(bytes);
+            return hasher.hash();
+        }
+
+        @Override
+        public HashCode hashString(CharSequence string) {
+            PrimitiveHasher hasher = newPrimitiveHasher();
+            hasher.putString(string);
+            return hasher.hash();
+        }
+    }
+
+    /**
+     * Streaming implementation of the x64 128-bit variant of MurmurHash3, with a seed of 0.
+     * Produces the same hashes as Guava's {@code Hashing.murmur3_128()}.
+     */
+    private static class Murmur3Hasher implements PrimitiveHasher {
+        private static final int CHUNK_SIZE = 16;
+        private static final long C1 = 0x87c37b91114253d5L;
+        private static final long C2 = 0x4cf5ad432745937fL;
+
+        private final byte[] chunk = new byte[CHUNK_SIZE];
+        private final ByteBuffer buffer = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN);
+        private int chunkLength;
+        private long h1;
+        private long h2;
+        private long length;
+        private boolean done;
+
+        private void checkNotDone() {
+            if (done) {
+                throw new IllegalStateException("Cannot reuse hasher");
+            }
+        }
+
+        @Override
+        public void putByte(byte b) {
+            checkNotDone();
+            chunk[chunkLength++] = b;
+            if (chunkLength == CHUNK_SIZE) {
+                processChunk(chunk, 0);
+                chunkLength = 0;
+            }
+        }
+
+        @Override
+        public void putBytes(byte[] bytes) {
+            putBytes(bytes, 0, bytes.length);
+        }
+
+        @Override
+        public void putBytes(byte[] bytes, int off, int len) {
+            checkNotDone();
+            int end = off + len;
+            if (chunkLength > 0) {
+                int count = Math.min(CHUNK_SIZE - chunkLength, len);
+                System.arraycopy(bytes, off, chunk, chunkLength, count);
+                chunkLength += count;
+                off += count;
+                if (chunkLength < CHUNK_SIZE) {
+                    return;
+                }
+                processChunk(chunk, 0);
+                chunkLength = 0;
+            }
+            while (end - off >= CHUNK_SIZE) {
+                processChunk(bytes, off);
+                off += CHUNK_SIZE;
+            }
+            chunkLength = end - off;
+            System.arraycopy(bytes, off, chunk, 0, chunkLength);
+        }
+
+        @Override
+        public void putBytes(ByteBuffer bytes) {
+            checkNotDone();
+            ByteBuffer input = bytes.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+            while (chunkLength > 0 && input.hasRemaining()) {
+                putByte(input.get());
+            }
+            while (input.remaining() >= CHUNK_SIZE) {
+                processChunk(input.getLong(), input.getLong());
+            }
+            int remaining = input.remaining();
+            input.get(chunk, chunkLength, remaining);
+            chunkLength += remaining;
+            BufferCaster.cast(bytes).position(bytes.limit());
+        }
+
+        private void update(int length) {
+            putBytes(buffer.array(), 0, length);
+            BufferCaster.cast(buffer).clear();
+        }
+
+        @Override
+        public void putInt(int value) {
+            buffer.putInt(value);
+            update(4);
+        }
+
+        @Override
+        public void putLong(long value) {
+            buffer.putLong(value);
+            update(8);
+        }
+
+        @Override
+        public void putDouble(double value) {
+            putLong(Double.doubleToRawLongBits(value));
+        }
+
+        @Override
+        public void putBoolean(boolean value) {
+            putByte((byte) (value ? 1 : 0));
+        }
+
+        @Override
+        public void putString(CharSequence value) {
+            putBytes(value.toString().getBytes(Charsets.UTF_8));
+        }
+
+        @Override
+        public void putHash(HashCode hashCode) {
+            putBytes(hashCode.getBytes());
+        }
+
+        private void processChunk(byte[] bytes, int off) {
+            processChunk(getLongLittleEndian(bytes, off), getLongLittleEndian(bytes, off + 8));
+        }
+
+        private void processChunk(long k1, long k2) {
+            h1 ^= mixK1(k1);
+            h1 = Long.rotateLeft(h1, 27);
+            h1 += h2;
+            h1 = h1 * 5 + 0x52dce729;
+
+            h2 ^= mixK2(k2);
+            h2 = Long.rotateLeft(h2, 31);
+            h2 += h1;
+            h2 = h2 * 5 + 0x38495ab5;
+            length += CHUNK_SIZE;
+        }
+
+        @Override
+        public HashCode hash() {
+            checkNotDone();
+            done = true;
+            long k1 = 0;
+            long k2 = 0;
+            for (int i = chunkLength - 1; i >= 8; i--) {
+                k2 = (k2 << 8) | (chunk[i] & 0xffL);
+            }
+            for (int i = Math.min(chunkLength, 8) - 1; i >= 0; i--) {
+                k1 = (k1 << 8) | (chunk[i] & 0xffL);
+            }
+            h1 ^= mixK1(k1);
+            h2 ^= mixK2(k2);
+            length += chunkLength;
+
+            h1 ^= length;
+            h2 ^= length;
+            h1 += h2;
+            h2 += h1;
+            h1 = fmix64(h1);
+            h2 = fmix64(h2);
+            h1 += h2;
+            h2 += h1;
+
+            byte[] bytes = ByteBuffer.allocate(CHUNK_SIZE).order(ByteOrder.LITTLE_ENDIAN).putLong(h1).putLong(h2).array();
+            return HashCode.fromBytesNoCopy(bytes);
+        }
+
+        private static long getLongLittleEndian(byte[] bytes, int off) {
+            return (bytes[off] & 0xffL)
+                | (bytes[off + 1] & 0xffL) << 8
+                | (bytes[off + 2] & 0xffL) << 16
+                | (bytes[off + 3] & 0xffL) << 24
+                | (bytes[off + 4] & 0xffL) << 32
+                | (bytes[off + 5] & 0xffL) << 40
+                | (bytes[off + 6] & 0xffL) << 48
+                | (bytes[off + 7] & 0xffL) << 56;
+        }
+
+        private static long mixK1(long k1) {
+            k1 *= C1;
+            k1 = Long.rotateLeft(k1, 31);
+            k1 *= C2;
+            return k1;
+        }
+
+        private static long mixK2(long k2) {
+            k2 *= C2;
+            k2 = Long.rotateLeft(k2, 33);
+            k2 *= C1;
+            return k2;
+        }
+
+        private static long fmix64(long k) {
+            k ^= k >>> 33;
+            k *= 0xff51afd7ed558ccdL;
+            k ^= k >>> 33;
+            k *= 0xc4ceb9fe1a85ec53L;
+            k ^= k >>> 33;
+            return k;
+        }
+    }
+
     private static class DefaultHasher implements Hasher {
         private final PrimitiveHasher hasher;
         private String invalidReason;
@@ -30,4 +30,9 @@ public interface StreamHasher {
      * The method will not close either stream.
      */
     HashCode hashCopy(InputStream inputStream, OutputStream outputStream) throws IOException;
+
+    /**
+     * Returns a new hasher which produces the same hash for some content as this stream hasher.
+     */
+    PrimitiveHasher newContentHasher();
 }
@@ -17,16 +17,41 @@
 package org.gradle.internal.resources;
 
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 import org.gradle.api.Transformer;
 import org.gradle.internal.UncheckedException;
 
+import javax.annotation.Nullable;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
 
+/**
+ * Coordinates changes to resource lock state, allowing only one thread to change the state at a time.
+ *
+ * <p>Each waiting thread has its own condition, so that a state change only wakes the threads that may be able to make progress:</p>
+ *
+ * <ul>
+ *     <li>A thread blocked in {@link #lock(Iterable)} waits for one of the exclusive locks it needs to be released, or for a lock to be
+ *     released to the pool of a {@link PooledResourceLock} it needs, such as a worker lease.</li>
+ *     <li>Threads performing an {@link #interchangeable(Object, Transformer)} action of the same group, such as the workers selecting nodes
+ *     from the same execution plan, are woken one at a time. Each state change wakes one of them, and a thread of the group that makes
+ *     progress wakes the next one.</li>
+ *     <li>Other threads, whose actions may depend on any state, are woken whenever some lock is released.</li>
+ * </ul>
+ *
+ * <p>All waiting threads are woken, one per group, when {@link #notifyStateChange()} is called.</p>
+ */
 public class DefaultResourceLockCoordinationService implements ResourceLockCoordinationService {
-    private final Object lock = new Object();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Set<Waiter> waitersForAnyChange = Sets.newLinkedHashSet();
+    private final Map<Object, Set<Waiter>> waitersByResource = Maps.newHashMap();
+    private final Map<Object, Set<Waiter>> waitersByGroup = Maps.newLinkedHashMap();
     private final ThreadLocal<List<ResourceLockState>> currentState = new ThreadLocal<List<ResourceLockState>>() {
         @Override
         protected List<ResourceLockState> initialValue() {
@@ -36,10 +61,12 @@ public class DefaultResourceLockCoordinationService implements ResourceLockCoord
 
     @Override
     public boolean withStateLock(Transformer<ResourceLockState.Disposition, ResourceLockState> stateLockAction) {
-        while (true) {
-            DefaultResourceLockState resourceLockState = new DefaultResourceLockState();
-            ResourceLockState.Disposition disposition;
-            synchronized (lock) {
+        lock.lock();
+        Waiter waiter = null;
+        try {
+            while (true) {
+                DefaultResourceLockState resourceLockState = new DefaultResourceLockState();
+                ResourceLockState.Disposition disposition;
                 try {
                     currentState.get().add(resourceLockState);
                     disposition = stateLockAction.transform(resourceLockState);
@@ -47,14 +74,12 @@ public class DefaultResourceLockCoordinationService implements ResourceLockCoord
                     switch (disposition) {
                         case RETRY:
                             resourceLockState.releaseLocks();
-                            try {
-                                lock.wait();
-                            } catch (InterruptedException e) {
-                                throw UncheckedException.throwAsUncheckedException(e);
-                            }
                             break;
                         case FINISHED:
-                            maybeNotifyStateChange(resourceLockState);
+                            if (stateLockAction instanceof InterchangeableAction) {
+                                // The state which allowed this thread to make progress may allow the next thread of the group to do so as well
+                                wakeFirst(((InterchangeableAction) stateLockAction).group);
+                            }
                             return true;
                         case FAILED:
                             resourceLockState.releaseLocks();
@@ -67,8 +92,130 @@ public class DefaultResourceLockCoordinationService implements ResourceLockCoord
                     throw UncheckedException.throwAsUncheckedException(t);
                 } finally {
                     currentState.get().remove(resourceLockState);
+                    maybeNotifyStateChange(resourceLockState);
+                }
+
+                if (waiter == null) {
+                    waiter = new Waiter(lock.newCondition());
                 }
+                awaitStateChange(waiter, stateLockAction);
             }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the resources, or the pools of resources, one of which needs to be released for the given action to make progress.
+     * Returns null when the action may make progress after any state change.
+     */
+    @Nullable
+    private static Collection<Object> blockingResources(Transformer<ResourceLockState.Disposition, ResourceLockState> stateLockAction) {
+        if (!(stateLockAction instanceof AcquireLocks)) {
+            return null;
+        }
+        Collection<? extends ResourceLock> resourceLocks = ((AcquireLocks) stateLockAction).resourceLocks;
+        Set<Object> blockingResources = Sets.newLinkedHashSet();
+        for (ResourceLock resourceLock : resourceLocks) {
+            if (resourceLock instanceof ExclusiveAccessResourceLock) {
+                blockingResources.add(resourceLock);
+            } else if (resourceLock instanceof PooledResourceLock) {
+                blockingResources.add(((PooledResourceLock) resourceLock).getPool());
+            } else {
+                return null;
+            }
+        }
+        return blockingResources;
+    }
+
+    private static Object resourceKey(ResourceLock resourceLock) {
+        return resourceLock instanceof PooledResourceLock ? ((PooledResourceLock) resourceLock).getPool() : resourceLock;
+    }
+
+    private void awaitStateChange(Waiter waiter, Transformer<ResourceLockState.Disposition, ResourceLockState> stateLockAction) {
+        waiter.woken = false;
+        if (stateLockAction instanceof InterchangeableAction) {
+            waiter.group = ((InterchangeableAction) stateLockAction).group;
+            addWaiter(waitersByGroup, waiter.group, waiter);
+        } else {
+            waiter.blockingResources = blockingResources(stateLockAction);
+            if (waiter.blockingResources == null) {
+                waitersForAnyChange.add(waiter);
+            } else {
+                for (Object resource : waiter.blockingResources) {
+                    addWaiter(waitersByResource, resource, waiter);
+                }
+            }
+        }
+        try {
+            while (!waiter.woken) {
+                waiter.condition.await();
+            }
+        } catch (InterruptedException e) {
+            if (!waiter.woken) {
+                removeWaiter(waiter);
+            }
+            throw UncheckedException.throwAsUncheckedException(e);
+        }
+    }
+
+    private static void addWaiter(Map<Object, Set<Waiter>> waitersByKey, Object key, Waiter waiter) {
+        Set<Waiter> waiters = waitersByKey.get(key);
+        if (waiters == null) {
+            waiters = Sets.newLinkedHashSet();
+            waitersByKey.put(key, waiters);
+        }
+        waiters.add(waiter);
+    }
+
+    private static void removeWaiter(Map<Object, Set<Waiter>> waitersByKey, Object key, Waiter waiter) {
+        Set<Waiter> waiters = waitersByKey.get(key);
+        if (waiters != null) {
+            waiters.remove(waiter);
+            if (waiters.isEmpty()) {
+                waitersByKey.remove(key);
+            }
+        }
+    }
+
+    private void removeWaiter(Waiter waiter) {
+        if (waiter.group != null) {
+            removeWaiter(waitersByGroup, waiter.group, waiter);
+        } else if (waiter.blockingResources == null) {
+            waitersForAnyChange.remove(waiter);
+        } else {
+            for (Object resource : waiter.blockingResources) {
+                removeWaiter(waitersByResource, resource, waiter);
+            }
+        }
+        waiter.group = null;
+        waiter.blockingResources = null;
+    }
+
+    private void wake(Waiter waiter) {
+        removeWaiter(waiter);
+        waiter.woken = true;
+        waiter.condition.signal();
+    }
+
+    private void wakeAll(@Nullable Collection<Waiter> waiters) {
+        if (waiters != null) {
+            for (Waiter waiter : Lists.newArrayList(waiters)) {
+                wake(waiter);
+            }
+        }
+    }
+
+    private void wakeFirst(Object group) {
+        Set<Waiter> waiters = waitersByGroup.get(group);
+        if (waiters != null) {
+            wake(waiters.iterator().next());
+        }
+    }
+
+    private void wakeFirstOfEachGroup() {
+        for (Object group : Lists.newArrayList(waitersByGroup.keySet())) {
+            wakeFirst(group);
         }
     }
 
@@ -82,15 +229,44 @@ public class DefaultResourceLockCoordinationService implements ResourceLockCoord
         }
     }
 
+    /**
+     * Wakes the waiting threads that may make progress now that some locks have been released.
+     *
+     * <p>Locks that are acquired and then rolled back by a failed attempt are not considered: the attempt holds the state lock throughout,
+     * so no other thread can have found them taken.</p>
+     */
     private void maybeNotifyStateChange(DefaultResourceLockState resourceLockState) {
         if (resourceLockState.hasUnlockedResources()) {
-            notifyStateChange();
+            wakeAll(waitersForAnyChange);
+            wakeFirstOfEachGroup();
+            for (ResourceLock resourceLock : resourceLockState.unlockedResources) {
+                wakeAll(waitersByResource.get(resourceKey(resourceLock)));
+            }
         }
     }
 
     public void notifyStateChange() {
-        synchronized (lock) {
-            lock.notifyAll();
+        lock.lock();
+        try {
+            // The change is not known, so wake all waiting threads, or one of each group
+            wakeAll(waitersForAnyChange);
+            wakeFirstOfEachGroup();
+            for (Set<Waiter> waiters : Lists.newArrayList(waitersByResource.values())) {
+                wakeAll(waiters);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static class Waiter {
+        private final Condition condition;
+        private Object group;
+        private Collection<Object> blockingResources;
+        private boolean woken;
+
+        Waiter(Condition condition) {
+            this.condition = condition;
         }
     }
 
@@ -139,6 +315,15 @@ public class DefaultResourceLockCoordinationService implements ResourceLockCoord
         }
     }
 
+    /**
+     * Wraps a state lock action that is performed in the same way by several threads of a group, such as the workers selecting nodes from the
+     * same execution plan, so that any thread of the group can make progress whenever another thread of the group could.
+     * Only one waiting thread of the group is woken on each state change, and it wakes the next one when it makes progress.
+     */
+    public static Transformer<ResourceLockState.Disposition, ResourceLockState> interchangeable(Object group, Transformer<ResourceLockState.Disposition, ResourceLockState> stateLockAction) {
+        return new InterchangeableAction(group, stateLockAction);
+    }
+
     /**
      * Attempts an atomic, blocking lock on the provided resource locks.
      */
@@ -182,11 +367,11 @@ public class DefaultResourceLockCoordinationService implements ResourceLockCoord
     }
 
     private static class AcquireLocks implements Transformer<ResourceLockState.Disposition, ResourceLockState> {
-        private final Iterable<? extends ResourceLock> resourceLocks;
+        private final Collection<? extends ResourceLock> resourceLocks;
         private final boolean blocking;
 
         AcquireLocks(Iterable<? extends ResourceLock> resourceLocks, boolean blocking) {
-            this.resourceLocks = resourceLocks;
+            this.resourceLocks = Lists.newArrayList(resourceLocks);
             this.blocking = blocking;
         }
 
@@ -201,6 +386,21 @@ public class DefaultResourceLockCoordinationService implements ResourceLockCoord
         }
     }
 
+    private static class InterchangeableAction implements Transformer<ResourceLockState.Disposition, ResourceLockState> {
+        private final Object group;
+        private final Transformer<ResourceLockState.Disposition, ResourceLockState> delegate;
+
+        InterchangeableAction(Object group, Transformer<ResourceLockState.Disposition, ResourceLockState> delegate) {
+            this.group = group;
+            this.delegate = delegate;
+        }
+
+        @Override
+        public ResourceLockState.Disposition transform(ResourceLockState resourceLockState) {
+            return delegate.transform(resourceLockState);
+        }
+    }
+
     private static class ReleaseLocks implements Transformer<ResourceLockState.Disposition, ResourceLockState> {
         private final Iterable<? extends ResourceLock> resourceLocks;
 
@@ -0,0 +1,28 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.resources;
+
+/**
+ * A resource lock that is granted from a pool of limited capacity shared with other locks, such as a worker lease.
+ * Such a lock may become available when any lock of the same pool is released, rather than only when the lock itself is released.
+ */
+public interface PooledResourceLock extends ResourceLock {
+    /**
+     * Returns the pool this lock is granted from.
+     */
+    Object getPool();
+}
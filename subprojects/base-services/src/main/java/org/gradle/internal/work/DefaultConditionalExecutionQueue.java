@@ -31,6 +31,7 @@ import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.ReentrantLock;
 
+import static org.gradle.internal.resources.DefaultResourceLockCoordinationService.interchangeable;
 import static org.gradle.internal.resources.DefaultResourceLockCoordinationService.unlock;
 
 /**
@@ -174,7 +175,8 @@ public class DefaultConditionalExecutionQueue<T> implements ConditionalExecution
          */
         private ConditionalExecution getReadyExecution() {
             final MutableReference<ConditionalExecution> execution = MutableReference.empty();
-            coordinationService.withStateLock(new Transformer<ResourceLockState.Disposition, ResourceLockState>() {
+            // All runners take executions from the queue in the same way, so only one waiting runner needs to be woken when the state changes
+            coordinationService.withStateLock(interchangeable(DefaultConditionalExecutionQueue.this, new Transformer<ResourceLockState.Disposition, ResourceLockState>() {
                 @Override
                 public ResourceLockState.Disposition transform(ResourceLockState resourceLockState) {
                     if (queue.isEmpty()) {
@@ -202,7 +204,7 @@ public class DefaultConditionalExecutionQueue<T> implements ConditionalExecution
                         return ResourceLockState.Disposition.FINISHED;
                     }
                 }
-            });
+            }));
 
             return execution.get();
         }
@@ -32,6 +32,7 @@ import org.gradle.internal.concurrent.ParallelismConfigurationManager;
 import org.gradle.internal.resources.AbstractResourceLockRegistry;
 import org.gradle.internal.resources.AbstractTrackedResourceLock;
 import org.gradle.internal.resources.DefaultResourceLockCoordinationService;
+import org.gradle.internal.resources.PooledResourceLock;
 import org.gradle.internal.resources.ProjectLock;
 import org.gradle.internal.resources.ProjectLockStatistics;
 import org.gradle.internal.resources.ResourceLock;
@@ -355,7 +356,7 @@ public class DefaultWorkerLeaseService implements WorkerLeaseService, Parallelis
         }
     }
 
-    private class DefaultWorkerLease extends AbstractTrackedResourceLock implements LeaseHolder, WorkerLeaseCompletion, WorkerLease {
+    private class DefaultWorkerLease extends AbstractTrackedResourceLock implements LeaseHolder, WorkerLeaseCompletion, WorkerLease, PooledResourceLock {
         private final LeaseHolder parent;
         private final Thread ownerThread;
         int children;
@@ -367,6 +368,12 @@ public class DefaultWorkerLeaseService implements WorkerLeaseService, Parallelis
             this.ownerThread = ownerThread;
         }
 
+        @Override
+        public Object getPool() {
+            // A lease is granted when its parent, or the root, has capacity left, which is the case when some other lease is released
+            return root;
+        }
+
         @Override
         protected boolean doIsLocked() {
             return active;
@@ -19,6 +19,8 @@ package org.gradle.internal.hash
 import spock.lang.Specification
 import spock.lang.Unroll
 
+import java.nio.ByteBuffer
+
 @Unroll
 class HashCodeTest extends Specification {
     def "can parse hex string #input"() {
@@ -72,6 +74,15 @@ class HashCodeTest extends Specification {
         toBytes([0xAB] * 255)           | 255    | "ab" * 255     | 0xABABABAB | toBytes([0xAB] * 255)
     }
 
+    def "can parse longs"() {
+        def hash = HashCode.fromLongs(0x0123456789abcdefL, 0x7edcba9876543210L)
+
+        expect:
+        hash.toString() == "0123456789abcdef7edcba9876543210"
+        hash.length() == 16
+        hash == HashCode.fromBytes(ByteBuffer.allocate(16).putLong(0x0123456789abcdefL).putLong(0x7edcba9876543210L).array())
+    }
+
     def "#a == #b: #equals"() {
         def hashA = HashCode.fromString(a)
         def hashB = HashCode.fromString(b)
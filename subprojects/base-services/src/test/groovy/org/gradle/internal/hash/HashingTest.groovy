@@ -17,6 +17,9 @@
 package org.gradle.internal.hash
 
 import spock.lang.Specification
+import spock.lang.Unroll
+
+import java.nio.ByteBuffer
 
 class HashingTest extends Specification {
 
@@ -40,6 +43,62 @@ class HashingTest extends Specification {
         hashStrings(["abc", "de"]) != hashStrings(["ab", "cde"])
     }
 
+    def 'murmur3 produces the same hash as Guava regardless of how the input is split'() {
+        def bytes = new byte[length]
+        new Random(length).nextBytes(bytes)
+
+        when:
+        def hasher = Hashing.murmur3().newPrimitiveHasher()
+        def offset = 0
+        while (offset < length) {
+            def count = Math.min(chunkSize, length - offset)
+            if (count == 1) {
+                hasher.putByte(bytes[offset])
+            } else {
+                hasher.putBytes(bytes, offset, count)
+            }
+            offset += count
+        }
+
+        then:
+        hasher.hash().toByteArray() == com.google.common.hash.Hashing.murmur3_128().hashBytes(bytes).asBytes()
+
+        where:
+        length | chunkSize
+        0      | 1
+        1      | 1
+        15     | 1
+        16     | 16
+        17     | 5
+        31     | 7
+        1000   | 1000
+        1000   | 13
+    }
+
+    @Unroll
+    def '#name produces the same hash for a byte buffer as for a byte array'() {
+        def bytes = new byte[1000]
+        new Random(1000).nextBytes(bytes)
+        def buffer = ByteBuffer.wrap(bytes, 3, 990)
+
+        when:
+        def bufferHasher = hashFunction.newPrimitiveHasher()
+        bufferHasher.putBytes(bytes, 0, 3)
+        bufferHasher.putBytes(buffer)
+        bufferHasher.putBytes(bytes, 993, 7)
+        def arrayHasher = hashFunction.newPrimitiveHasher()
+        arrayHasher.putBytes(bytes)
+
+        then:
+        bufferHasher.hash() == arrayHasher.hash()
+        buffer.position() == 993
+
+        where:
+        name      | hashFunction
+        "md5"     | Hashing.md5()
+        "murmur3" | Hashing.murmur3()
+    }
+
     def hashKey(String value) {
         def hasher = Hashing.newHasher()
         hasher.putString(value)
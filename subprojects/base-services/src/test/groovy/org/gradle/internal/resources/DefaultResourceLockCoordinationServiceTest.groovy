@@ -21,6 +21,8 @@ import org.gradle.api.Transformer
 import org.gradle.test.fixtures.ConcurrentTestUtil
 import org.gradle.test.fixtures.concurrent.ConcurrentSpec
 
+import java.util.concurrent.atomic.AtomicInteger
+
 import static org.gradle.internal.resources.ResourceLockState.Disposition.*
 import static org.gradle.internal.resources.DefaultResourceLockCoordinationService.*
 
@@ -108,6 +110,167 @@ class DefaultResourceLockCoordinationServiceTest extends ConcurrentSpec {
         lock2.lockedState
     }
 
+    def "retries all waiting lock actions when state changes"() {
+        def locks = (1..4).collect { resourceLock("lock${it}", false) }
+        def released = false
+
+        when:
+        async {
+            locks.eachWithIndex { lock, i ->
+                start {
+                    coordinationService.withStateLock(new Transformer<ResourceLockState.Disposition, ResourceLockState>() {
+                        @Override
+                        ResourceLockState.Disposition transform(ResourceLockState resourceLockState) {
+                            if (!released) {
+                                instant."waiting${i}"
+                                return RETRY
+                            }
+                            return lock.tryLock() ? FINISHED : FAILED
+                        }
+                    })
+                }
+            }
+
+            locks.indices.each { thread.blockUntil."waiting${it}" }
+
+            coordinationService.withStateLock(new Transformer<ResourceLockState.Disposition, ResourceLockState>() {
+                @Override
+                ResourceLockState.Disposition transform(ResourceLockState resourceLockState) {
+                    released = true
+                    return FINISHED
+                }
+            })
+            coordinationService.notifyStateChange()
+        }
+
+        then:
+        locks.every { it.lockedState }
+    }
+
+    def "only retries a blocking lock action when one of the locks it waits for is released"() {
+        def attempts = 0
+        def lock1 = new ExclusiveAccessResourceLock("lock1", coordinationService, Mock(Action), Mock(Action)) {
+            @Override
+            protected boolean acquireLock() {
+                attempts++
+                if (super.acquireLock()) {
+                    return true
+                }
+                instant.waiting
+                return false
+            }
+        }
+        def lock2 = new ExclusiveAccessResourceLock("lock2", coordinationService, Mock(Action), Mock(Action))
+
+        when:
+        async {
+            start {
+                coordinationService.withStateLock(lock(lock1, lock2))
+                instant.locked
+                thread.blockUntil.waiting
+                coordinationService.withStateLock(unlock(lock2))
+                instant.lock2Released
+                coordinationService.withStateLock(unlock(lock1))
+            }
+            start {
+                thread.blockUntil.locked
+                coordinationService.withStateLock(lock(lock1))
+                instant.acquired
+                coordinationService.withStateLock(unlock(lock1))
+            }
+        }
+
+        then:
+        instant.acquired > instant.lock2Released
+        attempts == 3
+    }
+
+    def "only retries a blocking lock action on a pooled lock when a lock of the same pool is released"() {
+        def pool = new TestLockPool(1)
+        def lease1 = new TestPooledResourceLock("lease1", coordinationService, pool)
+        def lease2 = new TestPooledResourceLock("lease2", coordinationService, pool)
+        lease2.onFailedAttempt = { instant.waiting }
+        def other = new ExclusiveAccessResourceLock("other", coordinationService, Mock(Action), Mock(Action))
+
+        when:
+        async {
+            start {
+                coordinationService.withStateLock(lock(lease1, other))
+                instant.leased
+                thread.blockUntil.waiting
+                coordinationService.withStateLock(unlock(other))
+                instant.otherReleased
+                coordinationService.withStateLock(unlock(lease1))
+            }
+            start {
+                thread.blockUntil.leased
+                coordinationService.withStateLock(lock(lease2))
+                instant.acquired
+                coordinationService.withStateLock(unlock(lease2))
+            }
+        }
+
+        then:
+        instant.acquired > instant.otherReleased
+        lease2.attempts == 2
+    }
+
+    def "wakes one waiting thread of a group on each state change and the thread that makes progress wakes the next one"() {
+        def available = 0
+        def failedAttempts = new AtomicInteger()
+        def finished = new AtomicInteger()
+        def lock = resourceLock("lock", true, true)
+        def action = new Transformer<ResourceLockState.Disposition, ResourceLockState>() {
+            @Override
+            ResourceLockState.Disposition transform(ResourceLockState resourceLockState) {
+                if (available > 0) {
+                    available--
+                    return FINISHED
+                }
+                failedAttempts.incrementAndGet()
+                return RETRY
+            }
+        }
+
+        when:
+        async {
+            4.times {
+                start {
+                    coordinationService.withStateLock(interchangeable("group", action))
+                    finished.incrementAndGet()
+                }
+            }
+            ConcurrentTestUtil.poll {
+                assert failedAttempts.get() == 4
+            }
+
+            coordinationService.withStateLock(new Transformer<ResourceLockState.Disposition, ResourceLockState>() {
+                @Override
+                ResourceLockState.Disposition transform(ResourceLockState resourceLockState) {
+                    available = 2
+                    return unlock(lock).transform(resourceLockState)
+                }
+            })
+            ConcurrentTestUtil.poll {
+                assert finished.get() == 2
+                assert failedAttempts.get() == 5
+            }
+
+            coordinationService.withStateLock(new Transformer<ResourceLockState.Disposition, ResourceLockState>() {
+                @Override
+                ResourceLockState.Disposition transform(ResourceLockState resourceLockState) {
+                    available = 2
+                    return FINISHED
+                }
+            })
+            coordinationService.notifyStateChange()
+        }
+
+        then:
+        finished.get() == 4
+        failedAttempts.get() == 5
+    }
+
     def "can nest multiple calls to withStateLock"() {
         def lock = [
             resourceLock("lock1"),
@@ -324,4 +487,46 @@ class DefaultResourceLockCoordinationServiceTest extends ConcurrentSpec {
     TestTrackedResourceLock resourceLock(String displayName) {
         return resourceLock(displayName, false)
     }
+
+    static class TestLockPool {
+        final int capacity
+        int inUse
+
+        TestLockPool(int capacity) {
+            this.capacity = capacity
+        }
+    }
+
+    static class TestPooledResourceLock extends TestTrackedResourceLock implements PooledResourceLock {
+        final TestLockPool lockPool
+        int attempts
+        Closure onFailedAttempt = {}
+
+        TestPooledResourceLock(String displayName, ResourceLockCoordinationService coordinationService, TestLockPool lockPool) {
+            super(displayName, coordinationService, {} as Action, {} as Action)
+            this.lockPool = lockPool
+        }
+
+        @Override
+        Object getPool() {
+            return lockPool
+        }
+
+        @Override
+        protected boolean acquireLock() {
+            attempts++
+            if (lockPool.inUse < lockPool.capacity && super.acquireLock()) {
+                lockPool.inUse++
+                return true
+            }
+            onFailedAttempt.call()
+            return false
+        }
+
+        @Override
+        protected void releaseLock() {
+            lockPool.inUse--
+            super.releaseLock()
+        }
+    }
 }
@@ -25,6 +25,8 @@ import org.gradle.caching.BuildCacheKey
 import org.gradle.caching.BuildCacheService
 import org.gradle.caching.BuildCacheServiceFactory
 import org.gradle.caching.http.HttpBuildCache
+import org.gradle.internal.concurrent.DefaultParallelismConfiguration
+import org.gradle.internal.concurrent.ParallelismConfigurationManager
 import org.gradle.internal.resource.transport.http.DefaultSslContextFactory
 import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
 import org.gradle.test.fixtures.server.http.AuthScheme
@@ -56,6 +58,9 @@ class HttpBuildCacheServiceTest extends Specification {
 
     BuildCacheService cache
     BuildCacheServiceFactory.Describer buildCacheDescriber
+    ParallelismConfigurationManager parallelismConfigurationManager = Stub(ParallelismConfigurationManager) {
+        getParallelismConfiguration() >> new DefaultParallelismConfiguration(true, 4)
+    }
 
     def key = new BuildCacheKey() {
         @Override
@@ -79,7 +84,7 @@ class HttpBuildCacheServiceTest extends Specification {
         def config = new HttpBuildCache()
         config.url = server.uri.resolve("/cache/")
         buildCacheDescriber = new NoopBuildCacheDescriber()
-        cache = new DefaultHttpBuildCacheServiceFactory(new DefaultSslContextFactory()).createBuildCacheService(config, buildCacheDescriber)
+        cache = new DefaultHttpBuildCacheServiceFactory(new DefaultSslContextFactory(), parallelismConfigurationManager).createBuildCacheService(config, buildCacheDescriber)
     }
 
     def "can cache artifact"() {
@@ -267,7 +272,7 @@ class HttpBuildCacheServiceTest extends Specification {
         configuration.url = server.uri.resolve("/cache/")
         configuration.credentials.username = 'user'
         configuration.credentials.password = 'password'
-        cache = new DefaultHttpBuildCacheServiceFactory(new DefaultSslContextFactory()).createBuildCacheService(configuration, buildCacheDescriber) as HttpBuildCacheService
+        cache = new DefaultHttpBuildCacheServiceFactory(new DefaultSslContextFactory(), parallelismConfigurationManager).createBuildCacheService(configuration, buildCacheDescriber) as HttpBuildCacheService
 
         server.authenticationScheme = AuthScheme.BASIC
 
@@ -293,6 +298,33 @@ class HttpBuildCacheServiceTest extends Specification {
         server.authenticationAttempts == ['Basic'] as Set
     }
 
+    def "reuses connection for subsequent requests"() {
+        def srcFile = tempDir.file("cached.zip")
+        srcFile.text = "Data"
+        def destFile = tempDir.file("stored.zip")
+        def content = "Data".bytes
+
+        server.expectGet("/cache/${key.hashCode}", srcFile)
+        server.expectGetMissing("/cache/${key.hashCode}")
+        expectError(HttpStatus.SC_INTERNAL_SERVER_ERROR, 'GET')
+        server.expectPut("/cache/${key.hashCode}", destFile, HttpStatus.SC_OK, null, content.length)
+
+        when:
+        cache.load(key) { input -> input.text }
+        cache.load(key) { input -> }
+        try {
+            cache.load(key) { input -> }
+        } catch (BuildCacheException ignored) {
+        }
+        cache.store(key, writer(content))
+
+        then:
+        def statistics = cache.httpClientHelper.connectionStatistics
+        statistics.requestCount == 4
+        statistics.connectionCount == 1
+        statistics.reusedConnectionCount == 3
+    }
+
     private HttpResourceInteraction expectError(int httpCode, String method) {
         server.expect("/cache/${key.hashCode}", false, [method], new HttpServer.ActionSupport("return ${httpCode} broken") {
             @Override
@@ -37,6 +37,7 @@ import org.gradle.caching.internal.CacheFormat;
 import org.gradle.internal.UncheckedException;
 import org.gradle.internal.resource.transport.http.HttpClientHelper;
 import org.gradle.internal.resource.transport.http.HttpClientResponse;
+import org.gradle.internal.resource.transport.http.HttpConnectionStatistics;
 import org.gradle.util.GradleVersion;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -210,6 +211,10 @@ public class HttpBuildCacheService implements BuildCacheService {
 
     @Override
     public void close() throws IOException {
+        HttpConnectionStatistics statistics = httpClientHelper.getConnectionStatistics();
+        if (statistics.getRequestCount() > 0) {
+            LOGGER.info("HTTP build cache at {} sent {} requests using {} connections.", safeUri(root), statistics.getRequestCount(), statistics.getConnectionCount());
+        }
         httpClientHelper.close();
     }
 
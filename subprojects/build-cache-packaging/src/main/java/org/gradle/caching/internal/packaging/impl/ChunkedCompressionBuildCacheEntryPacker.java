@@ -0,0 +1,73 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.caching.internal.packaging.impl;
+
+import org.gradle.caching.internal.CacheableEntity;
+import org.gradle.caching.internal.compress.BuildCacheCompression;
+import org.gradle.caching.internal.compress.ChunkedCompressingOutputStream;
+import org.gradle.caching.internal.compress.ChunkedDecompressingInputStream;
+import org.gradle.caching.internal.origin.OriginReader;
+import org.gradle.caching.internal.origin.OriginWriter;
+import org.gradle.caching.internal.packaging.BuildCacheEntryPacker;
+import org.gradle.internal.concurrent.ExecutorFactory;
+import org.gradle.internal.concurrent.ManagedExecutor;
+import org.gradle.internal.concurrent.Stoppable;
+import org.gradle.internal.fingerprint.CurrentFileCollectionFingerprint;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Map;
+
+/**
+ * Compresses the entries produced by the delegate packer in independently compressed chunks, so that the chunks of an entry
+ * can be compressed and decompressed on multiple threads while the delegate packer reads or writes the files of the entity.
+ *
+ * <p>Entries are stored with the given compression, and loaded with the compression recorded in the entry.</p>
+ */
+public class ChunkedCompressionBuildCacheEntryPacker implements BuildCacheEntryPacker, Stoppable {
+    private final BuildCacheEntryPacker delegate;
+    private final BuildCacheCompression compression;
+    private final ManagedExecutor executor;
+    private final int maxPendingChunks;
+
+    public ChunkedCompressionBuildCacheEntryPacker(BuildCacheEntryPacker delegate, BuildCacheCompression compression, ExecutorFactory executorFactory, int threads) {
+        this.delegate = delegate;
+        this.compression = compression;
+        this.executor = executorFactory.create("Build cache entry compression", threads);
+        this.maxPendingChunks = 2 * threads;
+    }
+
+    @Override
+    public PackResult pack(CacheableEntity entity, Map<String, CurrentFileCollectionFingerprint> fingerprints, OutputStream output, OriginWriter writeOrigin) throws IOException {
+        try (ChunkedCompressingOutputStream compressedOutput = new ChunkedCompressingOutputStream(output, executor, compression, maxPendingChunks)) {
+            return delegate.pack(entity, fingerprints, compressedOutput, writeOrigin);
+        }
+    }
+
+    @Override
+    public UnpackResult unpack(CacheableEntity entity, InputStream input, OriginReader readOrigin) throws IOException {
+        try (ChunkedDecompressingInputStream compressedInput = new ChunkedDecompressingInputStream(input, executor, maxPendingChunks)) {
+            return delegate.unpack(entity, compressedInput, readOrigin);
+        }
+    }
+
+    @Override
+    public void stop() {
+        executor.stop();
+    }
+}
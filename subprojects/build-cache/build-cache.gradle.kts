@@ -34,6 +34,12 @@ dependencies {
     implementation(project(":logging"))
 
     implementation(library("commons_io"))
+    implementation(library("aircompressor")) {
+        // Only the LZ4 codec is used, which does not need slice or jol-core
+        isTransitive = false
+    }
+
+    jmh(project(":snapshots"))
 
     jmh(library("ant")) {
         version {
@@ -47,7 +53,6 @@ dependencies {
         }
     }
 
-    jmh("io.airlift:aircompressor:0.8")
     jmh("org.iq80.snappy:snappy:0.4")
     jmh("org.kamranzafar:jtar:2.3")
 }
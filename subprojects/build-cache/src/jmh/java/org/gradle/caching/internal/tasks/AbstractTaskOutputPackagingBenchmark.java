@@ -19,6 +19,7 @@ package org.gradle.caching.internal.tasks;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import org.apache.commons.io.FileUtils;
+import org.gradle.caching.internal.compress.BuildCacheCompression;
 import org.openjdk.jmh.annotations.Benchmark;
 import org.openjdk.jmh.annotations.Fork;
 import org.openjdk.jmh.annotations.Level;
@@ -55,6 +56,10 @@ public abstract class AbstractTaskOutputPackagingBenchmark {
         .put("tar.small", new AntTarPacker(2))
         .put("tar.large", new AntTarPacker(64))
         .put("tar.gz", new GzipPacker(new AntTarPacker(4)))
+        .put("tar.chunked", new ChunkedPacker(new AntTarPacker(4), BuildCacheCompression.DEFLATE, Runtime.getRuntime().availableProcessors()))
+        .put("tar.chunked.single", new ChunkedPacker(new AntTarPacker(4), BuildCacheCompression.DEFLATE, 1))
+        .put("tar.chunked.lz4", new ChunkedPacker(new AntTarPacker(4), BuildCacheCompression.LZ4, Runtime.getRuntime().availableProcessors()))
+        .put("tar.chunked.deflate-best", new ChunkedPacker(new AntTarPacker(4), BuildCacheCompression.DEFLATE_BEST, Runtime.getRuntime().availableProcessors()))
         .put("zip", new ZipPacker(4))
         .build();
 
@@ -0,0 +1,70 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.caching.internal.tasks;
+
+import org.gradle.caching.internal.compress.BuildCacheCompression;
+import org.gradle.caching.internal.compress.ChunkedCompressingOutputStream;
+import org.gradle.caching.internal.compress.ChunkedDecompressingInputStream;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+public class ChunkedPacker implements Packer {
+    private final Packer delegate;
+    private final BuildCacheCompression compression;
+    private final ExecutorService executor;
+    private final int maxPendingChunks;
+
+    public ChunkedPacker(Packer delegate, BuildCacheCompression compression, int threads) {
+        this.delegate = delegate;
+        this.compression = compression;
+        this.executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "chunked-packer");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        this.maxPendingChunks = 2 * threads;
+    }
+
+    @Override
+    public void pack(List<DataSource> inputs, DataTarget output) throws IOException {
+        delegate.pack(inputs, new DelegatingDataTarget(output) {
+            @Override
+            public OutputStream openOutput() throws IOException {
+                return new ChunkedCompressingOutputStream(super.openOutput(), executor, compression, maxPendingChunks);
+            }
+        });
+    }
+
+    @Override
+    public void unpack(DataSource input, DataTargetFactory targetFactory) throws IOException {
+        delegate.unpack(new DelegatingDataSource(input) {
+            @Override
+            public InputStream openInput() throws IOException {
+                return new ChunkedDecompressingInputStream(super.openInput(), executor, maxPendingChunks);
+            }
+        }, targetFactory);
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.caching.internal.tasks;
+
+import org.apache.commons.io.FileUtils;
+import org.gradle.api.UncheckedIOException;
+import org.gradle.api.file.FileTreeElement;
+import org.gradle.api.internal.cache.StringInterner;
+import org.gradle.internal.MutableBoolean;
+import org.gradle.internal.file.FileMetadataSnapshot;
+import org.gradle.internal.hash.FileHasher;
+import org.gradle.internal.hash.HashCode;
+import org.gradle.internal.hash.Hashing;
+import org.gradle.internal.nativeintegration.filesystem.FileSystem;
+import org.gradle.internal.nativeintegration.services.FileSystems;
+import org.gradle.internal.nativeintegration.services.NativeServices;
+import org.gradle.internal.snapshot.impl.DirectorySnapshotter;
+import org.gradle.internal.snapshot.impl.ParallelDirectorySnapshotter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Compares snapshotting a directory tree sequentially and in parallel.
+ */
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@State(Scope.Benchmark)
+public class DirectorySnapshottingBenchmark {
+    private static final int FILES_PER_DIRECTORY = 20;
+    private static final int SUB_DIRECTORIES = 4;
+    private static final int DEPTH = 4;
+
+    Path tempDirPath;
+    Path treePath;
+    ForkJoinPool pool;
+    DirectorySnapshotter snapshotter;
+
+    @Param({"sequential", "parallel"})
+    String walker;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        this.tempDirPath = Files.createTempDirectory("directory-snapshotting");
+        NativeServices.initialize(tempDirPath.resolve("native").toFile());
+        FileSystem fileSystem = FileSystems.getDefault();
+
+        this.treePath = tempDirPath.resolve("tree");
+        generateTree(treePath, 1);
+
+        FileHasher hasher = new ContentFileHasher();
+        if (walker.equals("parallel")) {
+            this.pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+            this.snapshotter = new ParallelDirectorySnapshotter(hasher, fileSystem, new StringInterner(), pool);
+        } else {
+            this.snapshotter = new DirectorySnapshotter(hasher, fileSystem, new StringInterner());
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        if (pool != null) {
+            pool.shutdown();
+        }
+        FileUtils.forceDelete(tempDirPath.toFile());
+    }
+
+    private static void generateTree(Path dir, int depth) throws IOException {
+        Files.createDirectories(dir);
+        for (int i = 0; i < FILES_PER_DIRECTORY; i++) {
+            Files.write(dir.resolve("file" + i + ".txt"), (dir + "/" + i).getBytes());
+        }
+        if (depth < DEPTH) {
+            for (int i = 0; i < SUB_DIRECTORIES; i++) {
+                generateTree(dir.resolve("dir" + i), depth + 1);
+            }
+        }
+    }
+
+    @Benchmark
+    public void snapshot(Blackhole blackhole) {
+        blackhole.consume(snapshotter.snapshot(treePath.toString(), null, new MutableBoolean()));
+    }
+
+    private static class ContentFileHasher implements FileHasher {
+        @Override
+        public HashCode hash(File file) {
+            try {
+                return Hashing.hashBytes(Files.readAllBytes(file.toPath()));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public HashCode hash(FileTreeElement fileDetails) {
+            return hash(fileDetails.getFile());
+        }
+
+        @Override
+        public HashCode hash(File file, FileMetadataSnapshot fileDetails) {
+            return hash(file);
+        }
+    }
+}
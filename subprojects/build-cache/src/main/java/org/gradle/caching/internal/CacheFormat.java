@@ -17,11 +17,12 @@
 package org.gradle.caching.internal;
 
 public interface CacheFormat {
-    // Initial format version
+    // Version 1: tar compressed with gzip
+    // Version 2: tar compressed in independently compressed chunks, see ChunkedCompressingOutputStream
     // NOTE: This should be changed whenever we change the way we pack a cache entry, such as
     // - changing from gzip to bzip2.
     // - adding/removing properties to the origin metadata
     // - using a different format for the origin metadata
     // - any major changes of the layout of a cache entry
-    int CACHE_ENTRY_FORMAT = 1;
+    int CACHE_ENTRY_FORMAT = 2;
 }
@@ -0,0 +1,220 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.caching.internal.compress;
+
+import io.airlift.compress.Compressor;
+import io.airlift.compress.Decompressor;
+import io.airlift.compress.MalformedInputException;
+import io.airlift.compress.lz4.Lz4Compressor;
+import io.airlift.compress.lz4.Lz4Decompressor;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+
+/**
+ * The compression used for the chunks of a build cache entry. The compression is recorded in the header of each entry,
+ * so entries can be loaded regardless of the compression used by the build that stored them.
+ */
+public enum BuildCacheCompression {
+    /**
+     * Deflate, as used by gzip. A good compression ratio at a moderate speed.
+     */
+    DEFLATE(0) {
+        @Override
+        CompressedChunk doCompress(byte[] chunk, int length) throws IOException {
+            return deflate(Deflater.DEFAULT_COMPRESSION, chunk, length);
+        }
+
+        @Override
+        int doDecompress(byte[] compressed, byte[] chunk) throws IOException {
+            return inflate(compressed, chunk);
+        }
+    },
+
+    /**
+     * LZ4. Compresses and decompresses several times faster than deflate, with a lower compression ratio.
+     */
+    LZ4(1) {
+        @Override
+        CompressedChunk doCompress(byte[] chunk, int length) {
+            return compressWith(new Lz4Compressor(), chunk, length);
+        }
+
+        @Override
+        int doDecompress(byte[] compressed, byte[] chunk) throws IOException {
+            return decompressWith(new Lz4Decompressor(), compressed, chunk);
+        }
+    },
+
+    /**
+     * Deflate at its best compression level. Produces the smallest entries, at the cost of noticeably more CPU time
+     * when storing them. Loading them is as fast as with deflate.
+     */
+    DEFLATE_BEST(2) {
+        @Override
+        CompressedChunk doCompress(byte[] chunk, int length) throws IOException {
+            return deflate(Deflater.BEST_COMPRESSION, chunk, length);
+        }
+
+        @Override
+        int doDecompress(byte[] compressed, byte[] chunk) throws IOException {
+            return inflate(compressed, chunk);
+        }
+    };
+
+    private final int id;
+
+    BuildCacheCompression(int id) {
+        this.id = id;
+    }
+
+    int getId() {
+        return id;
+    }
+
+    /**
+     * Whether this compression can be used on the current JVM.
+     */
+    public boolean isSupported() {
+        try {
+            byte[] chunk = new byte[16];
+            compress(chunk, chunk.length);
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Compresses the first {@code length} bytes of the given chunk.
+     */
+    CompressedChunk compress(byte[] chunk, int length) throws IOException {
+        try {
+            return doCompress(chunk, length);
+        } catch (LinkageError e) {
+            throw unsupported(e);
+        }
+    }
+
+    /**
+     * Decompresses the given bytes into the given chunk, returning the number of bytes decompressed.
+     */
+    int decompress(byte[] compressed, byte[] chunk) throws IOException {
+        try {
+            return doDecompress(compressed, chunk);
+        } catch (LinkageError e) {
+            throw unsupported(e);
+        }
+    }
+
+    /**
+     * The maximum number of bytes that a chunk of the given length can compress to.
+     * This bounds the output of all compressions, including when they store incompressible data.
+     */
+    static int maxCompressedLength(int uncompressedLength) {
+        return uncompressedLength + uncompressedLength / 255 + 64;
+    }
+
+    abstract CompressedChunk doCompress(byte[] chunk, int length) throws IOException;
+
+    abstract int doDecompress(byte[] compressed, byte[] chunk) throws IOException;
+
+    static BuildCacheCompression forId(int id) throws IOException {
+        for (BuildCacheCompression compression : values()) {
+            if (compression.id == id) {
+                return compression;
+            }
+        }
+        throw new IOException("Unsupported compression " + id + " in build cache entry.");
+    }
+
+    private static CompressedChunk deflate(int level, byte[] chunk, int length) throws IOException {
+        Deflater deflater = new Deflater(level);
+        try {
+            ExposedByteArrayOutputStream compressed = new ExposedByteArrayOutputStream(length / 2 + 64);
+            DeflaterOutputStream deflaterOutput = new DeflaterOutputStream(compressed, deflater, 64 * 1024);
+            deflaterOutput.write(chunk, 0, length);
+            deflaterOutput.finish();
+            return new CompressedChunk(compressed.getBuffer(), compressed.size());
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static int inflate(byte[] compressed, byte[] chunk) throws IOException {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(compressed);
+            int length = 0;
+            while (!inflater.finished() && length < chunk.length) {
+                int inflated = inflater.inflate(chunk, length, chunk.length - length);
+                if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                length += inflated;
+            }
+            return length;
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupt chunk in build cache entry.", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private static CompressedChunk compressWith(Compressor compressor, byte[] chunk, int length) {
+        byte[] compressed = new byte[compressor.maxCompressedLength(length)];
+        int compressedLength = compressor.compress(chunk, 0, length, compressed, 0, compressed.length);
+        return new CompressedChunk(compressed, compressedLength);
+    }
+
+    private static int decompressWith(Decompressor decompressor, byte[] compressed, byte[] chunk) throws IOException {
+        try {
+            return decompressor.decompress(compressed, 0, compressed.length, chunk, 0, chunk.length);
+        } catch (MalformedInputException e) {
+            throw new IOException("Corrupt chunk in build cache entry.", e);
+        }
+    }
+
+    private IOException unsupported(LinkageError e) {
+        // The LZ4 codec accesses JVM internals, which are not accessible on all JVMs
+        return new IOException(name() + " compression is not supported on this JVM.", e);
+    }
+
+    static class CompressedChunk {
+        final byte[] bytes;
+        final int length;
+
+        CompressedChunk(byte[] bytes, int length) {
+            this.bytes = bytes;
+            this.length = length;
+        }
+    }
+
+    private static class ExposedByteArrayOutputStream extends ByteArrayOutputStream {
+        ExposedByteArrayOutputStream(int size) {
+            super(size);
+        }
+
+        byte[] getBuffer() {
+            return buf;
+        }
+    }
+}
@@ -0,0 +1,184 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.caching.internal.compress;
+
+import org.gradle.caching.internal.CacheFormat;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.zip.CRC32;
+
+/**
+ * An output stream that splits the data written to it into chunks and compresses each chunk on its own with the given compression using the given executor.
+ *
+ * <p>The compressed chunks are written to the underlying stream in the order they were written, see {@link ChunkedCompression} for the layout.
+ * At most {@code maxPendingChunks} chunks are held in memory waiting to be written, writes block until the oldest chunk has been compressed
+ * and written once this limit is reached.</p>
+ */
+public class ChunkedCompressingOutputStream extends OutputStream {
+    private final DataOutputStream output;
+    private final Executor executor;
+    private final BuildCacheCompression compression;
+    private final int chunkSize;
+    private final int maxPendingChunks;
+    private final Deque<Future<CompressedChunk>> pendingChunks = new ArrayDeque<Future<CompressedChunk>>();
+    private byte[] buffer;
+    private int count;
+    private boolean closed;
+
+    public ChunkedCompressingOutputStream(OutputStream output, Executor executor, BuildCacheCompression compression, int maxPendingChunks) throws IOException {
+        this(output, executor, compression, ChunkedCompression.DEFAULT_CHUNK_SIZE, maxPendingChunks);
+    }
+
+    public ChunkedCompressingOutputStream(OutputStream output, Executor executor, BuildCacheCompression compression, int chunkSize, int maxPendingChunks) throws IOException {
+        if (chunkSize <= 0 || chunkSize > ChunkedCompression.MAX_CHUNK_SIZE) {
+            throw new IllegalArgumentException("Chunk size must be between 1 and " + ChunkedCompression.MAX_CHUNK_SIZE + " bytes.");
+        }
+        this.output = new DataOutputStream(output);
+        this.executor = executor;
+        this.compression = compression;
+        this.chunkSize = chunkSize;
+        this.maxPendingChunks = Math.max(1, maxPendingChunks);
+        this.buffer = new byte[chunkSize];
+        this.output.writeInt(ChunkedCompression.MAGIC);
+        this.output.writeByte(CacheFormat.CACHE_ENTRY_FORMAT);
+        this.output.writeByte(compression.getId());
+        this.output.writeInt(chunkSize);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        ensureOpen();
+        buffer[count++] = (byte) b;
+        if (count == chunkSize) {
+            submitChunk();
+        }
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        ensureOpen();
+        while (len > 0) {
+            int length = Math.min(len, chunkSize - count);
+            System.arraycopy(b, off, buffer, count, length);
+            count += length;
+            off += length;
+            len -= length;
+            if (count == chunkSize) {
+                submitChunk();
+            }
+        }
+    }
+
+    /**
+     * Writes the chunks that have been compressed so far. Data that does not yet fill a chunk remains buffered until the stream is closed.
+     */
+    @Override
+    public void flush() throws IOException {
+        ensureOpen();
+        while (!pendingChunks.isEmpty() && pendingChunks.peekFirst().isDone()) {
+            writeChunk(pendingChunks.removeFirst());
+        }
+        output.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            if (count > 0) {
+                submitChunk();
+            }
+            while (!pendingChunks.isEmpty()) {
+                writeChunk(pendingChunks.removeFirst());
+            }
+            output.writeInt(0);
+            output.flush();
+        } finally {
+            cancelPendingChunks();
+            buffer = null;
+            output.close();
+        }
+    }
+
+    private void submitChunk() throws IOException {
+        final byte[] chunk = buffer;
+        final int length = count;
+        FutureTask<CompressedChunk> task = new FutureTask<CompressedChunk>(new Callable<CompressedChunk>() {
+            @Override
+            public CompressedChunk call() throws IOException {
+                return compress(compression, chunk, length);
+            }
+        });
+        pendingChunks.addLast(task);
+        executor.execute(task);
+        buffer = new byte[chunkSize];
+        count = 0;
+        while (pendingChunks.size() > maxPendingChunks) {
+            writeChunk(pendingChunks.removeFirst());
+        }
+    }
+
+    private void writeChunk(Future<CompressedChunk> pendingChunk) throws IOException {
+        CompressedChunk chunk = ChunkedCompression.await(pendingChunk);
+        output.writeInt(chunk.uncompressedLength);
+        output.writeInt(chunk.compressed.length);
+        output.writeInt(chunk.checksum);
+        output.write(chunk.compressed.bytes, 0, chunk.compressed.length);
+    }
+
+    private void cancelPendingChunks() {
+        for (Future<CompressedChunk> pendingChunk : pendingChunks) {
+            pendingChunk.cancel(false);
+        }
+        pendingChunks.clear();
+    }
+
+    private void ensureOpen() throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+    }
+
+    private static CompressedChunk compress(BuildCacheCompression compression, byte[] chunk, int length) throws IOException {
+        CRC32 checksum = new CRC32();
+        checksum.update(chunk, 0, length);
+        return new CompressedChunk(length, (int) checksum.getValue(), compression.compress(chunk, length));
+    }
+
+    private static class CompressedChunk {
+        private final int uncompressedLength;
+        private final int checksum;
+        private final BuildCacheCompression.CompressedChunk compressed;
+
+        CompressedChunk(int uncompressedLength, int checksum, BuildCacheCompression.CompressedChunk compressed) {
+            this.uncompressedLength = uncompressedLength;
+            this.checksum = checksum;
+            this.compressed = compressed;
+        }
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.caching.internal.compress;
+
+import org.gradle.caching.internal.CacheFormat;
+import org.gradle.internal.UncheckedException;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+/**
+ * Layout of a build cache entry compressed in independently compressed chunks.
+ *
+ * <p>The entry starts with a header consisting of {@link #MAGIC}, the {@link CacheFormat#CACHE_ENTRY_FORMAT}, the {@link BuildCacheCompression}
+ * used for the chunks and the maximum uncompressed size of a chunk. The header is followed by the chunks, each prefixed by its uncompressed length,
+ * its compressed length and the CRC32 checksum of its uncompressed data. The entry ends with a chunk with an uncompressed length of 0.</p>
+ *
+ * <p>As each chunk is compressed on its own, chunks can be compressed and decompressed in parallel, at the cost of a slightly
+ * worse compression ratio than compressing the whole entry as a single stream.</p>
+ */
+final class ChunkedCompression {
+    static final int MAGIC = 0x47424345;
+    static final int DEFAULT_CHUNK_SIZE = 1024 * 1024;
+    static final int MAX_CHUNK_SIZE = 64 * 1024 * 1024;
+
+    private ChunkedCompression() {
+    }
+
+    static <T> T await(Future<T> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for chunk to be processed.");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw UncheckedException.throwAsUncheckedException(cause);
+        }
+    }
+}
@@ -0,0 +1,181 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.caching.internal.compress;
+
+import org.gradle.caching.internal.CacheFormat;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.zip.CRC32;
+
+/**
+ * An input stream that reads data written by {@link ChunkedCompressingOutputStream}, decompressing chunks ahead of the reader using the given executor.
+ * The compression of the chunks is read from the header of the data.
+ *
+ * <p>The compressed chunks are read from the underlying stream by the thread reading from this stream, at most {@code maxPendingChunks} chunks
+ * are read ahead.</p>
+ */
+public class ChunkedDecompressingInputStream extends InputStream {
+    private final DataInputStream input;
+    private final Executor executor;
+    private final BuildCacheCompression compression;
+    private final int maxPendingChunks;
+    private final int maxChunkSize;
+    private final Deque<Future<byte[]>> pendingChunks = new ArrayDeque<Future<byte[]>>();
+    private byte[] chunk = new byte[0];
+    private int position;
+    private boolean endOfInput;
+    private boolean closed;
+
+    public ChunkedDecompressingInputStream(InputStream input, Executor executor, int maxPendingChunks) throws IOException {
+        this.input = new DataInputStream(input);
+        this.executor = executor;
+        this.maxPendingChunks = Math.max(1, maxPendingChunks);
+        int magic = this.input.readInt();
+        if (magic != ChunkedCompression.MAGIC) {
+            throw new IOException("Not a chunked build cache entry.");
+        }
+        int format = this.input.readUnsignedByte();
+        if (format != CacheFormat.CACHE_ENTRY_FORMAT) {
+            throw new IOException("Unsupported build cache entry format " + format + ", expected format " + CacheFormat.CACHE_ENTRY_FORMAT + ".");
+        }
+        this.compression = BuildCacheCompression.forId(this.input.readUnsignedByte());
+        this.maxChunkSize = this.input.readInt();
+        if (maxChunkSize <= 0 || maxChunkSize > ChunkedCompression.MAX_CHUNK_SIZE) {
+            throw new IOException("Invalid chunk size " + maxChunkSize + " in build cache entry.");
+        }
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!ensureAvailable()) {
+            return -1;
+        }
+        return chunk[position++] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (!ensureAvailable()) {
+            return -1;
+        }
+        int length = Math.min(len, chunk.length - position);
+        System.arraycopy(chunk, position, b, off, length);
+        position += length;
+        return length;
+    }
+
+    @Override
+    public int available() throws IOException {
+        return closed ? 0 : chunk.length - position;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        for (Future<byte[]> pendingChunk : pendingChunks) {
+            pendingChunk.cancel(false);
+        }
+        pendingChunks.clear();
+        chunk = new byte[0];
+        input.close();
+    }
+
+    private boolean ensureAvailable() throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+        while (position == chunk.length) {
+            readAhead();
+            if (pendingChunks.isEmpty()) {
+                return false;
+            }
+            chunk = ChunkedCompression.await(pendingChunks.removeFirst());
+            position = 0;
+        }
+        return true;
+    }
+
+    private void readAhead() throws IOException {
+        while (!endOfInput && pendingChunks.size() < maxPendingChunks) {
+            final int uncompressedLength = readLength();
+            if (uncompressedLength == 0) {
+                endOfInput = true;
+                return;
+            }
+            if (uncompressedLength > maxChunkSize) {
+                throw new IOException("Chunk of " + uncompressedLength + " bytes exceeds the chunk size of " + maxChunkSize + " bytes.");
+            }
+            int compressedLength = readLength();
+            if (compressedLength > BuildCacheCompression.maxCompressedLength(uncompressedLength)) {
+                throw new IOException("Corrupt chunk in build cache entry, compressed length " + compressedLength + " exceeds the maximum for a chunk of " + uncompressedLength + " bytes.");
+            }
+            final int checksum = input.readInt();
+            final byte[] compressed = new byte[compressedLength];
+            input.readFully(compressed);
+            FutureTask<byte[]> task = new FutureTask<byte[]>(new Callable<byte[]>() {
+                @Override
+                public byte[] call() throws IOException {
+                    return decompress(compression, compressed, uncompressedLength, checksum);
+                }
+            });
+            pendingChunks.addLast(task);
+            executor.execute(task);
+        }
+    }
+
+    private int readLength() throws IOException {
+        int length;
+        try {
+            length = input.readInt();
+        } catch (EOFException e) {
+            throw new EOFException("Unexpected end of build cache entry.");
+        }
+        if (length < 0) {
+            throw new IOException("Invalid chunk length " + length + " in build cache entry.");
+        }
+        return length;
+    }
+
+    private static byte[] decompress(BuildCacheCompression compression, byte[] compressed, int uncompressedLength, int expectedChecksum) throws IOException {
+        byte[] chunk = new byte[uncompressedLength];
+        int length = compression.decompress(compressed, chunk);
+        if (length != uncompressedLength) {
+            throw new IOException("Corrupt chunk in build cache entry, expected " + uncompressedLength + " bytes but found " + length + " bytes.");
+        }
+        CRC32 checksum = new CRC32();
+        checksum.update(chunk, 0, length);
+        if ((int) checksum.getValue() != expectedChecksum) {
+            throw new IOException("Corrupt chunk in build cache entry, checksum does not match.");
+        }
+        return chunk;
+    }
+}
@@ -16,6 +16,7 @@
 
 package org.gradle.caching.local;
 
+import org.gradle.api.Incubating;
 import org.gradle.caching.configuration.AbstractBuildCache;
 
 import javax.annotation.Nullable;
@@ -29,6 +30,7 @@ import javax.annotation.Nullable;
 public class DirectoryBuildCache extends AbstractBuildCache {
     private Object directory;
     private int removeUnusedEntriesAfterDays = 7;
+    private Long maximumSize;
 
     /**
      * Returns the directory to use to store the build cache.
@@ -69,4 +71,33 @@ public class DirectoryBuildCache extends AbstractBuildCache {
         }
         this.removeUnusedEntriesAfterDays = removeUnusedEntriesAfterDays;
     }
+
+    /**
+     * Returns the maximum size of the build cache in bytes, or {@code null} when the size of the build cache is not limited. Defaults to {@code null}.
+     *
+     * @since 5.3
+     */
+    @Incubating
+    @Nullable
+    public Long getMaximumSize() {
+        return maximumSize;
+    }
+
+    /**
+     * Sets the maximum size of the build cache in bytes, or {@code null} to not limit the size of the build cache.
+     *
+     * When storing an entry causes the build cache to grow larger than the maximum size, the least recently used entries are removed.
+     * Entries not used for the number of days set by {@link #setRemoveUnusedEntriesAfterDays(int)} are removed regardless of the size of the build cache.
+     *
+     * Must be greater than 0.
+     *
+     * @since 5.3
+     */
+    @Incubating
+    public void setMaximumSize(@Nullable Long maximumSize) {
+        if (maximumSize != null && maximumSize < 1) {
+            throw new IllegalArgumentException("Directory build cache needs a maximum size of at least 1 byte.");
+        }
+        this.maximumSize = maximumSize;
+    }
 }
@@ -32,13 +32,22 @@ import org.gradle.internal.resource.local.PathKeyFileStore;
 import org.gradle.util.GFileUtils;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
-import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 
+/**
+ * A build cache service that stores entries as files in a directory.
+ *
+ * <p>Entries are immutable and named after their key, so loads and stores do not need to be coordinated with each other. An entry is written to a temporary
+ * file in the cache directory and then atomically renamed to its final name, so an entry is only ever visible once it has been completely written.
+ * The cross-process lock on the cache is held while loading or storing entries, to exclude garbage collection by other processes.</p>
+ */
 public class DirectoryBuildCacheService implements LocalBuildCacheService, BuildCacheService {
 
     private final PathKeyFileStore fileStore;
@@ -46,14 +55,19 @@ public class DirectoryBuildCacheService implements LocalBuildCacheService, Build
     private final BuildCacheTempFileStore tempFileStore;
     private final FileAccessTracker fileAccessTracker;
     private final String failedFileSuffix;
-    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final SizeBoundedLeastRecentlyUsedEviction eviction;
 
     public DirectoryBuildCacheService(PathKeyFileStore fileStore, PersistentCache persistentCache, BuildCacheTempFileStore tempFileStore, FileAccessTracker fileAccessTracker, String failedFileSuffix) {
+        this(fileStore, persistentCache, tempFileStore, fileAccessTracker, failedFileSuffix, null);
+    }
+
+    public DirectoryBuildCacheService(PathKeyFileStore fileStore, PersistentCache persistentCache, BuildCacheTempFileStore tempFileStore, FileAccessTracker fileAccessTracker, String failedFileSuffix, @Nullable SizeBoundedLeastRecentlyUsedEviction eviction) {
         this.fileStore = fileStore;
         this.persistentCache = persistentCache;
         this.tempFileStore = tempFileStore;
         this.fileAccessTracker = fileAccessTracker;
         this.failedFileSuffix = failedFileSuffix;
+        this.eviction = eviction;
     }
 
     private static class LoadAction implements Action<File> {
@@ -94,17 +108,13 @@ public class DirectoryBuildCacheService implements LocalBuildCacheService, Build
         persistentCache.withFileLock(new Runnable() {
             @Override
             public void run() {
-                lock.readLock().lock();
-                try {
-                    loadInsideLock(key, reader);
-                } finally {
-                    lock.readLock().unlock();
-                }
+                loadInsideLock(key, reader);
             }
         });
     }
 
     private void loadInsideLock(BuildCacheKey key, Action<? super File> reader) {
+        // Entries are not written using the file store, so it does not find partially written entries to clean up and can be used concurrently
         LocallyAvailableResource resource = fileStore.get(key.getHashCode());
         if (resource == null) {
             return;
@@ -116,6 +126,10 @@ public class DirectoryBuildCacheService implements LocalBuildCacheService, Build
         try {
             reader.execute(file);
         } catch (Exception e) {
+            if (!file.exists()) {
+                // The entry has been removed to keep the cache below its maximum size since it was located, so treat it as missing
+                return;
+            }
             // Try to move the file out of the way in case its permanently corrupt
             // Don't delete, so that it can be potentially used for debugging
             File failedFile = new File(file.getAbsolutePath() + failedFileSuffix);
@@ -155,19 +169,49 @@ public class DirectoryBuildCacheService implements LocalBuildCacheService, Build
         persistentCache.withFileLock(new Runnable() {
             @Override
             public void run() {
-                lock.writeLock().lock();
-                try {
-                    storeInsideLock(key, file);
-                } finally {
-                    lock.writeLock().unlock();
-                }
+                storeInsideLock(key, file);
             }
         });
     }
 
-    private void storeInsideLock(BuildCacheKey key, File file) {
-        LocallyAvailableResource resource = fileStore.move(key.getHashCode(), file);
-        fileAccessTracker.markAccessed(resource.getFile());
+    private void storeInsideLock(BuildCacheKey key, final File file) {
+        final File entry = new File(persistentCache.getBaseDir(), key.getHashCode());
+        try {
+            moveAtomically(file, entry);
+        } catch (AtomicMoveNotSupportedException e) {
+            // The file is on a different file system, so move it next to the entry first
+            tempFileStore.withTempFile(key, new Action<File>() {
+                @Override
+                public void execute(@Nonnull File tempFile) {
+                    try {
+                        Files.move(file.toPath(), tempFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+                        moveAtomically(tempFile, entry);
+                    } catch (IOException ex) {
+                        throw new UncheckedIOException(ex);
+                    }
+                }
+            });
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        fileAccessTracker.markAccessed(entry);
+        if (eviction != null) {
+            eviction.entryStored(entry);
+        }
+    }
+
+    private static void moveAtomically(File source, File entry) throws IOException {
+        try {
+            Files.move(source.toPath(), entry.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            throw e;
+        } catch (IOException e) {
+            // The entry may not be replaced while it is being read on some platforms. Entries with the same key have the same content, so keep the existing entry
+            if (!entry.isFile()) {
+                throw e;
+            }
+            GFileUtils.deleteQuietly(source);
+        }
     }
 
     @Override
@@ -0,0 +1,156 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.caching.local.internal;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import org.apache.commons.io.FileUtils;
+import org.gradle.internal.resource.local.FileAccessTimeJournal;
+import org.gradle.util.GUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Keeps the total size of the entries in a directory build cache below a maximum size, by removing the least recently used entries.
+ *
+ * <p>The total size of the entries is tracked in a file in the cache directory, which is updated as entries are stored, so the cache directory
+ * is only scanned once the maximum size has been exceeded. Entries are then removed, in order of their last access time as recorded by the
+ * {@link FileAccessTimeJournal}, until the total size is below 90% of the maximum size. This leaves room for further
+ * entries to be stored before the directory needs to be scanned again.</p>
+ *
+ * <p>Entries removed by other means, for example by the cleanup of entries which have not been used for some time, are still included in the
+ * tracked size until the next scan. The tracked size is recalculated when the file that holds it is missing.</p>
+ *
+ * <p>Callers must hold the cross-process lock on the cache when calling {@link #entryStored(File)}.</p>
+ */
+public class SizeBoundedLeastRecentlyUsedEviction {
+    private static final Logger LOGGER = LoggerFactory.getLogger(SizeBoundedLeastRecentlyUsedEviction.class);
+
+    public static final String SIZE_FILE_NAME = "size.properties";
+    private static final String SIZE_PROPERTY = "entries.size";
+    private static final int TARGET_PERCENTAGE = 90;
+
+    private final File cacheDir;
+    private final File sizeFile;
+    private final FileAccessTimeJournal journal;
+    private final long maximumSize;
+
+    public SizeBoundedLeastRecentlyUsedEviction(File cacheDir, FileAccessTimeJournal journal, long maximumSize) {
+        this.cacheDir = cacheDir;
+        this.sizeFile = new File(cacheDir, SIZE_FILE_NAME);
+        this.journal = journal;
+        this.maximumSize = maximumSize;
+    }
+
+    /**
+     * Records that the given entry has been stored, removing the least recently used entries when the cache has grown larger than the maximum size.
+     */
+    public synchronized void entryStored(File entry) {
+        long size = readSize();
+        size = size < 0 ? calculateSize() : size + entry.length();
+        if (size > maximumSize) {
+            size = evict(entry);
+        }
+        writeSize(size);
+    }
+
+    private long evict(File mostRecentEntry) {
+        List<File> entries = Lists.newArrayList(listEntries());
+        final Map<File, Long> lastAccessTimes = Maps.newHashMapWithExpectedSize(entries.size());
+        long size = 0;
+        for (File entry : entries) {
+            size += entry.length();
+            lastAccessTimes.put(entry, journal.getLastAccessTime(entry));
+        }
+        if (size <= maximumSize) {
+            return size;
+        }
+
+        Collections.sort(entries, new Comparator<File>() {
+            @Override
+            public int compare(File left, File right) {
+                return lastAccessTimes.get(left).compareTo(lastAccessTimes.get(right));
+            }
+        });
+
+        long targetSize = maximumSize / 100 * TARGET_PERCENTAGE;
+        long sizeBefore = size;
+        int removed = 0;
+        for (File entry : entries) {
+            if (size <= targetSize) {
+                break;
+            }
+            if (entry.equals(mostRecentEntry)) {
+                continue;
+            }
+            long length = entry.length();
+            if (FileUtils.deleteQuietly(entry)) {
+                journal.deleteLastAccessTime(entry);
+                size -= length;
+                removed++;
+            }
+        }
+        LOGGER.info("Build cache in {} exceeded its maximum size of {} bytes, removed {} least recently used entries to reduce its size from {} to {} bytes.", cacheDir, maximumSize, removed, sizeBefore, size);
+        return size;
+    }
+
+    private long calculateSize() {
+        long size = 0;
+        for (File entry : listEntries()) {
+            size += entry.length();
+        }
+        return size;
+    }
+
+    private File[] listEntries() {
+        File[] entries = cacheDir.listFiles(new FileFilter() {
+            @Override
+            public boolean accept(File file) {
+                // Entries are named after their key, other files in the cache directory, such as partially written entries, have a suffix
+                return file.isFile() && file.getName().indexOf('.') < 0;
+            }
+        });
+        return entries == null ? new File[0] : entries;
+    }
+
+    private long readSize() {
+        if (!sizeFile.isFile()) {
+            return -1;
+        }
+        try {
+            String value = GUtil.loadProperties(sizeFile).getProperty(SIZE_PROPERTY);
+            return value == null ? -1 : Long.parseLong(value);
+        } catch (RuntimeException e) {
+            LOGGER.debug("Could not read size of build cache from {}.", sizeFile, e);
+            return -1;
+        }
+    }
+
+    private void writeSize(long size) {
+        Properties properties = new Properties();
+        properties.setProperty(SIZE_PROPERTY, String.valueOf(size));
+        GUtil.saveProperties(properties, sizeFile);
+    }
+}
@@ -0,0 +1,205 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.caching.internal.compress
+
+import spock.lang.AutoCleanup
+import spock.lang.Specification
+
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+
+class ChunkedCompressionStreamsTest extends Specification {
+    @AutoCleanup("shutdownNow")
+    ExecutorService executor = Executors.newFixedThreadPool(4)
+
+    def "reads back what was written with #compression (#length bytes in chunks of #chunkSize bytes)"() {
+        def data = randomBytes(length)
+
+        when:
+        def compressed = compress(data, compression, chunkSize, 2)
+
+        then:
+        decompress(compressed, 2) == data
+
+        where:
+        [compression, sizes] << [supportedCompressions(), [[0, 16], [1, 16], [16, 16], [17, 16], [10000, 100], [100000, 1024 * 1024]]].combinations()
+        length = sizes[0]
+        chunkSize = sizes[1]
+    }
+
+    def "reads the compression from the entry"() {
+        def data = new byte[10000]
+
+        when:
+        def compressed = compress(data, compression, 1024, 2)
+
+        then:
+        compressed[5] == id as byte
+        decompress(compressed, 2) == data
+
+        where:
+        compression << supportedCompressions()
+        id = compression.ordinal()
+    }
+
+    def "reads back data written a byte at a time"() {
+        def data = randomBytes(1000)
+        def bytes = new ByteArrayOutputStream()
+
+        when:
+        def output = new ChunkedCompressingOutputStream(bytes, executor, BuildCacheCompression.DEFLATE, 64, 1)
+        data.each { output.write(it) }
+        output.close()
+        def input = new ChunkedDecompressingInputStream(new ByteArrayInputStream(bytes.toByteArray()), executor, 1)
+        def read = new ByteArrayOutputStream()
+        int b
+        while ((b = input.read()) >= 0) {
+            read.write(b)
+        }
+
+        then:
+        read.toByteArray() == data
+    }
+
+    def "compresses chunks independently of each other with #compression"() {
+        def data = new byte[4096]
+
+        when:
+        def compressed = compress(data, compression, 1024, 2)
+
+        then:
+        compressed.length < data.length
+        chunkCount(compressed) == 4
+
+        where:
+        compression << supportedCompressions()
+    }
+
+    def "fails when the entry is not chunked"() {
+        when:
+        new ChunkedDecompressingInputStream(new ByteArrayInputStream("corrupt".bytes), executor, 1)
+
+        then:
+        def e = thrown(IOException)
+        e.message == "Not a chunked build cache entry."
+    }
+
+    def "fails when a chunk compressed with #compression is corrupt"() {
+        def compressed = compress(randomBytes(1000), compression, 100, 2)
+        // Flip a byte in the middle of the compressed data of the first chunk
+        def compressedLength = new DataInputStream(new ByteArrayInputStream(compressed, 14, 4)).readInt()
+        def index = 22 + compressedLength.intdiv(2)
+        compressed[index] = (byte) ~compressed[index]
+
+        when:
+        decompress(compressed, 2)
+
+        then:
+        thrown(IOException)
+
+        where:
+        compression << supportedCompressions()
+    }
+
+    def "fails when the compression is not supported"() {
+        def compressed = compress(new byte[100], BuildCacheCompression.DEFLATE, 100, 2)
+        compressed[5] = 42 as byte
+
+        when:
+        decompress(compressed, 2)
+
+        then:
+        def e = thrown(IOException)
+        e.message == "Unsupported compression 42 in build cache entry."
+    }
+
+    def "fails when the entry is truncated"() {
+        def compressed = compress(randomBytes(1000), BuildCacheCompression.DEFLATE, 100, 2)
+
+        when:
+        decompress(Arrays.copyOf(compressed, compressed.length - 4), 2)
+
+        then:
+        def e = thrown(EOFException)
+        e.message == "Unexpected end of build cache entry."
+    }
+
+    def "fails when the compressed length of a chunk is too large"() {
+        def compressed = compress(randomBytes(1000), BuildCacheCompression.DEFLATE, 100, 2)
+        // Replace the compressed length of the first chunk
+        def header = new ByteArrayOutputStream()
+        new DataOutputStream(header).writeInt(Integer.MAX_VALUE)
+        System.arraycopy(header.toByteArray(), 0, compressed, 14, 4)
+
+        when:
+        decompress(compressed, 2)
+
+        then:
+        def e = thrown(IOException)
+        e.message == "Corrupt chunk in build cache entry, compressed length ${Integer.MAX_VALUE} exceeds the maximum for a chunk of 100 bytes."
+    }
+
+    def "compressed length of incompressible data is within the maximum with #compression"() {
+        def data = randomBytes(length)
+
+        expect:
+        compression.compress(data, length).length <= BuildCacheCompression.maxCompressedLength(length)
+
+        where:
+        [compression, length] << [supportedCompressions(), [0, 1, 100, 64 * 1024, ChunkedCompression.DEFAULT_CHUNK_SIZE]].combinations()
+    }
+
+    private byte[] compress(byte[] data, BuildCacheCompression compression, int chunkSize, int maxPendingChunks) {
+        def bytes = new ByteArrayOutputStream()
+        def output = new ChunkedCompressingOutputStream(bytes, executor, compression, chunkSize, maxPendingChunks)
+        output.write(data)
+        output.close()
+        return bytes.toByteArray()
+    }
+
+    private byte[] decompress(byte[] compressed, int maxPendingChunks) {
+        def input = new ChunkedDecompressingInputStream(new ByteArrayInputStream(compressed), executor, maxPendingChunks)
+        try {
+            return input.bytes
+        } finally {
+            input.close()
+        }
+    }
+
+    private static int chunkCount(byte[] compressed) {
+        def input = new DataInputStream(new ByteArrayInputStream(compressed))
+        input.skipBytes(10)
+        int count = 0
+        while (input.readInt() != 0) {
+            int compressedLength = input.readInt()
+            input.skipBytes(4 + compressedLength)
+            count++
+        }
+        return count
+    }
+
+    private static List<BuildCacheCompression> supportedCompressions() {
+        // LZ4 is not supported on all JVMs
+        BuildCacheCompression.values().findAll { it.supported }
+    }
+
+    private static byte[] randomBytes(int length) {
+        def data = new byte[length]
+        new Random(1234L).nextBytes(data)
+        return data
+    }
+}
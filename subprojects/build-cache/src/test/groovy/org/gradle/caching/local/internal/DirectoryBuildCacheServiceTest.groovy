@@ -22,15 +22,15 @@ import org.gradle.caching.BuildCacheEntryWriter
 import org.gradle.caching.BuildCacheKey
 import org.gradle.internal.resource.local.DefaultPathKeyFileStore
 import org.gradle.internal.resource.local.FileAccessTracker
+import org.gradle.test.fixtures.concurrent.ConcurrentSpec
 import org.gradle.test.fixtures.file.CleanupTestDirectory
 import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
 import org.gradle.util.UsesNativeServices
 import org.junit.Rule
-import spock.lang.Specification
 
 @UsesNativeServices
 @CleanupTestDirectory
-class DirectoryBuildCacheServiceTest extends Specification {
+class DirectoryBuildCacheServiceTest extends ConcurrentSpec {
     @Rule TestNameTestDirectoryProvider temporaryFolder = new TestNameTestDirectoryProvider()
     def cacheDir = temporaryFolder.createDir("cache")
     def fileStore = new DefaultPathKeyFileStore(cacheDir)
@@ -132,4 +132,92 @@ class DirectoryBuildCacheServiceTest extends Specification {
         1 * fileAccessTracker.markAccessed(cachedFile)
         loaded
     }
+
+    def "replaces existing entry when storing"() {
+        given:
+        def firstFile = temporaryFolder.createFile("first")
+        firstFile.text = "first"
+        def secondFile = temporaryFolder.createFile("second")
+        secondFile.text = "second"
+
+        when:
+        service.storeLocally(key, firstFile)
+        service.storeLocally(key, secondFile)
+
+        then:
+        !firstFile.exists()
+        !secondFile.exists()
+        cacheDir.listFiles()*.name == [hashCode]
+
+        when:
+        def content = null
+        service.loadLocally(key, { file -> content = file.text })
+
+        then:
+        content == "second"
+    }
+
+    def "can store entry while another entry is being loaded"() {
+        given:
+        def otherKey = Mock(BuildCacheKey) {
+            getHashCode() >> "5678abcd"
+        }
+        def originalFile = temporaryFolder.createFile("foo")
+        originalFile.text = "foo"
+        service.storeLocally(key, originalFile)
+        def otherFile = temporaryFolder.createFile("bar")
+        otherFile.text = "bar"
+
+        when:
+        async {
+            start {
+                service.loadLocally(key, { file ->
+                    instant.loading
+                    thread.blockUntil.stored
+                    assert file.text == "foo"
+                })
+            }
+            start {
+                thread.blockUntil.loading
+                service.storeLocally(otherKey, otherFile)
+                instant.stored
+            }
+        }
+
+        then:
+        cacheDir.file("5678abcd").text == "bar"
+    }
+
+    def "treats entry removed while loading as missing"() {
+        given:
+        def originalFile = temporaryFolder.createFile("foo")
+        originalFile.text = "foo"
+        service.storeLocally(key, originalFile)
+
+        when:
+        service.loadLocally(key, { file ->
+            file.delete()
+            throw new FileNotFoundException(file.absolutePath)
+        })
+
+        then:
+        noExceptionThrown()
+        cacheDir.listFiles() as List == []
+    }
+
+    def "moves entry which cannot be read out of the way"() {
+        given:
+        def originalFile = temporaryFolder.createFile("foo")
+        originalFile.text = "foo"
+        service.storeLocally(key, originalFile)
+        def failure = new RuntimeException("broken")
+
+        when:
+        service.loadLocally(key, { file -> throw failure })
+
+        then:
+        def e = thrown(RuntimeException)
+        e == failure
+        cacheDir.listFiles()*.name == [hashCode + ".failed"]
+    }
 }
@@ -0,0 +1,123 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.caching.local.internal
+
+import org.gradle.internal.resource.local.FileAccessTimeJournal
+import org.gradle.test.fixtures.file.CleanupTestDirectory
+import org.gradle.test.fixtures.file.TestFile
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
+import spock.lang.Specification
+
+@CleanupTestDirectory
+class SizeBoundedLeastRecentlyUsedEvictionTest extends Specification {
+    @Rule TestNameTestDirectoryProvider temporaryFolder = new TestNameTestDirectoryProvider()
+    def cacheDir = temporaryFolder.createDir("cache")
+    def accessTimes = [:]
+    def journal = Stub(FileAccessTimeJournal) {
+        getLastAccessTime(_) >> { File file -> accessTimes[file] }
+    }
+    def eviction = new SizeBoundedLeastRecentlyUsedEviction(cacheDir, journal, 1000)
+
+    def "does not remove entries while cache is smaller than maximum size"() {
+        when:
+        (1..10).each { stored(entry("entry$it", 100, it)) }
+
+        then:
+        cacheDir.listFiles().findAll { it.name.startsWith("entry") }.size() == 10
+    }
+
+    def "removes least recently used entries when cache grows larger than maximum size"() {
+        given:
+        (1..10).each { stored(entry("entry$it", 100, it)) }
+        accessTimes[cacheDir.file("entry1")] = 20
+
+        when:
+        stored(entry("entry11", 100, 11))
+
+        then:
+        cacheDir.file("entry1").exists()
+        !cacheDir.file("entry2").exists()
+        !cacheDir.file("entry3").exists()
+        (4..11).every { cacheDir.file("entry$it").exists() }
+    }
+
+    def "does not remove entry which was just stored"() {
+        given:
+        stored(entry("entry1", 500, 2))
+
+        when:
+        stored(entry("entry2", 800, 1))
+
+        then:
+        !cacheDir.file("entry1").exists()
+        cacheDir.file("entry2").exists()
+    }
+
+    def "ignores files which are not entries"() {
+        given:
+        cacheDir.file("entry1-1234.part").bytes = new byte[2000]
+        cacheDir.file("entry2.failed").bytes = new byte[2000]
+
+        when:
+        stored(entry("entry3", 100, 1))
+
+        then:
+        cacheDir.file("entry1-1234.part").exists()
+        cacheDir.file("entry2.failed").exists()
+        cacheDir.file("entry3").exists()
+    }
+
+    def "recalculates size when size file is missing"() {
+        given:
+        (1..9).each { stored(entry("entry$it", 100, it)) }
+        cacheDir.file(SizeBoundedLeastRecentlyUsedEviction.SIZE_FILE_NAME).delete()
+        stored(entry("entry10", 100, 10))
+
+        when:
+        stored(entry("entry11", 100, 11))
+
+        then:
+        !cacheDir.file("entry1").exists()
+        !cacheDir.file("entry2").exists()
+        (3..11).every { cacheDir.file("entry$it").exists() }
+    }
+
+    def "corrects tracked size when entries have been removed by other means"() {
+        given:
+        (1..10).each { stored(entry("entry$it", 100, it)) }
+        (1..5).each { cacheDir.file("entry$it").delete() }
+
+        when:
+        stored(entry("entry11", 100, 11))
+        stored(entry("entry12", 100, 12))
+
+        then:
+        (6..12).every { cacheDir.file("entry$it").exists() }
+    }
+
+    private TestFile entry(String name, int size, long accessTime) {
+        def file = cacheDir.file(name)
+        file.bytes = new byte[size]
+        accessTimes[file] = accessTime
+        return file
+    }
+
+    private void stored(File entry) {
+        eviction.entryStored(entry)
+    }
+}
@@ -131,7 +131,7 @@ class CacheTaskArchiveErrorIntegrationTest extends AbstractIntegrationSpec {
         executer.withStackTraceChecksDisabled()
         succeeds("clean", "customTask")
         output =~ /Build cache entry .+ from remote build cache is invalid/
-        output =~ /java.util.zip.ZipException: Not in GZIP format/
+        output =~ /java.io.IOException: Not a chunked build cache entry./
 
         and:
         localCache.listCacheFiles().size() == 1
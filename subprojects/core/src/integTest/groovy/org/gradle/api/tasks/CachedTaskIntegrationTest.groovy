@@ -16,6 +16,8 @@
 
 package org.gradle.api.tasks
 
+import com.google.common.util.concurrent.MoreExecutors
+import org.gradle.caching.internal.compress.ChunkedDecompressingInputStream
 import org.gradle.integtests.fixtures.AbstractIntegrationSpec
 import org.gradle.integtests.fixtures.DirectoryBuildCacheFixture
 import org.gradle.test.fixtures.archive.TarTestFixture
@@ -38,7 +40,11 @@ class CachedTaskIntegrationTest extends AbstractIntegrationSpec implements Direc
         then:
         def cacheFiles = listCacheFiles()
         cacheFiles.size() == 1
-        def cacheEntry = new TarTestFixture(cacheFiles[0])
+        def tarFile = file("cache-entry.tar")
+        cacheFiles[0].withInputStream { input ->
+            tarFile << new ChunkedDecompressingInputStream(input, MoreExecutors.directExecutor(), 1)
+        }
+        def cacheEntry = new TarTestFixture(tarFile)
         cacheEntry.assertContainsFile("tree-outputDir/output")
         def metadata = cacheEntry.content("METADATA")
         metadata.contains("type=")
@@ -0,0 +1,221 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.execution.plan;
+
+import org.gradle.api.Action;
+import org.gradle.api.Project;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs a synthetic plan through the node selection of {@link DefaultExecutionPlan}, with a fixed number of nodes executing at the same time.
+ * Compares selecting from the {@link ExecutionQueue} with scanning all the remaining nodes of the plan for one whose dependencies are complete.
+ */
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class ExecutionQueueBenchmark {
+    private static final int CHAIN_LENGTH = 20;
+
+    @Param({"100000"})
+    int nodes;
+
+    @Param({"4", "16", "64"})
+    int workers;
+
+    private List<Node> plan;
+    private Random random;
+
+    @Setup(Level.Invocation)
+    public void createPlan() {
+        // The plan is made of chains of nodes, similar to the tasks of a project, where the first node of each chain also depends on
+        // the last node of some earlier chain. The plan is ordered as it would be by DefaultExecutionPlan, with the dependencies first.
+        random = new Random(1234);
+        plan = new ArrayList<Node>(nodes);
+        for (int i = 0; i < nodes; i++) {
+            TestNode node = new TestNode(i);
+            node.require();
+            int chainStart = i - i % CHAIN_LENGTH;
+            if (i > chainStart) {
+                node.addDependencySuccessor(plan.get(i - 1));
+            } else if (chainStart > 0) {
+                int earlierChains = chainStart / CHAIN_LENGTH;
+                node.addDependencySuccessor(plan.get((random.nextInt(earlierChains) + 1) * CHAIN_LENGTH - 1));
+            }
+            plan.add(node);
+        }
+    }
+
+    @Benchmark
+    public int executionQueue() {
+        final ExecutionQueue queue = new ExecutionQueue(NodeExecutionTimeEstimator.NONE);
+        queue.setNodes(plan);
+        return execute(new Selector() {
+            @Nullable
+            @Override
+            public Node selectNext() {
+                Iterator<Node> iterator = queue.readyNodes();
+                if (!iterator.hasNext()) {
+                    return null;
+                }
+                Node node = iterator.next();
+                iterator.remove();
+                return node;
+            }
+
+            @Override
+            public void nodeComplete(Node node) {
+                queue.nodeComplete(node);
+            }
+        });
+    }
+
+    @Benchmark
+    public int scanRemainingNodes() {
+        final List<Node> queue = new LinkedList<Node>(plan);
+        final Set<Node> dependenciesComplete = new HashSet<Node>();
+        return execute(new Selector() {
+            @Nullable
+            @Override
+            public Node selectNext() {
+                Iterator<Node> iterator = queue.iterator();
+                while (iterator.hasNext()) {
+                    Node node = iterator.next();
+                    if (dependenciesComplete.contains(node) || node.allDependenciesComplete()) {
+                        dependenciesComplete.add(node);
+                        iterator.remove();
+                        return node;
+                    }
+                }
+                return null;
+            }
+
+            @Override
+            public void nodeComplete(Node node) {
+            }
+        });
+    }
+
+    private int execute(Selector selector) {
+        List<Node> executing = new ArrayList<Node>(workers);
+        int executed = 0;
+        while (true) {
+            while (executing.size() < workers) {
+                Node node = selector.selectNext();
+                if (node == null) {
+                    break;
+                }
+                node.startExecution();
+                executing.add(node);
+            }
+            if (executing.isEmpty()) {
+                return executed;
+            }
+            // Nodes take different amounts of time to execute, so complete a random one
+            int completed = random.nextInt(executing.size());
+            Node node = executing.get(completed);
+            executing.set(completed, executing.get(executing.size() - 1));
+            executing.remove(executing.size() - 1);
+            node.finishExecution();
+            selector.nodeComplete(node);
+            executed++;
+        }
+    }
+
+    private interface Selector {
+        @Nullable
+        Node selectNext();
+
+        void nodeComplete(Node node);
+    }
+
+    private static class TestNode extends Node {
+        private final int index;
+
+        TestNode(int index) {
+            this.index = index;
+        }
+
+        @Nullable
+        @Override
+        public Throwable getNodeFailure() {
+            return null;
+        }
+
+        @Override
+        public void rethrowNodeFailure() {
+        }
+
+        @Override
+        public void prepareForExecution() {
+        }
+
+        @Override
+        public void resolveDependencies(TaskDependencyResolver dependencyResolver, Action<Node> processHardSuccessor) {
+        }
+
+        @Override
+        public Set<Node> getFinalizers() {
+            return Collections.emptySet();
+        }
+
+        @Override
+        public boolean isPublicNode() {
+            return false;
+        }
+
+        @Nullable
+        @Override
+        public Project getProject() {
+            return null;
+        }
+
+        @Override
+        public int compareTo(Node other) {
+            return Integer.compare(index, ((TestNode) other).index);
+        }
+
+        @Override
+        public String toString() {
+            return "node " + index;
+        }
+    }
+}
@@ -0,0 +1,248 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.execution.plan;
+
+import org.gradle.api.Action;
+import org.gradle.api.Project;
+import org.gradle.api.Task;
+import org.gradle.initialization.DefaultBuildCancellationToken;
+import org.gradle.initialization.DefaultParallelismConfigurationManager;
+import org.gradle.internal.concurrent.DefaultExecutorFactory;
+import org.gradle.internal.concurrent.DefaultParallelismConfiguration;
+import org.gradle.internal.event.DefaultListenerManager;
+import org.gradle.internal.resources.DefaultResourceLockCoordinationService;
+import org.gradle.internal.resources.ResourceLockState;
+import org.gradle.internal.work.DefaultWorkerLeaseService;
+import org.gradle.internal.work.WorkerLeaseRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Executes a plan of many tiny nodes with {@link DefaultPlanExecutor}, using the real worker lease and resource lock coordination services.
+ * As the nodes do almost no work, the time per plan is dominated by the workers waiting for nodes to become ready and being woken up again.
+ */
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class PlanExecutorBenchmark {
+    @Param({"4", "16", "48"})
+    int workers;
+
+    @Param({"5000"})
+    int nodes;
+
+    private DefaultExecutorFactory executorFactory;
+    private DefaultWorkerLeaseService workerLeaseService;
+    private DefaultPlanExecutor planExecutor;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        DefaultResourceLockCoordinationService coordinationService = new DefaultResourceLockCoordinationService();
+        DefaultParallelismConfigurationManager parallelismConfigurationManager = new DefaultParallelismConfigurationManager(new DefaultListenerManager());
+        parallelismConfigurationManager.setParallelismConfiguration(new DefaultParallelismConfiguration(true, workers));
+        executorFactory = new DefaultExecutorFactory();
+        workerLeaseService = new DefaultWorkerLeaseService(coordinationService, parallelismConfigurationManager);
+        planExecutor = new DefaultPlanExecutor(parallelismConfigurationManager.getParallelismConfiguration(), executorFactory, workerLeaseService, new DefaultBuildCancellationToken(), coordinationService);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        workerLeaseService.stop();
+        executorFactory.stop();
+    }
+
+    @Benchmark
+    public void executePlan(final Blackhole blackhole) {
+        final List<Throwable> failures = new ArrayList<Throwable>();
+        workerLeaseService.withLocks(Collections.singleton(workerLeaseService.getWorkerLease()), new Runnable() {
+            @Override
+            public void run() {
+                planExecutor.process(new FanOutPlan(nodes), failures, new Action<Node>() {
+                    @Override
+                    public void execute(Node node) {
+                        blackhole.consume(node);
+                    }
+                });
+            }
+        });
+        if (!failures.isEmpty()) {
+            throw new IllegalStateException("Plan failed.", failures.get(0));
+        }
+    }
+
+    /**
+     * Node {@code i} depends on node {@code (i - 1) / 2}, so the plan starts with a single ready node and fans out.
+     */
+    private static class FanOutPlan implements ExecutionPlan {
+        private final List<PlanNode> nodes;
+        private int nextNode;
+        private int completedCount;
+
+        FanOutPlan(int nodeCount) {
+            nodes = new ArrayList<PlanNode>(nodeCount);
+            for (int i = 0; i < nodeCount; i++) {
+                PlanNode node = new PlanNode(i);
+                node.require();
+                nodes.add(node);
+            }
+        }
+
+        @Nullable
+        @Override
+        public Node selectNext(WorkerLeaseRegistry.WorkerLease workerLease, ResourceLockState resourceLockState) {
+            if (nextNode == nodes.size() || (nextNode > 0 && !nodes.get((nextNode - 1) / 2).isComplete())) {
+                return null;
+            }
+            if (!workerLease.tryLock()) {
+                return null;
+            }
+            PlanNode node = nodes.get(nextNode++);
+            node.startExecution();
+            return node;
+        }
+
+        @Override
+        public void nodeComplete(Node node) {
+            node.finishExecution();
+            completedCount++;
+        }
+
+        @Override
+        public void abortAllAndFail(Throwable t) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void cancelExecution() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public TaskNode getNode(Task task) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Set<Task> getTasks() {
+            return Collections.emptySet();
+        }
+
+        @Override
+        public Set<Task> getFilteredTasks() {
+            return Collections.emptySet();
+        }
+
+        @Override
+        public void collectFailures(Collection<? super Throwable> failures) {
+        }
+
+        @Override
+        public boolean allNodesComplete() {
+            return completedCount == nodes.size();
+        }
+
+        @Override
+        public boolean hasNodesRemaining() {
+            return completedCount < nodes.size();
+        }
+
+        @Override
+        public int size() {
+            return nodes.size();
+        }
+
+        @Override
+        public String getDisplayName() {
+            return "fan out plan";
+        }
+    }
+
+    private static class PlanNode extends Node {
+        private final int index;
+
+        PlanNode(int index) {
+            this.index = index;
+        }
+
+        @Nullable
+        @Override
+        public Throwable getNodeFailure() {
+            return null;
+        }
+
+        @Override
+        public void rethrowNodeFailure() {
+        }
+
+        @Override
+        public void prepareForExecution() {
+        }
+
+        @Override
+        public void resolveDependencies(TaskDependencyResolver dependencyResolver, Action<Node> processHardSuccessor) {
+        }
+
+        @Override
+        public Set<Node> getFinalizers() {
+            return Collections.emptySet();
+        }
+
+        @Override
+        public boolean isPublicNode() {
+            return false;
+        }
+
+        @Nullable
+        @Override
+        public Project getProject() {
+            return null;
+        }
+
+        @Override
+        public int compareTo(Node other) {
+            return Integer.compare(index, ((PlanNode) other).index);
+        }
+
+        @Override
+        public String toString() {
+            return "node " + index;
+        }
+    }
+}
@@ -17,6 +17,7 @@
 package org.gradle.api.internal;
 
 import org.gradle.StartParameter;
+import org.gradle.caching.internal.compress.BuildCacheCompression;
 import org.gradle.internal.deprecation.Deprecatable;
 import org.gradle.internal.deprecation.LoggingDeprecatable;
 
@@ -25,6 +26,7 @@ import java.util.Set;
 
 public class StartParameterInternal extends StartParameter implements Deprecatable {
     private final Deprecatable deprecationHandler = new LoggingDeprecatable();
+    private BuildCacheCompression buildCacheCompression = BuildCacheCompression.DEFLATE;
 
     @Override
     public StartParameter newInstance() {
@@ -35,6 +37,13 @@ public class StartParameterInternal extends StartParameter implements Deprecatab
         return prepareNewBuild(new StartParameterInternal());
     }
 
+    @Override
+    protected StartParameter prepareNewBuild(StartParameter p) {
+        super.prepareNewBuild(p);
+        ((StartParameterInternal) p).buildCacheCompression = buildCacheCompression;
+        return p;
+    }
+
     @Override
     public void addDeprecation(String deprecation) {
         deprecationHandler.addDeprecation(deprecation);
@@ -57,4 +66,15 @@ public class StartParameterInternal extends StartParameter implements Deprecatab
     public void setGradleHomeDir(File gradleHomeDir) {
         this.gradleHomeDir = gradleHomeDir;
     }
+
+    /**
+     * The compression used for the build cache entries stored by this build.
+     */
+    public BuildCacheCompression getBuildCacheCompression() {
+        return buildCacheCompression;
+    }
+
+    public void setBuildCacheCompression(BuildCacheCompression buildCacheCompression) {
+        this.buildCacheCompression = buildCacheCompression;
+    }
 }
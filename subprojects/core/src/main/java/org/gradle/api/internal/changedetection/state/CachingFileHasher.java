@@ -44,9 +44,10 @@ public class CachingFileHasher implements FileHasher {
         this.delegate = delegate;
         this.fileSystem = fileSystem;
         this.cache = store.createCache(
-            PersistentIndexedCacheParameters.of(cacheName, new InterningStringSerializer(stringInterner), new FileInfoSerializer()),
+            PersistentIndexedCacheParameters.of(cacheName, new InterningStringSerializer(stringInterner), new FileInfoSerializer()).withMemoryMapping(),
             400000,
-            true);
+            true,
+            CompactFileInfoStore.FACTORY);
         this.stringInterner = stringInterner;
         this.timestampInspector = timestampInspector;
     }
@@ -115,6 +116,14 @@ public class CachingFileHasher implements FileHasher {
         public HashCode getHash() {
             return hash;
         }
+
+        public long getTimestamp() {
+            return timestamp;
+        }
+
+        public long getLength() {
+            return length;
+        }
     }
 
     private static class FileInfoSerializer extends AbstractSerializer<FileInfo> {
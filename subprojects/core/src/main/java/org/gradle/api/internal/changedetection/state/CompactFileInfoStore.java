@@ -0,0 +1,263 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.api.internal.changedetection.state;
+
+import org.gradle.api.internal.changedetection.state.CachingFileHasher.FileInfo;
+import org.gradle.cache.internal.InMemoryCacheStore;
+import org.gradle.internal.hash.HashCode;
+import org.gradle.internal.hash.Hashing;
+
+import javax.annotation.Nullable;
+import java.nio.ByteBuffer;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Keeps the {@link FileInfo} for files in an open addressing hash table, which is backed by a single array of longs instead of an object per entry.
+ *
+ * Each entry is identified by a 128-bit hash of the absolute path of the file, so the path itself is not retained.
+ * Only 16 byte content hashes can be kept in the table, entries with other hashes are not kept in memory.
+ * When the maximum number of entries is reached, one entry is evicted for each new entry, using the clock (second chance) algorithm:
+ * each slot has a reference flag that is set when the entry is read, and the clock hand evicts the first entry whose flag is not set,
+ * clearing the flags it passes.
+ */
+class CompactFileInfoStore implements InMemoryCacheStore<String, FileInfo> {
+    static final InMemoryCacheStore.Factory<String, FileInfo> FACTORY = new InMemoryCacheStore.Factory<String, FileInfo>() {
+        @Override
+        public InMemoryCacheStore<String, FileInfo> create(int maxEntries) {
+            return new CompactFileInfoStore(maxEntries);
+        }
+    };
+
+    private static final int HASH_LENGTH = 16;
+    // Each slot consists of: path hash (2 longs), length, timestamp, content hash (2 longs)
+    private static final int SLOT_SIZE = 6;
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final int maxEntries;
+    private final Lock readLock;
+    private final Lock writeLock;
+    private long[] slots;
+    // One flag per slot. Set by readers while holding the read lock, which is safe as each slot has its own byte and readers only ever set it.
+    private byte[] referenced;
+    private int mask;
+    private int size;
+    private int hand;
+
+    CompactFileInfoStore(int maxEntries) {
+        this.maxEntries = maxEntries;
+        ReadWriteLock lock = new ReentrantReadWriteLock();
+        this.readLock = lock.readLock();
+        this.writeLock = lock.writeLock();
+        allocate(INITIAL_CAPACITY);
+    }
+
+    @Nullable
+    @Override
+    public FileInfo get(String absolutePath) {
+        long[] key = keyOf(absolutePath);
+        readLock.lock();
+        try {
+            int slot = find(key[0], key[1]);
+            if (slot < 0) {
+                return null;
+            }
+            if (referenced[slot] == 0) {
+                referenced[slot] = 1;
+            }
+            int offset = slot * SLOT_SIZE;
+            return new FileInfo(HashCode.fromLongs(slots[offset + 4], slots[offset + 5]), slots[offset + 2], slots[offset + 3]);
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    @Override
+    public void put(String absolutePath, FileInfo value) {
+        if (value.getHash().length() != HASH_LENGTH) {
+            remove(absolutePath);
+            return;
+        }
+        long[] key = keyOf(absolutePath);
+        ByteBuffer hashBuffer = ByteBuffer.wrap(value.getHash().toByteArray());
+        writeLock.lock();
+        try {
+            int slot = find(key[0], key[1]);
+            if (slot < 0) {
+                if (size >= maxEntries) {
+                    evictOne();
+                } else if ((size + 1) * 4L > (mask + 1) * 3L) {
+                    resize((mask + 1) * 2);
+                }
+                slot = emptySlotFor(key[0]);
+                size++;
+            }
+            int offset = slot * SLOT_SIZE;
+            slots[offset] = key[0];
+            slots[offset + 1] = key[1];
+            slots[offset + 2] = value.getLength();
+            slots[offset + 3] = value.getTimestamp();
+            slots[offset + 4] = hashBuffer.getLong();
+            slots[offset + 5] = hashBuffer.getLong();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public void remove(String absolutePath) {
+        long[] key = keyOf(absolutePath);
+        writeLock.lock();
+        try {
+            int slot = find(key[0], key[1]);
+            if (slot >= 0) {
+                delete(slot);
+                size--;
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public void clear() {
+        writeLock.lock();
+        try {
+            allocate(INITIAL_CAPACITY);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    int size() {
+        readLock.lock();
+        try {
+            return size;
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    private static long[] keyOf(String absolutePath) {
+        ByteBuffer hash = ByteBuffer.wrap(Hashing.murmur3().hashString(absolutePath).toByteArray());
+        long k1 = hash.getLong();
+        long k2 = hash.getLong();
+        if (k1 == 0 && k2 == 0) {
+            // Reserved for empty slots
+            k2 = 1;
+        }
+        return new long[]{k1, k2};
+    }
+
+    private void allocate(int capacity) {
+        slots = new long[capacity * SLOT_SIZE];
+        referenced = new byte[capacity];
+        mask = capacity - 1;
+        size = 0;
+        hand = 0;
+    }
+
+    private void resize(int capacity) {
+        long[] oldSlots = slots;
+        byte[] oldReferenced = referenced;
+        slots = new long[capacity * SLOT_SIZE];
+        referenced = new byte[capacity];
+        mask = capacity - 1;
+        hand = 0;
+        for (int oldSlot = 0; oldSlot < oldReferenced.length; oldSlot++) {
+            int offset = oldSlot * SLOT_SIZE;
+            if (oldSlots[offset] != 0 || oldSlots[offset + 1] != 0) {
+                int slot = emptySlotFor(oldSlots[offset]);
+                System.arraycopy(oldSlots, offset, slots, slot * SLOT_SIZE, SLOT_SIZE);
+                referenced[slot] = oldReferenced[oldSlot];
+            }
+        }
+    }
+
+    /**
+     * Evicts the first entry after the clock hand that has not been read since the hand last passed it.
+     * Visits each slot at most twice, as the flags of the entries passed over are cleared.
+     */
+    private void evictOne() {
+        while (true) {
+            int slot = hand;
+            hand = (hand + 1) & mask;
+            if (isEmpty(slot)) {
+                continue;
+            }
+            if (referenced[slot] != 0) {
+                referenced[slot] = 0;
+                continue;
+            }
+            delete(slot);
+            size--;
+            return;
+        }
+    }
+
+    private int find(long k1, long k2) {
+        for (int slot = home(k1); ; slot = (slot + 1) & mask) {
+            int offset = slot * SLOT_SIZE;
+            long s1 = slots[offset];
+            long s2 = slots[offset + 1];
+            if (s1 == k1 && s2 == k2) {
+                return slot;
+            }
+            if (s1 == 0 && s2 == 0) {
+                return -1;
+            }
+        }
+    }
+
+    private int emptySlotFor(long k1) {
+        int slot = home(k1);
+        while (!isEmpty(slot)) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    /**
+     * Removes the entry in the given slot, moving back the following entries in the same probe sequence so that they can still be found.
+     */
+    private void delete(int slot) {
+        int hole = slot;
+        for (int next = (hole + 1) & mask; !isEmpty(next); next = (next + 1) & mask) {
+            int home = home(slots[next * SLOT_SIZE]);
+            boolean homeBetweenHoleAndNext = hole <= next ? (home > hole && home <= next) : (home > hole || home <= next);
+            if (!homeBetweenHoleAndNext) {
+                System.arraycopy(slots, next * SLOT_SIZE, slots, hole * SLOT_SIZE, SLOT_SIZE);
+                referenced[hole] = referenced[next];
+                hole = next;
+            }
+        }
+        int offset = hole * SLOT_SIZE;
+        for (int i = 0; i < SLOT_SIZE; i++) {
+            slots[offset + i] = 0;
+        }
+        referenced[hole] = 0;
+    }
+
+    private boolean isEmpty(int slot) {
+        int offset = slot * SLOT_SIZE;
+        return slots[offset] == 0 && slots[offset + 1] == 0;
+    }
+
+    private int home(long k1) {
+        return (int) (k1 ^ (k1 >>> 32)) & mask;
+    }
+}
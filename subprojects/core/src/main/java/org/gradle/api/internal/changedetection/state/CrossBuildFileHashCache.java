@@ -23,6 +23,7 @@ import org.gradle.cache.PersistentCache;
 import org.gradle.cache.PersistentIndexedCache;
 import org.gradle.cache.PersistentIndexedCacheParameters;
 import org.gradle.cache.internal.InMemoryCacheDecoratorFactory;
+import org.gradle.cache.internal.InMemoryCacheStore;
 
 import javax.annotation.Nullable;
 import java.io.Closeable;
@@ -51,6 +52,15 @@ public class CrossBuildFileHashCache implements Closeable {
         );
     }
 
+    /**
+     * Creates a cache whose entries are kept in memory in stores created by the given factory, instead of in the default heap based store.
+     */
+    public <K, V> PersistentIndexedCache<K, V> createCache(PersistentIndexedCacheParameters<K, V> parameters, int maxEntriesToKeepInMemory, boolean cacheInMemoryForShortLivedProcesses, InMemoryCacheStore.Factory<K, V> storeFactory) {
+        return cache.createCache(parameters
+                .withCacheDecorator(inMemoryCacheDecoratorFactory.decorator(maxEntriesToKeepInMemory, cacheInMemoryForShortLivedProcesses, storeFactory))
+        );
+    }
+
     @Override
     public void close() {
         cache.close();
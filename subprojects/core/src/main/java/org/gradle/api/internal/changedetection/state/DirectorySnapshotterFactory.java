@@ -0,0 +1,91 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.changedetection.state;
+
+import org.gradle.api.internal.cache.StringInterner;
+import org.gradle.concurrent.ParallelismConfiguration;
+import org.gradle.internal.Factory;
+import org.gradle.internal.concurrent.ParallelismConfigurationListener;
+import org.gradle.internal.concurrent.ParallelismConfigurationManager;
+import org.gradle.internal.concurrent.Stoppable;
+import org.gradle.internal.hash.FileHasher;
+import org.gradle.internal.nativeintegration.filesystem.FileSystem;
+import org.gradle.internal.snapshot.impl.DirectorySnapshotter;
+import org.gradle.internal.snapshot.impl.ParallelDirectorySnapshotter;
+
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Creates the {@link DirectorySnapshotter}s used to walk and hash directory trees.
+ *
+ * When parallel snapshotting is enabled, the directory snapshotters share a fork/join pool sized to the maximum number of workers.
+ * The pool is replaced when the maximum number of workers changes, so each build walks with its own configured parallelism.
+ */
+public class DirectorySnapshotterFactory implements Stoppable, ParallelismConfigurationListener {
+    public static final String PARALLEL_SNAPSHOTTING_PROPERTY = "org.gradle.internal.snapshot.parallel";
+
+    private final ParallelismConfigurationManager parallelismConfigurationManager;
+    private final boolean parallel;
+    private ForkJoinPool pool;
+
+    public DirectorySnapshotterFactory(ParallelismConfigurationManager parallelismConfigurationManager) {
+        this(parallelismConfigurationManager, Boolean.getBoolean(PARALLEL_SNAPSHOTTING_PROPERTY));
+    }
+
+    public DirectorySnapshotterFactory(ParallelismConfigurationManager parallelismConfigurationManager, boolean parallel) {
+        this.parallelismConfigurationManager = parallelismConfigurationManager;
+        this.parallel = parallel;
+        parallelismConfigurationManager.addListener(this);
+    }
+
+    public DirectorySnapshotter create(FileHasher hasher, FileSystem fileSystem, StringInterner stringInterner, String... defaultExcludes) {
+        if (!parallel) {
+            return new DirectorySnapshotter(hasher, fileSystem, stringInterner, defaultExcludes);
+        }
+        return new ParallelDirectorySnapshotter(hasher, fileSystem, stringInterner, new Factory<ForkJoinPool>() {
+            @Override
+            public ForkJoinPool create() {
+                return getPool();
+            }
+        }, defaultExcludes);
+    }
+
+    @Override
+    public synchronized void onParallelismConfigurationChange(ParallelismConfiguration parallelismConfiguration) {
+        if (pool != null && pool.getParallelism() != parallelismConfiguration.getMaxWorkerCount()) {
+            // Walks already running on the old pool complete before its threads exit
+            pool.shutdown();
+            pool = null;
+        }
+    }
+
+    private synchronized ForkJoinPool getPool() {
+        if (pool == null) {
+            pool = new ForkJoinPool(parallelismConfigurationManager.getParallelismConfiguration().getMaxWorkerCount());
+        }
+        return pool;
+    }
+
+    @Override
+    public synchronized void stop() {
+        parallelismConfigurationManager.removeListener(this);
+        if (pool != null) {
+            pool.shutdown();
+            pool = null;
+        }
+    }
+}
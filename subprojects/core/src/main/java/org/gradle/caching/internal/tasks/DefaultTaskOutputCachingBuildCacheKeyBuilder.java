@@ -21,6 +21,7 @@ import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSortedMap;
 import com.google.common.collect.ImmutableSortedSet;
 import org.gradle.api.NonNullApi;
+import org.gradle.caching.internal.CacheFormat;
 import org.gradle.internal.fingerprint.CurrentFileCollectionFingerprint;
 import org.gradle.internal.hash.HashCode;
 import org.gradle.internal.hash.Hasher;
@@ -45,6 +46,12 @@ public class DefaultTaskOutputCachingBuildCacheKeyBuilder implements TaskOutputC
 
     public DefaultTaskOutputCachingBuildCacheKeyBuilder(Path taskPath) {
         this.taskPath = taskPath;
+        // Entries stored in a different format must not be loaded
+        hasher.putInt(CacheFormat.CACHE_ENTRY_FORMAT);
+        // Keys created with different content hash functions must never match
+        if (Hashing.contentHashFunction() != Hashing.defaultFunction()) {
+            hasher.putString(Hashing.contentHashFunctionName());
+        }
     }
 
     @Override
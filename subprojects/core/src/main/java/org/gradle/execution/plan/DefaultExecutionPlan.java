@@ -89,7 +89,7 @@ import java.util.function.Consumer;
 public class DefaultExecutionPlan implements ExecutionPlan {
     private final Set<TaskNode> entryTasks = new LinkedHashSet<TaskNode>();
     private final NodeMapping nodeMapping = new NodeMapping();
-    private final List<Node> executionQueue = Lists.newLinkedList();
+    private final ExecutionQueue executionQueue;
     private final Map<Project, ResourceLock> projectLocks = Maps.newHashMap();
     private final FailureCollector failureCollector = new FailureCollector();
     private final TaskNodeFactory taskNodeFactory;
@@ -103,17 +103,17 @@ public class DefaultExecutionPlan implements ExecutionPlan {
     private final Map<Node, MutationInfo> mutations = Maps.newIdentityHashMap();
     private final Map<File, String> canonicalizedFileCache = Maps.newIdentityHashMap();
     private final Map<Pair<Node, Node>, Boolean> reachableCache = Maps.newHashMap();
-    private final Set<Node> dependenciesCompleteCache = Sets.newHashSet();
     private final WorkerLeaseService workerLeaseService;
     private final GradleInternal gradle;
 
     private boolean buildCancelled;
 
-    public DefaultExecutionPlan(WorkerLeaseService workerLeaseService, GradleInternal gradle, TaskNodeFactory taskNodeFactory, TaskDependencyResolver dependencyResolver) {
+    public DefaultExecutionPlan(WorkerLeaseService workerLeaseService, GradleInternal gradle, TaskNodeFactory taskNodeFactory, TaskDependencyResolver dependencyResolver, NodeExecutionTimeEstimator executionTimeEstimator) {
         this.workerLeaseService = workerLeaseService;
         this.gradle = gradle;
         this.taskNodeFactory = taskNodeFactory;
         this.dependencyResolver = dependencyResolver;
+        this.executionQueue = new ExecutionQueue(executionTimeEstimator);
     }
 
     @Override
@@ -333,8 +333,7 @@ public class DefaultExecutionPlan implements ExecutionPlan {
                 }
             }
         }
-        executionQueue.clear();
-        Iterables.addAll(executionQueue, nodeMapping);
+        executionQueue.setNodes(nodeMapping);
     }
 
     private MutationInfo getOrCreateMutationsOf(Node node) {
@@ -505,7 +504,6 @@ public class DefaultExecutionPlan implements ExecutionPlan {
         mutations.clear();
         canonicalizedFileCache.clear();
         reachableCache.clear();
-        dependenciesCompleteCache.clear();
         runningNodes.clear();
     }
 
@@ -540,30 +538,54 @@ public class DefaultExecutionPlan implements ExecutionPlan {
             return null;
         }
 
-        Iterator<Node> iterator = executionQueue.iterator();
+        // Only the nodes whose dependencies are all complete are visited here, so selection does not get slower as the plan grows
+        Set<Project> lockedProjects = null;
+        Iterator<Node> iterator = executionQueue.readyNodes();
         while (iterator.hasNext()) {
             Node node = iterator.next();
-            if (node.isReady() && allDependenciesComplete(node)) {
-                MutationInfo mutations = getResolvedMutationInfo(node);
-
-                // TODO: convert output file checks to a resource lock
-                if (!tryLockProjectFor(node)
-                    || !workerLease.tryLock()
-                    || !canRunWithCurrentlyExecutedNodes(node, mutations)) {
-                    resourceLockState.releaseLocks();
-                    continue;
+            if (!node.isReady()) {
+                if (node.isComplete() && !node.isMustNotRun()) {
+                    // Skipped or aborted, will never run
+                    iterator.remove();
                 }
+                continue;
+            }
+            Project project = node.getProject();
+            if (lockedProjects != null && project != null && lockedProjects.contains(project)) {
+                continue;
+            }
 
-                if (node.allDependenciesSuccessful()) {
-                    recordNodeStarted(node);
-                    node.startExecution();
-                } else {
-                    node.skipExecution();
+            MutationInfo mutations = getResolvedMutationInfo(node);
+
+            if (!tryLockProjectFor(node)) {
+                resourceLockState.releaseLocks();
+                if (lockedProjects == null) {
+                    lockedProjects = Sets.newHashSet();
                 }
-                iterator.remove();
+                lockedProjects.add(project);
+                continue;
+            }
+            if (!workerLease.tryLock()) {
+                // None of the other nodes can run either
+                resourceLockState.releaseLocks();
+                return null;
+            }
+            // TODO: convert output file checks to a resource lock
+            if (!canRunWithCurrentlyExecutedNodes(node, mutations)) {
+                resourceLockState.releaseLocks();
+                continue;
+            }
 
-                return node;
+            if (node.allDependenciesSuccessful()) {
+                recordNodeStarted(node);
+                node.startExecution();
+            } else {
+                node.skipExecution();
+                executionQueue.nodeComplete(node);
             }
+            iterator.remove();
+
+            return node;
         }
         return null;
     }
@@ -680,19 +702,6 @@ public class DefaultExecutionPlan implements ExecutionPlan {
         }
     }
 
-    private boolean allDependenciesComplete(Node node) {
-        if (dependenciesCompleteCache.contains(node)) {
-            return true;
-        }
-
-        boolean dependenciesComplete = node.allDependenciesComplete();
-        if (dependenciesComplete) {
-            dependenciesCompleteCache.add(node);
-        }
-
-        return dependenciesComplete;
-    }
-
     private boolean allProjectsLocked() {
         for (ResourceLock lock : projectLocks.values()) {
             if (!lock.isLocked()) {
@@ -873,28 +882,38 @@ public class DefaultExecutionPlan implements ExecutionPlan {
     public void nodeComplete(Node node) {
         try {
             if (!node.isComplete()) {
-                enforceFinalizers(node);
+                if (enforceFinalizers(node)) {
+                    // Finalizers which were not going to run are no longer complete
+                    executionQueue.nodeStatesChanged();
+                }
                 if (node.isFailed()) {
                     handleFailure(node);
                 }
 
                 node.finishExecution();
                 recordNodeCompleted(node);
+                executionQueue.nodeComplete(node);
             }
         } finally {
             unlockProjectFor(node);
         }
     }
 
-    private static void enforceFinalizers(Node node) {
+    /**
+     * Returns true when some node which was not going to run will now run.
+     */
+    private static boolean enforceFinalizers(Node node) {
+        boolean enforcedMustNotRun = false;
         for (Node finalizerNode : node.getFinalizers()) {
             if (finalizerNode.isRequired() || finalizerNode.isMustNotRun()) {
-                enforceWithDependencies(finalizerNode, Sets.<Node>newHashSet());
+                enforcedMustNotRun |= enforceWithDependencies(finalizerNode, Sets.<Node>newHashSet());
             }
         }
+        return enforcedMustNotRun;
     }
 
-    private static void enforceWithDependencies(Node nodeInfo, Set<Node> enforcedNodes) {
+    private static boolean enforceWithDependencies(Node nodeInfo, Set<Node> enforcedNodes) {
+        boolean enforcedMustNotRun = false;
         Deque<Node> candidateNodes = new ArrayDeque<Node>();
         candidateNodes.add(nodeInfo);
 
@@ -905,11 +924,15 @@ public class DefaultExecutionPlan implements ExecutionPlan {
 
                 candidateNodes.addAll(node.getDependencySuccessors());
 
-                if (node.isMustNotRun() || node.isRequired()) {
+                if (node.isMustNotRun()) {
+                    enforcedMustNotRun = true;
+                    node.enforceRun();
+                } else if (node.isRequired()) {
                     node.enforceRun();
                 }
             }
         }
+        return enforcedMustNotRun;
     }
 
     @Override
@@ -964,6 +987,9 @@ public class DefaultExecutionPlan implements ExecutionPlan {
                 aborted = true;
             }
         }
+        if (aborted) {
+            executionQueue.nodeStatesChanged();
+        }
         return aborted;
     }
 
@@ -989,7 +1015,7 @@ public class DefaultExecutionPlan implements ExecutionPlan {
 
     @Override
     public boolean hasNodesRemaining() {
-        for (Node node : executionQueue) {
+        for (Node node : executionQueue.getNodes()) {
             if (!node.isComplete()) {
                 return true;
             }
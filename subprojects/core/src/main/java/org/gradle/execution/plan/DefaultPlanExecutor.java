@@ -39,6 +39,7 @@ import java.util.Collection;
 import java.util.concurrent.Executor;
 import java.util.concurrent.atomic.AtomicLong;
 
+import static org.gradle.internal.resources.DefaultResourceLockCoordinationService.interchangeable;
 import static org.gradle.internal.resources.DefaultResourceLockCoordinationService.unlock;
 import static org.gradle.internal.resources.ResourceLockState.Disposition.FINISHED;
 import static org.gradle.internal.resources.ResourceLockState.Disposition.RETRY;
@@ -160,7 +161,8 @@ public class DefaultPlanExecutor implements PlanExecutor {
         private boolean executeNextNode(final WorkerLease workerLease, final Action<Node> nodeExecutor) {
             final MutableReference<Node> selected = MutableReference.empty();
             final MutableBoolean nodesRemaining = new MutableBoolean();
-            coordinationService.withStateLock(new Transformer<ResourceLockState.Disposition, ResourceLockState>() {
+            // All workers select nodes in the same way, so only one waiting worker needs to be woken when the state changes
+            coordinationService.withStateLock(interchangeable(executionPlan, new Transformer<ResourceLockState.Disposition, ResourceLockState>() {
                 @Override
                 public ResourceLockState.Disposition transform(ResourceLockState resourceLockState) {
                     if (cancellationToken.isCancellationRequested()) {
@@ -186,7 +188,7 @@ public class DefaultPlanExecutor implements PlanExecutor {
                         return FINISHED;
                     }
                 }
-            });
+            }));
 
             Node selectedNode = selected.get();
             if (selectedNode != null) {
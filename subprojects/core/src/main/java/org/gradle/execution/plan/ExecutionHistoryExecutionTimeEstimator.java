@@ -0,0 +1,44 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.execution.plan;
+
+import org.gradle.internal.execution.history.ExecutionHistoryStore;
+
+/**
+ * Estimates the execution time of a task as the time it took to produce its outputs the last time it was executed, as recorded in the execution history.
+ */
+public class ExecutionHistoryExecutionTimeEstimator implements NodeExecutionTimeEstimator {
+    /**
+     * When set to true, the nodes of the plan which are ready to execute are prioritized by the estimated execution time of the longest path
+     * from the node to the end of the plan, rather than by their position in the plan.
+     */
+    public static final String PRIORITIZE_CRITICAL_PATH_PROPERTY = "org.gradle.internal.plan.criticalpath";
+
+    private final ExecutionHistoryStore executionHistoryStore;
+
+    public ExecutionHistoryExecutionTimeEstimator(ExecutionHistoryStore executionHistoryStore) {
+        this.executionHistoryStore = executionHistoryStore;
+    }
+
+    @Override
+    public long estimateExecutionTime(Node node) {
+        if (!(node instanceof LocalTaskNode)) {
+            return 0;
+        }
+        return executionHistoryStore.loadExecutionTime(((LocalTaskNode) node).getTask().getPath()).orElse(0L);
+    }
+}
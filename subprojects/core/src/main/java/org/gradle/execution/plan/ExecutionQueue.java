@@ -0,0 +1,219 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.execution.plan;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * The nodes of an execution plan which have not been selected for execution yet.
+ *
+ * <p>The nodes whose dependencies are all complete are kept in a separate set, ordered by their position in the plan, so that selecting
+ * the next node to execute does not need to look at the nodes which are still waiting for their dependencies.</p>
+ *
+ * <p>Each waiting node watches one of its incomplete dependencies at a time, and is only checked again once that dependency completes.
+ * This way the dependencies of a node are checked once in total, rather than every time a node is selected. Dependencies which are not part of
+ * the plan, such as tasks in other builds, do not report their completion to the queue and are polled instead.</p>
+ *
+ * <p>When execution time estimates are available, the ready nodes are ordered by the estimated execution time of the longest path from the node
+ * to the end of the plan instead, so that long chains of work are started as early as possible. Nodes with the same estimate are still ordered
+ * by their position in the plan.</p>
+ */
+class ExecutionQueue {
+    private final Map<Node, Entry> entries = Maps.newLinkedHashMap();
+    private final Set<Node> planNodes = Sets.newIdentityHashSet();
+    private final NavigableSet<Entry> readyNodes = new TreeSet<Entry>(new Comparator<Entry>() {
+        @Override
+        public int compare(Entry entry1, Entry entry2) {
+            int result = Long.compare(entry2.remainingExecutionTime, entry1.remainingExecutionTime);
+            if (result != 0) {
+                return result;
+            }
+            return Integer.compare(entry1.position, entry2.position);
+        }
+    });
+    private final Map<Node, List<Entry>> waitingForPlanNode = Maps.newIdentityHashMap();
+    private final Set<Entry> waitingForExternalNode = Sets.newLinkedHashSet();
+    private final NodeExecutionTimeEstimator executionTimeEstimator;
+
+    public ExecutionQueue(NodeExecutionTimeEstimator executionTimeEstimator) {
+        this.executionTimeEstimator = executionTimeEstimator;
+    }
+
+    public void setNodes(Iterable<? extends Node> nodes) {
+        clear();
+        int position = 0;
+        for (Node node : nodes) {
+            planNodes.add(node);
+            entries.put(node, new Entry(node, position++));
+        }
+        estimateRemainingExecutionTimes();
+        for (Entry entry : entries.values()) {
+            waitForNextDependency(entry);
+        }
+    }
+
+    /**
+     * Returns all the nodes which have not been selected yet, in plan order.
+     */
+    public Collection<Node> getNodes() {
+        return Collections.unmodifiableSet(entries.keySet());
+    }
+
+    /**
+     * Returns the nodes whose dependencies are all complete, in priority order. Removing a node via the iterator removes it from the queue.
+     */
+    public Iterator<Node> readyNodes() {
+        pollExternalDependencies();
+        final Iterator<Entry> iterator = readyNodes.iterator();
+        return new Iterator<Node>() {
+            private Entry current;
+
+            @Override
+            public boolean hasNext() {
+                return iterator.hasNext();
+            }
+
+            @Override
+            public Node next() {
+                current = iterator.next();
+                return current.node;
+            }
+
+            @Override
+            public void remove() {
+                iterator.remove();
+                entries.remove(current.node);
+            }
+        };
+    }
+
+    /**
+     * Notifies the queue that the given node of the plan is complete.
+     */
+    public void nodeComplete(Node node) {
+        List<Entry> waiting = waitingForPlanNode.remove(node);
+        if (waiting != null) {
+            for (Entry entry : waiting) {
+                waitForNextDependency(entry);
+            }
+        }
+    }
+
+    /**
+     * Checks the dependencies of all remaining nodes again, including the nodes which are already ready. Called when the state of the nodes in the plan
+     * changed in some other way than by completing, for example when execution is aborted or when finalizers are enforced. Enforcing a finalizer can
+     * turn a node that was complete because it was not going to run into a node that still has to run, so a ready node may no longer be ready.
+     */
+    public void nodeStatesChanged() {
+        waitingForPlanNode.clear();
+        waitingForExternalNode.clear();
+        readyNodes.clear();
+        for (Entry entry : entries.values()) {
+            entry.ready = false;
+            entry.nextDependency = 0;
+            waitForNextDependency(entry);
+        }
+    }
+
+    public void clear() {
+        entries.clear();
+        planNodes.clear();
+        readyNodes.clear();
+        waitingForPlanNode.clear();
+        waitingForExternalNode.clear();
+    }
+
+    /**
+     * The nodes of the plan come after their dependencies, so the remaining execution time of the nodes depending on a node
+     * is known when visiting the nodes in reverse order.
+     */
+    private void estimateRemainingExecutionTimes() {
+        List<Entry> reversed = Lists.reverse(Lists.newArrayList(entries.values()));
+        for (Entry entry : reversed) {
+            entry.remainingExecutionTime += executionTimeEstimator.estimateExecutionTime(entry.node);
+            for (Node dependency : entry.dependencies) {
+                Entry dependencyEntry = entries.get(dependency);
+                if (dependencyEntry != null) {
+                    dependencyEntry.remainingExecutionTime = Math.max(dependencyEntry.remainingExecutionTime, entry.remainingExecutionTime);
+                }
+            }
+        }
+    }
+
+    private void pollExternalDependencies() {
+        if (waitingForExternalNode.isEmpty()) {
+            return;
+        }
+        List<Entry> polled = Lists.newArrayList(waitingForExternalNode);
+        waitingForExternalNode.clear();
+        for (Entry entry : polled) {
+            waitForNextDependency(entry);
+        }
+    }
+
+    private void waitForNextDependency(Entry entry) {
+        List<Node> dependencies = entry.dependencies;
+        while (entry.nextDependency < dependencies.size()) {
+            Node dependency = dependencies.get(entry.nextDependency);
+            if (!dependency.isComplete()) {
+                if (planNodes.contains(dependency)) {
+                    List<Entry> waiting = waitingForPlanNode.get(dependency);
+                    if (waiting == null) {
+                        waiting = Lists.newArrayList();
+                        waitingForPlanNode.put(dependency, waiting);
+                    }
+                    waiting.add(entry);
+                } else {
+                    waitingForExternalNode.add(entry);
+                }
+                return;
+            }
+            entry.nextDependency++;
+        }
+        entry.ready = true;
+        readyNodes.add(entry);
+    }
+
+    private static class Entry {
+        private final Node node;
+        private final int position;
+        // The dependencies which need to complete before the node can run, as checked by Node.allDependenciesComplete()
+        private final List<Node> dependencies;
+        private int nextDependency;
+        // The estimated execution time of the node and of the longest chain of nodes depending on it
+        private long remainingExecutionTime;
+        private boolean ready;
+
+        Entry(Node node, int position) {
+            this.node = node;
+            this.position = position;
+            this.dependencies = Lists.newArrayList(node.getAllSuccessors());
+        }
+    }
+}
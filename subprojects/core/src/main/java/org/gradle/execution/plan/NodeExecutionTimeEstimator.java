@@ -0,0 +1,34 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.execution.plan;
+
+/**
+ * Estimates how long it takes to execute the nodes of a plan, so that the nodes on the longest path through the plan can be started first.
+ */
+public interface NodeExecutionTimeEstimator {
+    NodeExecutionTimeEstimator NONE = new NodeExecutionTimeEstimator() {
+        @Override
+        public long estimateExecutionTime(Node node) {
+            return 0;
+        }
+    };
+
+    /**
+     * Returns the estimated execution time of the node in milliseconds, or 0 when there is no estimate.
+     */
+    long estimateExecutionTime(Node node);
+}
@@ -19,6 +19,7 @@ package org.gradle.initialization;
 import org.gradle.api.Transformer;
 import org.gradle.api.internal.StartParameterInternal;
 import org.gradle.api.internal.file.BasicFileResolver;
+import org.gradle.caching.internal.compress.BuildCacheCompression;
 import org.gradle.internal.buildoption.BooleanBuildOption;
 import org.gradle.internal.buildoption.BooleanCommandLineOptionConfiguration;
 import org.gradle.internal.buildoption.BuildOption;
@@ -32,6 +33,7 @@ import java.io.File;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Locale;
 
 public class StartParameterBuildOptions {
 
@@ -56,6 +58,7 @@ public class StartParameterBuildOptions {
         options.add(new ConfigureOnDemandOption());
         options.add(new BuildCacheOption());
         options.add(new BuildCacheDebugLoggingOption());
+        options.add(new BuildCacheCompressionOption());
         options.add(new BuildScanOption());
         options.add(new DependencyLockingWriteOption());
         options.add(new DependencyLockingUpdateOption());
@@ -278,6 +281,23 @@ public class StartParameterBuildOptions {
         }
     }
 
+    public static class BuildCacheCompressionOption extends StringBuildOption<StartParameterInternal> {
+        public static final String GRADLE_PROPERTY = "org.gradle.caching.compression";
+
+        public BuildCacheCompressionOption() {
+            super(GRADLE_PROPERTY);
+        }
+
+        @Override
+        public void applyTo(String value, StartParameterInternal settings, Origin origin) {
+            try {
+                settings.setBuildCacheCompression(BuildCacheCompression.valueOf(value.toUpperCase(Locale.ENGLISH)));
+            } catch (IllegalArgumentException e) {
+                origin.handleInvalidValue(value, "must be one of deflate, deflate_best or lz4");
+            }
+        }
+    }
+
     public static class BuildScanOption extends BooleanBuildOption<StartParameterInternal> {
         public static final String LONG_OPTION = "scan";
 
@@ -0,0 +1,307 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.filewatch;
+
+import org.gradle.api.Action;
+import org.gradle.api.internal.file.FileSystemSubset;
+import org.gradle.initialization.RootBuildLifecycleListener;
+import org.gradle.internal.concurrent.Stoppable;
+import org.gradle.internal.execution.OutputChangeListener;
+import org.gradle.internal.file.FileMetadataSnapshot;
+import org.gradle.internal.file.FileType;
+import org.gradle.internal.snapshot.FileSystemLocationSnapshot;
+import org.gradle.internal.snapshot.FileSystemMirror;
+import org.gradle.internal.snapshot.WellKnownFileLocations;
+import org.gradle.internal.snapshot.impl.SnapshotHierarchy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A {@link FileSystemMirror} which retains the state of the file system between builds in the same process.
+ *
+ * <p>Every location which is snapshotted is registered with a {@link FileWatcher}. State is only retained at the end of a build for locations which were already
+ * being watched when the build started, and which did not change while the build was running. Any change reported by the watcher discards the state for the
+ * changed location, its ancestors and its descendants. When the watcher loses events or fails, all retained state is discarded.</p>
+ *
+ * <p>State for locations in append-only caches is only kept for the duration of a build, as with {@link org.gradle.internal.snapshot.impl.DefaultFileSystemMirror}.</p>
+ */
+public class FileWatchingFileSystemMirror implements FileSystemMirror, OutputChangeListener, RootBuildLifecycleListener, Stoppable {
+    /**
+     * System property to retain the state of the file system between builds.
+     *
+     * The property is read once per process. It is an immutable daemon property, so a build which asks for a different value runs in a different daemon.
+     * It is ignored on macOS, where the JDK watch service polls for changes and can report them seconds late.
+     */
+    public static final String RETAIN_FILE_SYSTEM_STATE_PROPERTY = "org.gradle.unsafe.watch-fs";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(FileWatchingFileSystemMirror.class);
+
+    // State which survives the current build.
+    private final SnapshotHierarchy retainedFiles = new SnapshotHierarchy();
+    // State captured during the current build, which is a candidate for being retained at the end of the build.
+    private final SnapshotHierarchy files = new SnapshotHierarchy();
+    private final SnapshotHierarchy cacheFiles = new SnapshotHierarchy();
+
+    // Maps from watched root to whether the root is a directory, for roots registered during the current build.
+    private final Map<String, Boolean> watchedRoots = new ConcurrentHashMap<String, Boolean>();
+    // Roots which were already being watched when the current build started.
+    private final Map<String, Boolean> retainableRoots = new ConcurrentHashMap<String, Boolean>();
+    // Paths reported as changed during the current build, and all their ancestors.
+    private final Set<String> changedDuringBuild = ConcurrentHashMap.newKeySet();
+    private final Set<String> ancestorsOfChangedDuringBuild = ConcurrentHashMap.newKeySet();
+
+    private final Object lock = new Object();
+    private final Object watcherLock = new Object();
+    private final WellKnownFileLocations wellKnownFileLocations;
+    private final FileWatcherFactory fileWatcherFactory;
+    private FileWatcher watcher;
+    private boolean everythingChangedDuringBuild;
+
+    public FileWatchingFileSystemMirror(WellKnownFileLocations wellKnownFileLocations, FileWatcherFactory fileWatcherFactory) {
+        this.wellKnownFileLocations = wellKnownFileLocations;
+        this.fileWatcherFactory = fileWatcherFactory;
+    }
+
+    @Nullable
+    @Override
+    public FileSystemLocationSnapshot getSnapshot(String absolutePath) {
+        if (wellKnownFileLocations.isImmutable(absolutePath)) {
+            return cacheFiles.getSnapshot(absolutePath);
+        }
+        FileSystemLocationSnapshot snapshot = retainedFiles.getSnapshot(absolutePath);
+        return snapshot != null ? snapshot : files.getSnapshot(absolutePath);
+    }
+
+    @Override
+    public void putSnapshot(FileSystemLocationSnapshot snapshot) {
+        String absolutePath = snapshot.getAbsolutePath();
+        if (wellKnownFileLocations.isImmutable(absolutePath)) {
+            cacheFiles.putSnapshot(snapshot);
+        } else {
+            files.putSnapshot(snapshot);
+            maybeWatch(absolutePath, snapshot.getType() == FileType.Directory);
+        }
+    }
+
+    @Nullable
+    @Override
+    public FileMetadataSnapshot getMetadata(String absolutePath) {
+        if (wellKnownFileLocations.isImmutable(absolutePath)) {
+            return cacheFiles.getMetadata(absolutePath);
+        }
+        FileMetadataSnapshot metadata = retainedFiles.getMetadata(absolutePath);
+        return metadata != null ? metadata : files.getMetadata(absolutePath);
+    }
+
+    @Override
+    public void putMetadata(String absolutePath, FileMetadataSnapshot metadata) {
+        if (wellKnownFileLocations.isImmutable(absolutePath)) {
+            cacheFiles.putMetadata(absolutePath, metadata);
+        } else {
+            files.putMetadata(absolutePath, metadata);
+        }
+    }
+
+    @Override
+    public void beforeOutputChange() {
+        // When the outputs are generated, throw away all state for files that do not live in an append-only cache.
+        synchronized (lock) {
+            retainedFiles.clear();
+            files.clear();
+        }
+    }
+
+    @Override
+    public void beforeOutputChange(Iterable<String> affectedOutputPaths) {
+        synchronized (lock) {
+            for (String affectedOutputPath : affectedOutputPaths) {
+                retainedFiles.invalidate(affectedOutputPath);
+                files.invalidate(affectedOutputPath);
+                cacheFiles.invalidate(affectedOutputPath);
+            }
+        }
+    }
+
+    @Override
+    public void afterStart() {
+    }
+
+    @Override
+    public void beforeComplete() {
+        beforeBuildFinished();
+    }
+
+    public void beforeBuildFinished() {
+        synchronized (lock) {
+            if (!everythingChangedDuringBuild) {
+                retainCurrentBuildState();
+            }
+            retainableRoots.putAll(watchedRoots);
+            everythingChangedDuringBuild = false;
+            changedDuringBuild.clear();
+            ancestorsOfChangedDuringBuild.clear();
+            files.clear();
+            cacheFiles.clear();
+        }
+    }
+
+    @Override
+    public void stop() {
+        synchronized (watcherLock) {
+            watchedRoots.clear();
+            if (watcher != null) {
+                watcher.stop();
+                watcher = null;
+            }
+        }
+    }
+
+    private void retainCurrentBuildState() {
+        files.visit(new SnapshotHierarchy.Visitor() {
+            @Override
+            public void visit(String absolutePath, @Nullable FileSystemLocationSnapshot snapshot, @Nullable FileMetadataSnapshot metadata) {
+                if (isWatchedSinceBuildStart(absolutePath) && !isAffectedByChangeDuringBuild(absolutePath)) {
+                    if (snapshot != null) {
+                        retainedFiles.putSnapshot(snapshot);
+                    }
+                    if (metadata != null) {
+                        retainedFiles.putMetadata(absolutePath, metadata);
+                    }
+                }
+            }
+        });
+    }
+
+    private boolean isWatchedSinceBuildStart(String absolutePath) {
+        if (retainableRoots.containsKey(absolutePath)) {
+            return true;
+        }
+        for (String ancestor = parentOf(absolutePath); ancestor != null; ancestor = parentOf(ancestor)) {
+            if (Boolean.TRUE.equals(retainableRoots.get(ancestor))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean isAffectedByChangeDuringBuild(String absolutePath) {
+        if (ancestorsOfChangedDuringBuild.contains(absolutePath)) {
+            return true;
+        }
+        for (String path = absolutePath; path != null; path = parentOf(path)) {
+            if (changedDuringBuild.contains(path)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void maybeWatch(String absolutePath, boolean isDirectory) {
+        if (watchedRoots.containsKey(absolutePath) || isInWatchedDirectory(absolutePath)) {
+            return;
+        }
+        IOException failure = null;
+        // The watcher delivers events while holding its own lock, so the state lock must not be held while registering with the watcher
+        synchronized (watcherLock) {
+            if (watchedRoots.put(absolutePath, isDirectory) != null) {
+                return;
+            }
+            if (watcher == null) {
+                watcher = fileWatcherFactory.watch(new Action<Throwable>() {
+                    @Override
+                    public void execute(Throwable throwable) {
+                        onWatcherFailure(throwable);
+                    }
+                }, new FileWatcherListener() {
+                    @Override
+                    public void onChange(FileWatcher watcher, FileWatcherEvent event) {
+                        onFileSystemChange(event);
+                    }
+                });
+            }
+            try {
+                watcher.watch(FileSystemSubset.builder().add(new File(absolutePath)).build());
+            } catch (IOException e) {
+                failure = e;
+            }
+        }
+        if (failure != null) {
+            onWatcherFailure(failure);
+        }
+    }
+
+    private boolean isInWatchedDirectory(String absolutePath) {
+        for (String ancestor = parentOf(absolutePath); ancestor != null; ancestor = parentOf(ancestor)) {
+            if (Boolean.TRUE.equals(watchedRoots.get(ancestor))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void onFileSystemChange(FileWatcherEvent event) {
+        synchronized (lock) {
+            File file = event.getFile();
+            if (event.getType() == FileWatcherEvent.Type.UNDEFINED || file == null) {
+                // The watcher has lost events, so we don't know what has changed
+                LOGGER.debug("Lost file system events, discarding all retained file system state");
+                discardAll();
+                return;
+            }
+            String absolutePath = file.getAbsolutePath();
+            changedDuringBuild.add(absolutePath);
+            for (String ancestor = parentOf(absolutePath); ancestor != null; ancestor = parentOf(ancestor)) {
+                if (!ancestorsOfChangedDuringBuild.add(ancestor)) {
+                    break;
+                }
+            }
+            retainedFiles.invalidate(absolutePath);
+            files.invalidate(absolutePath);
+        }
+    }
+
+    private void onWatcherFailure(Throwable failure) {
+        LOGGER.debug("File watching failed, discarding all retained file system state", failure);
+        synchronized (lock) {
+            discardAll();
+            retainableRoots.clear();
+        }
+        stop();
+    }
+
+    private void discardAll() {
+        everythingChangedDuringBuild = true;
+        retainedFiles.clear();
+        files.clear();
+    }
+
+    @Nullable
+    private static String parentOf(String absolutePath) {
+        int lastSeparator = absolutePath.lastIndexOf(File.separatorChar);
+        if (lastSeparator <= 0 || lastSeparator == absolutePath.length() - 1) {
+            return null;
+        }
+        return absolutePath.substring(0, lastSeparator);
+    }
+}
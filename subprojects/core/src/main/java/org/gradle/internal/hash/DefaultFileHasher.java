@@ -19,22 +19,65 @@ import org.gradle.api.UncheckedIOException;
 import org.gradle.api.file.FileTreeElement;
 import org.gradle.internal.IoActions;
 import org.gradle.internal.file.FileMetadataSnapshot;
+import org.gradle.internal.os.OperatingSystem;
 
+import javax.annotation.Nullable;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
 
 public class DefaultFileHasher implements FileHasher {
+    /**
+     * Files of at least this size are hashed by mapping them into memory, instead of copying their content through a heap buffer.
+     */
+    public static final long DEFAULT_MAPPED_HASHING_THRESHOLD = 16 * 1024 * 1024;
+    private static final long MAX_MAPPED_REGION_SIZE = 64 * 1024 * 1024;
+    private static final Unmapper UNMAPPER = Unmapper.create();
+
     private final StreamHasher streamHasher;
+    private final long mappedHashingThreshold;
 
     public DefaultFileHasher(StreamHasher streamHasher) {
+        // A mapped file cannot be deleted on Windows until the mapping has been garbage collected
+        this(streamHasher, OperatingSystem.current().isWindows() ? Long.MAX_VALUE : DEFAULT_MAPPED_HASHING_THRESHOLD);
+    }
+
+    public DefaultFileHasher(StreamHasher streamHasher, long mappedHashingThreshold) {
         this.streamHasher = streamHasher;
+        this.mappedHashingThreshold = mappedHashingThreshold;
     }
 
     @Override
     public HashCode hash(File file) {
+        return hash(file, file.length());
+    }
+
+    @Override
+    public HashCode hash(File file, FileMetadataSnapshot fileDetails) {
+        return hash(file, fileDetails.getLength());
+    }
+
+    @Override
+    public HashCode hash(FileTreeElement fileDetails) {
+        return hash(fileDetails.getFile(), fileDetails.getSize());
+    }
+
+    private HashCode hash(File file, long length) {
         try {
+            if (length >= mappedHashingThreshold) {
+                HashCode hash = hashMapped(file);
+                if (hash != null) {
+                    return hash;
+                }
+            }
             InputStream inputStream = new FileInputStream(file);
             try {
                 return streamHasher.hash(inputStream);
@@ -42,17 +85,101 @@ public class DefaultFileHasher implements FileHasher {
                 IoActions.closeQuietly(inputStream);
             }
         } catch (FileNotFoundException e) {
-            throw new UncheckedIOException(String.format("Failed to create MD5 hash for file '%s' as it does not exist.", file), e);
+            throw new UncheckedIOException(String.format("Failed to create hash for file '%s' as it does not exist.", file), e);
+        } catch (IOException e) {
+            throw new UncheckedIOException(String.format("Failed to create hash for file '%s'.", file), e);
         }
     }
 
-    @Override
-    public HashCode hash(File file, FileMetadataSnapshot fileDetails) {
-        return hash(file);
+    /**
+     * Hashes the file one mapped region at a time, unmapping each region before mapping the next one where the JVM allows it.
+     *
+     * @return the hash, or {@code null} when the mapped content could not be read and the file should be hashed as a stream instead.
+     */
+    @Nullable
+    private HashCode hashMapped(File file) throws IOException {
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+        try {
+            FileChannel channel = randomAccessFile.getChannel();
+            // Use the current size of the file, as a read-only mapping cannot extend beyond the end of the file
+            long size = channel.size();
+            PrimitiveHasher hasher = streamHasher.newContentHasher();
+            long position = 0;
+            while (position < size) {
+                long regionSize = Math.min(MAX_MAPPED_REGION_SIZE, size - position);
+                MappedByteBuffer region = channel.map(FileChannel.MapMode.READ_ONLY, position, regionSize);
+                try {
+                    hasher.putBytes(region);
+                } catch (InternalError e) {
+                    // Reading a mapped region of a file that has been truncated in the meantime raises a SIGBUS, which the JVM reports as an InternalError
+                    return null;
+                } finally {
+                    unmap(region);
+                }
+                position += regionSize;
+            }
+            return hasher.hash();
+        } finally {
+            randomAccessFile.close();
+        }
     }
 
-    @Override
-    public HashCode hash(FileTreeElement fileDetails) {
-        return hash(fileDetails.getFile());
+    private static void unmap(MappedByteBuffer buffer) {
+        if (UNMAPPER != null) {
+            UNMAPPER.unmap(buffer);
+        }
+    }
+
+    /**
+     * Unmaps a buffer right away. Without it, a mapping stays in place until its buffer is garbage collected.
+     */
+    private static abstract class Unmapper {
+        abstract void unmap(MappedByteBuffer buffer);
+
+        @Nullable
+        static Unmapper create() {
+            try {
+                // Java 9 and later
+                Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+                final Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+                Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+                theUnsafe.setAccessible(true);
+                final Object unsafe = theUnsafe.get(null);
+                return new Unmapper() {
+                    @Override
+                    void unmap(MappedByteBuffer buffer) {
+                        invoke(invokeCleaner, unsafe, buffer);
+                    }
+                };
+            } catch (Exception e) {
+                // Not available, try the Java 8 way
+            }
+            try {
+                final Method cleaner = Class.forName("sun.nio.ch.DirectBuffer").getMethod("cleaner");
+                final Method clean = Class.forName("sun.misc.Cleaner").getMethod("clean");
+                return new Unmapper() {
+                    @Override
+                    void unmap(MappedByteBuffer buffer) {
+                        Object bufferCleaner = invoke(cleaner, buffer);
+                        if (bufferCleaner != null) {
+                            invoke(clean, bufferCleaner);
+                        }
+                    }
+                };
+            } catch (Exception e) {
+                // Not available, leave the mappings to the garbage collector
+                return null;
+            }
+        }
+
+        @Nullable
+        private static Object invoke(Method method, Object target, Object... args) {
+            try {
+                return method.invoke(target, args);
+            } catch (Exception e) {
+                // The mapping is released when the buffer is garbage collected
+                return null;
+            }
+        }
     }
 }
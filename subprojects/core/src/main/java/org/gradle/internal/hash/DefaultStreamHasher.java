@@ -34,7 +34,7 @@ public class DefaultStreamHasher implements StreamHasher {
         try {
             return doHash(inputStream, NullOutputStream.INSTANCE);
         } catch (IOException e) {
-            throw new UncheckedIOException("Failed to create MD5 hash for file content.", e);
+            throw new UncheckedIOException("Failed to create hash for file content.", e);
         }
     }
 
@@ -46,8 +46,7 @@ public class DefaultStreamHasher implements StreamHasher {
     private HashCode doHash(InputStream inputStream, OutputStream outputStream) throws IOException {
         byte[] buffer = takeBuffer();
         try {
-            PrimitiveHasher hasher = Hashing.newPrimitiveHasher();
-            hasher.putHash(SIGNATURE);
+            PrimitiveHasher hasher = newContentHasher();
             while (true) {
                 int nread = inputStream.read(buffer);
                 if (nread < 0) {
@@ -62,6 +61,13 @@ public class DefaultStreamHasher implements StreamHasher {
         }
     }
 
+    @Override
+    public PrimitiveHasher newContentHasher() {
+        PrimitiveHasher hasher = Hashing.contentHashFunction().newPrimitiveHasher();
+        hasher.putHash(SIGNATURE);
+        return hasher;
+    }
+
     private void returnBuffer(byte[] buffer) {
         // Retain buffer if there is capacity in the queue, otherwise discard
         buffers.offer(buffer);
@@ -26,6 +26,8 @@ import org.gradle.cache.internal.InMemoryCacheDecoratorFactory;
 import org.gradle.caching.internal.command.BuildCacheCommandFactory;
 import org.gradle.caching.internal.controller.BuildCacheController;
 import org.gradle.execution.plan.DefaultPlanExecutor;
+import org.gradle.execution.plan.ExecutionHistoryExecutionTimeEstimator;
+import org.gradle.execution.plan.NodeExecutionTimeEstimator;
 import org.gradle.execution.plan.PlanExecutor;
 import org.gradle.initialization.BuildCancellationToken;
 import org.gradle.internal.concurrent.ExecutorFactory;
@@ -39,6 +41,7 @@ import org.gradle.internal.execution.history.ExecutionHistoryStore;
 import org.gradle.internal.execution.history.OutputFilesRepository;
 import org.gradle.internal.execution.history.impl.DefaultExecutionHistoryStore;
 import org.gradle.internal.execution.history.impl.DefaultOutputFilesRepository;
+import org.gradle.internal.execution.history.impl.WriteBehindExecutionHistoryStore;
 import org.gradle.internal.execution.impl.DefaultWorkExecutor;
 import org.gradle.internal.execution.impl.steps.CacheStep;
 import org.gradle.internal.execution.impl.steps.CachingContext;
@@ -69,8 +72,16 @@ public class ExecutionGradleServices {
         return new DefaultExecutionHistoryCacheAccess(gradle, cacheRepository, inMemoryCacheDecoratorFactory);
     }
 
-    ExecutionHistoryStore createExecutionHistoryStore(ExecutionHistoryCacheAccess executionHistoryCacheAccess, StringInterner stringInterner) {
-        return new DefaultExecutionHistoryStore(executionHistoryCacheAccess, stringInterner);
+    ExecutionHistoryStore createExecutionHistoryStore(ExecutionHistoryCacheAccess executionHistoryCacheAccess, StringInterner stringInterner, ExecutorFactory executorFactory) {
+        // Closed, and so flushed, at the end of the build before the cache access is closed
+        return new WriteBehindExecutionHistoryStore(new DefaultExecutionHistoryStore(executionHistoryCacheAccess, stringInterner), executorFactory);
+    }
+
+    NodeExecutionTimeEstimator createNodeExecutionTimeEstimator(ExecutionHistoryStore executionHistoryStore) {
+        if (Boolean.getBoolean(ExecutionHistoryExecutionTimeEstimator.PRIORITIZE_CRITICAL_PATH_PROPERTY)) {
+            return new ExecutionHistoryExecutionTimeEstimator(executionHistoryStore);
+        }
+        return NodeExecutionTimeEstimator.NONE;
     }
 
     OutputFilesRepository createOutputFilesRepository(CacheRepository cacheRepository, Gradle gradle, InMemoryCacheDecoratorFactory inMemoryCacheDecoratorFactory) {
@@ -43,7 +43,7 @@ class CachingFileHasherTest extends Specification {
 
     def setup() {
         file.write("some-content")
-        1 * cacheAccess.createCache({ it.cacheName == "fileHashes"  }, _, _) >> cache
+        1 * cacheAccess.createCache({ it.cacheName == "fileHashes"  }, _, _, CompactFileInfoStore.FACTORY) >> cache
         hasher = new CachingFileHasher(target, cacheAccess, new StringInterner(), timeStampInspector, "fileHashes", fileSystem)
     }
 
@@ -0,0 +1,131 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.changedetection.state
+
+import org.gradle.api.internal.changedetection.state.CachingFileHasher.FileInfo
+import org.gradle.internal.hash.HashCode
+import org.gradle.internal.hash.Hashing
+import spock.lang.Specification
+
+class CompactFileInfoStoreTest extends Specification {
+    def store = new CompactFileInfoStore(10000)
+
+    def "can add, update and remove entries"() {
+        def info = fileInfo("a", 1, 2)
+        def updated = fileInfo("b", 3, 4)
+
+        expect:
+        store.get("/some/file") == null
+
+        when:
+        store.put("/some/file", info)
+
+        then:
+        sameInfo(store.get("/some/file"), info)
+        store.get("/some/other") == null
+
+        when:
+        store.put("/some/file", updated)
+
+        then:
+        sameInfo(store.get("/some/file"), updated)
+        store.size() == 1
+
+        when:
+        store.remove("/some/file")
+
+        then:
+        store.get("/some/file") == null
+        store.size() == 0
+    }
+
+    def "keeps many entries and finds remaining entries after removals"() {
+        def count = 5000
+
+        when:
+        (0..<count).each { store.put("/file/$it", fileInfo("$it", it, it)) }
+
+        then:
+        store.size() == count
+        (0..<count).every { sameInfo(store.get("/file/$it"), fileInfo("$it", it, it)) }
+
+        when:
+        (0..<count).step(3) { store.remove("/file/$it") }
+
+        then:
+        (0..<count).every { (it % 3 == 0) ? store.get("/file/$it") == null : sameInfo(store.get("/file/$it"), fileInfo("$it", it, it)) }
+    }
+
+    def "evicts a single entry when maximum number of entries is reached"() {
+        def store = new CompactFileInfoStore(10)
+        (0..<10).each { store.put("/file/$it", fileInfo("$it", it, it)) }
+
+        when:
+        store.put("/file/10", fileInfo("10", 10, 10))
+
+        then:
+        store.size() == 10
+        sameInfo(store.get("/file/10"), fileInfo("10", 10, 10))
+        (0..<10).count { store.get("/file/$it") != null } == 9
+    }
+
+    def "keeps recently used entries when many more entries than the maximum are added"() {
+        def store = new CompactFileInfoStore(1000)
+        def recentlyUsed = (0..<100)
+        (0..<1000).each { store.put("/file/$it", fileInfo("$it", it, it)) }
+
+        when:
+        (1000..<5000).each {
+            recentlyUsed.each { store.get("/file/$it") }
+            store.put("/file/$it", fileInfo("$it", it, it))
+        }
+
+        then:
+        store.size() == 1000
+        recentlyUsed.every { sameInfo(store.get("/file/$it"), fileInfo("$it", it, it)) }
+        (100..<1000).every { store.get("/file/$it") == null }
+    }
+
+    def "does not keep entries with hashes of different length"() {
+        store.put("/some/file", fileInfo("a", 1, 2))
+
+        when:
+        store.put("/some/file", new FileInfo(HashCode.fromInt(123), 1, 2))
+
+        then:
+        store.get("/some/file") == null
+    }
+
+    def "clear discards all entries"() {
+        store.put("/some/file", fileInfo("a", 1, 2))
+
+        when:
+        store.clear()
+
+        then:
+        store.get("/some/file") == null
+        store.size() == 0
+    }
+
+    private static FileInfo fileInfo(String content, long length, long timestamp) {
+        new FileInfo(Hashing.md5().hashString(content), length, timestamp)
+    }
+
+    private static boolean sameInfo(FileInfo actual, FileInfo expected) {
+        actual != null && actual.hash == expected.hash && actual.length == expected.length && actual.timestamp == expected.timestamp
+    }
+}
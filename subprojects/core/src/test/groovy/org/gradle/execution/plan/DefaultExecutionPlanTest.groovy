@@ -57,7 +57,7 @@ class DefaultExecutionPlanTest extends AbstractProjectBuilderSpec {
         root = createRootProject(temporaryFolder.testDirectory)
         def taskNodeFactory = new TaskNodeFactory(root.gradle, Stub(IncludedBuildTaskGraph))
         def dependencyResolver = new TaskDependencyResolver([new TaskNodeDependencyResolver(taskNodeFactory)])
-        executionPlan = new DefaultExecutionPlan(workerLeaseService, root.gradle, taskNodeFactory, dependencyResolver)
+        executionPlan = new DefaultExecutionPlan(workerLeaseService, root.gradle, taskNodeFactory, dependencyResolver, NodeExecutionTimeEstimator.NONE)
         _ * workerLeaseService.getProjectLock(_, _) >> Mock(ResourceLock) {
             _ * isLocked() >> false
             _ * tryLock() >> true
@@ -349,6 +349,44 @@ class DefaultExecutionPlanTest extends AbstractProjectBuilderSpec {
         executes(finalized, finalizerDependency, finalizer, dependsOnFinalizer)
     }
 
+    def "does not select a finalizer before the dependency it shares with an enforced finalizer completes"() {
+        given:
+        Task finalizerDependency = task("finalizerDependency")
+        Task finalizer1 = task("finalizer1", dependsOn: [finalizerDependency])
+        Task finalizer2 = task("finalizer2", dependsOn: [finalizerDependency])
+        Task finalized1 = task("finalized1", finalizedBy: [finalizer1])
+        Task finalized2 = task("finalized2", finalizedBy: [finalizer2])
+
+        when:
+        addToGraphAndPopulate([finalized1, finalized2])
+        def firstNode = executionPlan.selectNext(workerLease, Mock(ResourceLockState))
+        def secondNode = executionPlan.selectNext(workerLease, Mock(ResourceLockState))
+
+        then:
+        firstNode.task == finalized1
+        secondNode.task == finalized2
+
+        when:
+        executionPlan.nodeComplete(firstNode)
+        def dependencyNode = executionPlan.selectNext(workerLease, Mock(ResourceLockState))
+
+        then:
+        dependencyNode.task == finalizerDependency
+
+        when:
+        // Enforcing finalizer2 turns it from a node which will not run, and so had no dependencies to wait for, into a node waiting for finalizerDependency
+        executionPlan.nodeComplete(secondNode)
+
+        then:
+        executionPlan.selectNext(workerLease, Mock(ResourceLockState)) == null
+
+        when:
+        executionPlan.nodeComplete(dependencyNode)
+
+        then:
+        executedTasks == [finalizer1, finalizer2]
+    }
+
     def "finalizer tasks run as soon as possible for tasks that depend on finalized tasks"() {
         Task finalizer = task("finalizer")
         Task finalized = task("finalized", finalizedBy: [finalizer])
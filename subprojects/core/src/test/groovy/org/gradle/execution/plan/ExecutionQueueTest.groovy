@@ -0,0 +1,226 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.execution.plan
+
+import org.gradle.api.Action
+import org.gradle.api.Project
+import spock.lang.Specification
+
+class ExecutionQueueTest extends Specification {
+    def queue = new ExecutionQueue(NodeExecutionTimeEstimator.NONE)
+
+    def "contains nodes without incomplete dependencies in plan order"() {
+        def a = node("a")
+        def b = node("b", a)
+        def c = node("c")
+        def d = node("d", c, b)
+
+        when:
+        queue.setNodes([a, b, c, d])
+
+        then:
+        readyNodes() == [a, c]
+        queue.nodes as List == [a, b, c, d]
+
+        when:
+        select(a)
+        complete(a)
+
+        then:
+        readyNodes() == [b, c]
+        queue.nodes as List == [b, c, d]
+
+        when:
+        select(c)
+        complete(c)
+
+        then:
+        readyNodes() == [b]
+
+        when:
+        select(b)
+        complete(b)
+
+        then:
+        readyNodes() == [d]
+    }
+
+    def "polls dependencies which are not part of the plan"() {
+        def external = node("external")
+        def a = node("a", external)
+
+        when:
+        queue.setNodes([a])
+
+        then:
+        readyNodes() == []
+
+        when:
+        external.startExecution()
+        external.finishExecution()
+
+        then:
+        readyNodes() == [a]
+    }
+
+    def "checks dependencies again when the state of the nodes changes"() {
+        def a = node("a")
+        def b = node("b", a)
+        queue.setNodes([a, b])
+
+        when:
+        a.skipExecution()
+        queue.nodeStatesChanged()
+
+        then:
+        readyNodes() == [a, b]
+    }
+
+    def "checks all dependencies again when the state of the nodes changes"() {
+        def a = node("a")
+        def b = node("b")
+        def c = node("c", a, b)
+        a.mustNotRun()
+        queue.setNodes([a, b, c])
+
+        when:
+        a.enforceRun()
+        queue.nodeStatesChanged()
+        select(b)
+        complete(b)
+
+        then:
+        readyNodes() == [a]
+    }
+
+    def "a ready node is no longer ready when a dependency which was not going to run is enforced"() {
+        def a = node("a")
+        def b = node("b", a)
+        a.mustNotRun()
+        queue.setNodes([a, b])
+
+        expect:
+        readyNodes() == [a, b]
+
+        when:
+        a.enforceRun()
+        queue.nodeStatesChanged()
+
+        then:
+        readyNodes() == [a]
+    }
+
+    def "orders ready nodes by the estimated execution time of the longest path to the end of the plan"() {
+        def estimates = [a: 1, b: 100, c: 10, d: 50]
+        queue = new ExecutionQueue({ Node node -> estimates[node.toString()] as long } as NodeExecutionTimeEstimator)
+        def a = node("a")
+        def b = node("b", a)
+        def c = node("c")
+        def d = node("d")
+
+        when:
+        queue.setNodes([a, b, c, d])
+
+        then:
+        readyNodes() == [a, d, c]
+
+        when:
+        select(a)
+        complete(a)
+
+        then:
+        readyNodes() == [b, d, c]
+    }
+
+    private List<Node> readyNodes() {
+        return queue.readyNodes().collect()
+    }
+
+    private void select(Node node) {
+        def iterator = queue.readyNodes()
+        while (iterator.hasNext()) {
+            if (iterator.next() == node) {
+                iterator.remove()
+                node.startExecution()
+                return
+            }
+        }
+        throw new AssertionError("$node is not ready")
+    }
+
+    private void complete(Node node) {
+        node.finishExecution()
+        queue.nodeComplete(node)
+    }
+
+    private static TestNode node(String name, Node... dependencies) {
+        def node = new TestNode(name)
+        node.require()
+        dependencies.each { node.addDependencySuccessor(it) }
+        return node
+    }
+
+    static class TestNode extends Node {
+        private final String name
+
+        TestNode(String name) {
+            this.name = name
+        }
+
+        @Override
+        Throwable getNodeFailure() {
+            return null
+        }
+
+        @Override
+        void rethrowNodeFailure() {
+        }
+
+        @Override
+        void prepareForExecution() {
+        }
+
+        @Override
+        void resolveDependencies(TaskDependencyResolver dependencyResolver, Action<Node> processHardSuccessor) {
+        }
+
+        @Override
+        Set<Node> getFinalizers() {
+            return [] as Set
+        }
+
+        @Override
+        boolean isPublicNode() {
+            return false
+        }
+
+        @Override
+        Project getProject() {
+            return null
+        }
+
+        @Override
+        int compareTo(Node other) {
+            return name <=> ((TestNode) other).name
+        }
+
+        @Override
+        String toString() {
+            return name
+        }
+    }
+}
@@ -0,0 +1,176 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.filewatch
+
+import org.gradle.api.Action
+import org.gradle.api.internal.changedetection.state.DefaultWellKnownFileLocations
+import org.gradle.internal.classpath.CachedJarFileStore
+import org.gradle.internal.file.FileMetadataSnapshot
+import org.gradle.internal.file.FileType
+import org.gradle.internal.snapshot.DirectorySnapshot
+import org.gradle.test.fixtures.file.TestFile
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
+import spock.lang.Specification
+
+class FileWatchingFileSystemMirrorTest extends Specification {
+    @Rule
+    TestNameTestDirectoryProvider tmpDir = new TestNameTestDirectoryProvider()
+
+    def watcher = Mock(FileWatcher)
+    def watcherFactory = Mock(FileWatcherFactory)
+    FileWatcherListener listener
+    Action<? super Throwable> onError
+    FileWatchingFileSystemMirror mirror
+    TestFile cacheDir
+
+    def setup() {
+        cacheDir = tmpDir.createDir("cache")
+        def fileStore = Stub(CachedJarFileStore)
+        fileStore.fileStoreRoots >> [cacheDir]
+        _ * watcherFactory.watch(_, _) >> { Action<? super Throwable> errorHandler, FileWatcherListener watcherListener ->
+            onError = errorHandler
+            listener = watcherListener
+            watcher
+        }
+        mirror = new FileWatchingFileSystemMirror(new DefaultWellKnownFileLocations([fileStore]), watcherFactory)
+    }
+
+    def "retains state between builds for locations which were watched since the start of the build"() {
+        def dir = tmpDir.createDir("dir")
+        def snapshot = directory(dir)
+
+        when:
+        mirror.putSnapshot(snapshot)
+
+        then:
+        1 * watcher.watch({ it.roots as List == [dir] })
+
+        when:
+        mirror.beforeBuildFinished()
+
+        then:
+        mirror.getSnapshot(dir.path) == null
+
+        when:
+        mirror.putSnapshot(snapshot)
+        mirror.beforeBuildFinished()
+
+        then:
+        0 * watcher.watch(_)
+        mirror.getSnapshot(dir.path) == snapshot
+    }
+
+    def "discards retained state for changed location, its ancestors and descendants"() {
+        def dir = tmpDir.createDir("dir")
+        def child = dir.createDir("child")
+        def grandChild = child.createFile("file.txt")
+        def metadata = Stub(FileMetadataSnapshot)
+        def unrelated = dir.createDir("other")
+        retain(directory(dir), directory(child), directory(unrelated))
+        mirror.putMetadata(grandChild.path, metadata)
+        mirror.beforeBuildFinished()
+
+        expect:
+        mirror.getMetadata(grandChild.path) == metadata
+
+        when:
+        listener.onChange(watcher, FileWatcherEvent.modify(child))
+
+        then:
+        mirror.getSnapshot(dir.path) == null
+        mirror.getSnapshot(child.path) == null
+        mirror.getMetadata(grandChild.path) == null
+        mirror.getSnapshot(unrelated.path) != null
+    }
+
+    def "does not retain state for locations which changed during the build"() {
+        def dir = tmpDir.createDir("dir")
+        def snapshot = directory(dir)
+        retain(snapshot)
+        listener.onChange(watcher, FileWatcherEvent.create(dir.file("new.txt")))
+
+        when:
+        mirror.putSnapshot(snapshot)
+        mirror.beforeBuildFinished()
+
+        then:
+        mirror.getSnapshot(dir.path) == null
+    }
+
+    def "discards all state when events are lost"() {
+        def dir = tmpDir.createDir("dir")
+        retain(directory(dir))
+
+        when:
+        listener.onChange(watcher, FileWatcherEvent.undefined())
+
+        then:
+        mirror.getSnapshot(dir.path) == null
+
+        when:
+        mirror.putSnapshot(directory(dir))
+        mirror.beforeBuildFinished()
+
+        then:
+        mirror.getSnapshot(dir.path) == null
+    }
+
+    def "discards all state and stops watching when the watcher fails"() {
+        def dir = tmpDir.createDir("dir")
+        retain(directory(dir))
+
+        when:
+        onError.execute(new IOException("broken"))
+
+        then:
+        1 * watcher.stop()
+        mirror.getSnapshot(dir.path) == null
+    }
+
+    def "does not watch or retain state for locations in the caches"() {
+        def dir = cacheDir.createDir("some/dir")
+        def snapshot = directory(dir)
+
+        when:
+        mirror.putSnapshot(snapshot)
+
+        then:
+        0 * watcher.watch(_)
+        mirror.getSnapshot(dir.path) == snapshot
+
+        when:
+        mirror.beforeBuildFinished()
+
+        then:
+        mirror.getSnapshot(dir.path) == null
+    }
+
+    private void retain(DirectorySnapshot... snapshots) {
+        snapshots.each { mirror.putSnapshot(it) }
+        mirror.beforeBuildFinished()
+        snapshots.each { mirror.putSnapshot(it) }
+        mirror.beforeBuildFinished()
+    }
+
+    private DirectorySnapshot directory(File dir) {
+        def snapshot = Stub(DirectorySnapshot)
+        _ * snapshot.absolutePath >> dir.path
+        _ * snapshot.type >> FileType.Directory
+        return snapshot
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.hash
+
+import org.gradle.api.UncheckedIOException
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
+import spock.lang.Specification
+import spock.lang.Unroll
+
+import java.nio.ByteBuffer
+
+class DefaultFileHasherTest extends Specification {
+    @Rule
+    TestNameTestDirectoryProvider tmpDir = new TestNameTestDirectoryProvider()
+
+    def streamHasher = new DefaultStreamHasher()
+    def streamingFileHasher = new DefaultFileHasher(streamHasher, Long.MAX_VALUE)
+    def mappingFileHasher = new DefaultFileHasher(streamHasher, 0)
+
+    @Unroll
+    def "mapped and streamed hashing produce the same hash for #length bytes"() {
+        def file = tmpDir.file("file.bin")
+        def bytes = new byte[length]
+        new Random(length).nextBytes(bytes)
+        file.bytes = bytes
+
+        expect:
+        mappingFileHasher.hash(file) == streamingFileHasher.hash(file)
+        mappingFileHasher.hash(file) == streamHasher.hash(new ByteArrayInputStream(bytes))
+
+        where:
+        length << [0, 1, 15, 16, 17, 8192, 8193, 100000]
+    }
+
+    def "hashes mapped files with the hasher of the given stream hasher"() {
+        def file = tmpDir.file("file.bin")
+        file.bytes = new byte[100]
+        def hasher = Mock(PrimitiveHasher)
+        def hash = HashCode.fromInt(1234)
+        def streamHasher = Mock(StreamHasher)
+        def fileHasher = new DefaultFileHasher(streamHasher, 0)
+
+        when:
+        def result = fileHasher.hash(file)
+
+        then:
+        1 * streamHasher.newContentHasher() >> hasher
+        1 * hasher.putBytes(_ as ByteBuffer)
+        1 * hasher.hash() >> hash
+        result == hash
+    }
+
+    def "falls back to streamed hashing when the mapped content of a file cannot be read"() {
+        def file = tmpDir.file("file.bin")
+        file.bytes = new byte[100]
+        def hasher = Mock(PrimitiveHasher)
+        def hash = HashCode.fromInt(1234)
+        def streamHasher = Mock(StreamHasher)
+        def fileHasher = new DefaultFileHasher(streamHasher, 0)
+
+        when:
+        def result = fileHasher.hash(file)
+
+        then:
+        1 * streamHasher.newContentHasher() >> hasher
+        1 * hasher.putBytes(_ as ByteBuffer) >> { throw new InternalError("a fault occurred in an unsafe memory access operation") }
+        1 * streamHasher.hash(_ as InputStream) >> hash
+        0 * hasher.hash()
+        result == hash
+    }
+
+    @Unroll
+    def "reports missing file"() {
+        def file = tmpDir.file("missing.bin")
+
+        when:
+        fileHasher.hash(file)
+
+        then:
+        def e = thrown(UncheckedIOException)
+        e.message == "Failed to create hash for file '$file' as it does not exist."
+
+        where:
+        fileHasher << [streamingFileHasher, mappingFileHasher]
+    }
+}
@@ -62,6 +62,11 @@ gradlebuildJava {
     moduleType = ModuleType.CORE
 }
 
+sourceSets.test {
+    // The POMs parsed by the benchmarks are also used to check that the streamed POM DOM gives the same model as a full DOM
+    resources.srcDir("src/jmh/resources")
+}
+
 testFixtures {
     from(":core")
     from(":messaging")
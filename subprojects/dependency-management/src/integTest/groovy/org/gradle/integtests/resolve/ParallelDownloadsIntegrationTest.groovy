@@ -190,6 +190,50 @@ class ParallelDownloadsIntegrationTest extends AbstractHttpDependencyResolutionT
         build.waitForFinish()
     }
 
+    def "downloads metadata of transitive dependencies declared by different modules in parallel"() {
+        def a = mavenRepo.module('test', 'a', '1.0').publish()
+        def b = mavenRepo.module('test', 'b', '1.0').publish()
+        def m1 = mavenRepo.module('test', 'test1', '1.0').dependsOn(a).publish()
+        def m2 = mavenRepo.module('test', 'test2', '1.0').dependsOn(b).publish()
+
+        buildFile << """
+            repositories {
+                maven { 
+                    url = uri('$server.uri')
+                    $authConfig
+                }
+            }
+            configurations { compile }
+            dependencies {
+                compile 'test:test1:1.0'
+                compile 'test:test2:1.0'
+            }
+            task resolve {
+                inputs.files configurations.compile
+                doLast {
+                    println configurations.compile.files
+                }
+            }
+"""
+
+        given:
+        server.expectConcurrent(
+            server.get(m1.pom.path).sendFile(m1.pom.file),
+            server.get(m2.pom.path).sendFile(m2.pom.file))
+        server.expectConcurrent(
+            server.get(a.pom.path).sendFile(a.pom.file),
+            server.get(b.pom.path).sendFile(b.pom.file))
+        server.expectConcurrent(
+            server.get(m1.artifact.path).sendFile(m1.artifact.file),
+            server.get(m2.artifact.path).sendFile(m2.artifact.file),
+            server.get(a.artifact.path).sendFile(a.artifact.file),
+            server.get(b.artifact.path).sendFile(b.artifact.file))
+
+        expect:
+        executer.withArguments('--max-workers', '4')
+        succeeds("resolve")
+    }
+
     def "component metadata rules are executed synchronously"() {
         def m1 = ivyRepo.module('test', 'test1', '1.0').publish()
         def m2 = ivyRepo.module('test', 'test2', '1.0').publish()
@@ -0,0 +1,135 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice.ivyresolve.parser;
+
+import org.apache.commons.io.IOUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.w3c.dom.Document;
+import org.xml.sax.EntityResolver;
+import org.xml.sax.InputSource;
+
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parses a corpus of real-world POM files, comparing the reduced document built by {@link PomDomBuilder} with a full DOM parse.
+ * Run with {@code -prof gc} to compare the allocation rates as well.
+ */
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class PomParsingBenchmark {
+    private static final String[] CORPUS = {
+        "apache-19.pom",
+        "apache-21.pom",
+        "commons-lang3-3.8.1.pom",
+        "commons-parent-47.pom",
+        "guava-27.0.1-jre.pom",
+        "guava-parent-27.0.1-jre.pom",
+        "hamcrest-core-1.3.pom",
+        "hamcrest-parent-1.3.pom",
+        "hibernate-core-5.4.1.Final.pom",
+        "jackson-base-2.9.8.pom",
+        "jackson-bom-2.9.8.pom",
+        "jackson-databind-2.9.8.pom",
+        "jackson-parent-2.9.1.2.pom",
+        "junit-4.12.pom",
+        "kotlin-stdlib-1.3.21.pom",
+        "log4j-2.11.2.pom",
+        "log4j-core-2.11.2.pom",
+        "logging-parent-1.pom",
+        "maven-3.6.0.pom",
+        "maven-core-3.6.0.pom",
+        "maven-parent-33.pom",
+        "mockito-core-2.25.0.pom",
+        "netty-all-4.1.33.Final.pom",
+        "netty-parent-4.1.33.Final.pom",
+        "okhttp-3.13.1.pom",
+        "oss-parent-34.pom",
+        "oss-parent-7.pom",
+        "parent-3.13.1.pom",
+        "reactor-core-3.2.6.RELEASE.pom",
+        "slf4j-api-1.7.26.pom",
+        "slf4j-parent-1.7.26.pom",
+        "spring-boot-dependencies-2.1.3.RELEASE.pom",
+        "spring-boot-starter-parent-2.1.3.RELEASE.pom",
+        "spring-core-5.1.5.RELEASE.pom"
+    };
+
+    private byte[][] poms;
+    private DocumentBuilderFactory documentBuilderFactory;
+    private EntityResolver entityResolver;
+
+    @Setup
+    public void loadCorpus() throws Exception {
+        poms = new byte[CORPUS.length][];
+        for (int i = 0; i < CORPUS.length; i++) {
+            InputStream stream = PomParsingBenchmark.class.getResourceAsStream("poms/" + CORPUS[i]);
+            try {
+                poms[i] = IOUtils.toByteArray(stream);
+            } finally {
+                stream.close();
+            }
+        }
+        documentBuilderFactory = DocumentBuilderFactory.newInstance();
+        documentBuilderFactory.setValidating(false);
+        final byte[] entities = IOUtils.toByteArray(org.apache.ivy.plugins.parser.m2.PomReader.class.getResourceAsStream("m2-entities.ent"));
+        entityResolver = new EntityResolver() {
+            @Override
+            public InputSource resolveEntity(String publicId, String systemId) {
+                if ((systemId != null) && systemId.endsWith("m2-entities.ent")) {
+                    return new InputSource(new ByteArrayInputStream(entities));
+                }
+                return null;
+            }
+        };
+    }
+
+    @Benchmark
+    public void fullDom(Blackhole blackhole) throws Exception {
+        for (int i = 0; i < poms.length; i++) {
+            DocumentBuilder documentBuilder = documentBuilderFactory.newDocumentBuilder();
+            documentBuilder.setEntityResolver(entityResolver);
+            Document document = documentBuilder.parse(new PomDomParser.AddDTDFilterInputStream(new ByteArrayInputStream(poms[i])), CORPUS[i]);
+            blackhole.consume(document);
+        }
+    }
+
+    @Benchmark
+    public void streamingDom(Blackhole blackhole) throws Exception {
+        for (int i = 0; i < poms.length; i++) {
+            Document document = PomDomBuilder.parse(new ByteArrayInputStream(poms[i]), CORPUS[i]);
+            blackhole.consume(document);
+        }
+    }
+}
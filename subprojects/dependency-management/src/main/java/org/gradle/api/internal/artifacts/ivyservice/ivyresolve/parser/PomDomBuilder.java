@@ -0,0 +1,282 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice.ivyresolve.parser;
+
+import com.google.common.collect.ImmutableSet;
+import org.apache.commons.io.IOUtils;
+import org.gradle.internal.UncheckedException;
+import org.gradle.internal.classloader.ClassLoaderUtils;
+import org.w3c.dom.DOMImplementation;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+
+import javax.annotation.Nullable;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLResolver;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Builds the DOM of a POM file using a streaming parser.
+ *
+ * Only the elements that are read by {@link PomReader} are added to the document. The other sections of a POM, such as the build, reporting or
+ * developers sections, are parsed but never materialized, as they often make up most of the file and are irrelevant to dependency resolution.
+ */
+final class PomDomBuilder {
+    private static final String PROJECT = "project";
+    private static final String MODEL = "model";
+    private static final String PROFILES = "profiles";
+    private static final String PROFILE = "profile";
+    private static final Set<String> PROJECT_ELEMENTS = ImmutableSet.of("groupId", "artifactId", "version", "packaging", "parent", "dependencies", "dependencyManagement", "distributionManagement", "properties", PROFILES);
+    private static final Set<String> PROFILE_ELEMENTS = ImmutableSet.of("id", "activation", "properties", "dependencies", "dependencyManagement");
+
+    private static final byte[] M2_ENTITIES_RESOURCE;
+    private static final XMLInputFactory XML_INPUT_FACTORY;
+    private static final DOMImplementation DOM_IMPLEMENTATION;
+
+    static {
+        byte[] bytes;
+        try {
+            bytes = IOUtils.toByteArray(org.apache.ivy.plugins.parser.m2.PomReader.class.getResourceAsStream("m2-entities.ent"));
+        } catch (IOException e) {
+            throw UncheckedException.throwAsUncheckedException(e);
+        }
+        M2_ENTITIES_RESOURCE = bytes;
+
+        // Set the context classloader the bootstrap classloader, to work around the way that JAXP locates implementation classes
+        // This should ensure that the JAXP classes provided by the JVM are used, rather than some other implementation
+        ClassLoader original = Thread.currentThread().getContextClassLoader();
+        Thread.currentThread().setContextClassLoader(ClassLoaderUtils.getPlatformClassLoader());
+        try {
+            XML_INPUT_FACTORY = XMLInputFactory.newInstance();
+            XML_INPUT_FACTORY.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, false);
+            XML_INPUT_FACTORY.setProperty(XMLInputFactory.IS_VALIDATING, false);
+            XML_INPUT_FACTORY.setProperty(XMLInputFactory.SUPPORT_DTD, true);
+            XML_INPUT_FACTORY.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, true);
+            XML_INPUT_FACTORY.setProperty(XMLInputFactory.IS_REPLACING_ENTITY_REFERENCES, true);
+            XML_INPUT_FACTORY.setXMLResolver(new XMLResolver() {
+                @Override
+                public Object resolveEntity(String publicId, String systemId, String baseUri, String namespace) {
+                    if ((systemId != null) && systemId.endsWith("m2-entities.ent")) {
+                        return new ByteArrayInputStream(M2_ENTITIES_RESOURCE);
+                    }
+                    return null;
+                }
+            });
+            DOM_IMPLEMENTATION = DocumentBuilderFactory.newInstance().newDocumentBuilder().getDOMImplementation();
+        } catch (ParserConfigurationException e) {
+            throw UncheckedException.throwAsUncheckedException(e);
+        } finally {
+            Thread.currentThread().setContextClassLoader(original);
+        }
+    }
+
+    private PomDomBuilder() {
+    }
+
+    public static Document parse(InputStream stream, String systemId) throws IOException, XMLStreamException {
+        return parseSnapshot(stream, systemId).toDocument(systemId);
+    }
+
+    /**
+     * Parses the given POM file into an immutable snapshot, which can be shared between threads and turned into a document with {@link PomSnapshot#toDocument(String)}.
+     */
+    public static PomSnapshot parseSnapshot(InputStream stream, String systemId) throws IOException, XMLStreamException {
+        XMLStreamReader reader = XML_INPUT_FACTORY.createXMLStreamReader(systemId, new PomDomParser.AddDTDFilterInputStream(stream));
+        try {
+            return new PomSnapshot(buildSnapshot(reader));
+        } finally {
+            reader.close();
+        }
+    }
+
+    @Nullable
+    private static NodeSnapshot buildSnapshot(XMLStreamReader reader) throws XMLStreamException {
+        // The elements being built, from the root element to the current element
+        Deque<ElementBuilder> elements = new ArrayDeque<ElementBuilder>();
+        NodeSnapshot root = null;
+        while (reader.hasNext()) {
+            switch (reader.next()) {
+                case XMLStreamConstants.START_ELEMENT:
+                    String name = reader.getLocalName();
+                    if (isRetained(elements, name)) {
+                        elements.push(new ElementBuilder(name));
+                    } else {
+                        skipElement(reader);
+                    }
+                    break;
+                case XMLStreamConstants.END_ELEMENT:
+                    NodeSnapshot element = elements.pop().build();
+                    if (elements.isEmpty()) {
+                        root = element;
+                    } else {
+                        elements.peek().children.add(element);
+                    }
+                    break;
+                case XMLStreamConstants.CHARACTERS:
+                case XMLStreamConstants.SPACE:
+                    // Text is only ever read from elements without child elements, so there's no need to keep the whitespace between child elements
+                    if (!elements.isEmpty() && !(reader.isWhiteSpace() && elements.peek().endsWithElement())) {
+                        elements.peek().children.add(new NodeSnapshot(Node.TEXT_NODE, reader.getText(), null));
+                    }
+                    break;
+                case XMLStreamConstants.CDATA:
+                    if (!elements.isEmpty()) {
+                        elements.peek().children.add(new NodeSnapshot(Node.CDATA_SECTION_NODE, reader.getText(), null));
+                    }
+                    break;
+                case XMLStreamConstants.COMMENT:
+                    // Only the comments of the project element are read, to find the Gradle metadata marker
+                    if (elements.size() == 1) {
+                        elements.peek().children.add(new NodeSnapshot(Node.COMMENT_NODE, reader.getText(), null));
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+        return root;
+    }
+
+    /**
+     * Decides whether an element with the given name is added to its parent, the first of the given elements.
+     */
+    private static boolean isRetained(Deque<ElementBuilder> elements, String name) {
+        switch (elements.size()) {
+            case 0:
+                // The root element
+                return true;
+            case 1:
+                // A child of the root element. Retain nothing when the root element is not a project, as the POM will be rejected anyway
+                return isProject(elements.peek().name) && PROJECT_ELEMENTS.contains(name);
+            case 3:
+                Iterator<ElementBuilder> ancestors = elements.iterator();
+                if (PROFILE.equals(ancestors.next().name) && PROFILES.equals(ancestors.next().name)) {
+                    return PROFILE_ELEMENTS.contains(name);
+                }
+                return true;
+            default:
+                return true;
+        }
+    }
+
+    private static boolean isProject(String name) {
+        return PROJECT.equals(name) || MODEL.equals(name);
+    }
+
+    /**
+     * Consumes the current element and all its content, without allocating any node for it.
+     */
+    private static void skipElement(XMLStreamReader reader) throws XMLStreamException {
+        int depth = 1;
+        while (depth > 0) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                depth++;
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+            }
+        }
+    }
+
+    /**
+     * The retained content of a POM file. This is immutable, so it can be read concurrently, unlike a DOM.
+     */
+    static final class PomSnapshot {
+        private final NodeSnapshot root;
+
+        private PomSnapshot(@Nullable NodeSnapshot root) {
+            this.root = root;
+        }
+
+        /**
+         * Creates a new document with the content of this snapshot.
+         */
+        public Document toDocument(String systemId) {
+            Document document = DOM_IMPLEMENTATION.createDocument(null, null, null);
+            document.setDocumentURI(systemId);
+            if (root != null) {
+                document.appendChild(root.toNode(document));
+            }
+            return document;
+        }
+    }
+
+    private static final class NodeSnapshot {
+        private static final NodeSnapshot[] NO_CHILDREN = new NodeSnapshot[0];
+
+        private final short type;
+        // The name of an element, or the text of any other node
+        private final String value;
+        private final NodeSnapshot[] children;
+
+        NodeSnapshot(short type, String value, @Nullable NodeSnapshot[] children) {
+            this.type = type;
+            this.value = value;
+            this.children = children == null ? NO_CHILDREN : children;
+        }
+
+        Node toNode(Document document) {
+            switch (type) {
+                case Node.ELEMENT_NODE:
+                    Element element = document.createElement(value);
+                    for (NodeSnapshot child : children) {
+                        element.appendChild(child.toNode(document));
+                    }
+                    return element;
+                case Node.TEXT_NODE:
+                    return document.createTextNode(value);
+                case Node.CDATA_SECTION_NODE:
+                    return document.createCDATASection(value);
+                case Node.COMMENT_NODE:
+                    return document.createComment(value);
+                default:
+                    throw new IllegalStateException("Unexpected node type: " + type);
+            }
+        }
+    }
+
+    private static final class ElementBuilder {
+        private final String name;
+        private final List<NodeSnapshot> children = new ArrayList<NodeSnapshot>();
+
+        ElementBuilder(String name) {
+            this.name = name;
+        }
+
+        boolean endsWithElement() {
+            return !children.isEmpty() && children.get(children.size() - 1).type == Node.ELEMENT_NODE;
+        }
+
+        NodeSnapshot build() {
+            return new NodeSnapshot(Node.ELEMENT_NODE, name, children.toArray(new NodeSnapshot[0]));
+        }
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice.ivyresolve.parser;
+
+import com.google.common.base.Objects;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.gradle.api.Transformer;
+import org.gradle.api.artifacts.ModuleIdentifier;
+import org.gradle.cache.internal.HeapProportionalCacheSizer;
+import org.gradle.internal.resource.local.LocallyAvailableExternalResource;
+import org.w3c.dom.Document;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.io.File;
+import java.io.InputStream;
+
+/**
+ * Caches the content of parent POMs and imported BOMs across builds.
+ *
+ * <p>Many modules share the same parent POMs or import the same BOMs, which would otherwise be parsed again for each of them. Entries are keyed by module and
+ * by the path, length and last modified time of the POM file, so that a POM file which has changed is parsed again without reading the file on each lookup.
+ * The cache holds immutable snapshots of the retained content, rather than documents, and its size is bounded relative to the heap.</p>
+ */
+@ThreadSafe
+public class PomDomCache {
+    private static final int MAX_ENTRIES = 2000;
+
+    private final Cache<CacheKey, PomDomBuilder.PomSnapshot> snapshots = CacheBuilder.newBuilder().maximumSize(new HeapProportionalCacheSizer().scaleCacheSize(MAX_ENTRIES)).build();
+
+    /**
+     * Returns a new document with the content of the given POM file.
+     */
+    public Document getDocument(ModuleIdentifier module, final LocallyAvailableExternalResource resource) {
+        File file = resource.getFile();
+        final String systemId = file.toURI().toASCIIString();
+        CacheKey key = new CacheKey(module, file);
+        PomDomBuilder.PomSnapshot snapshot = snapshots.getIfPresent(key);
+        if (snapshot == null) {
+            // Another thread may parse the same file concurrently, which is harmless
+            snapshot = resource.withContent(new Transformer<PomDomBuilder.PomSnapshot, InputStream>() {
+                @Override
+                public PomDomBuilder.PomSnapshot transform(InputStream inputStream) {
+                    try {
+                        return PomDomBuilder.parseSnapshot(inputStream, systemId);
+                    } catch (Exception e) {
+                        throw new MetaDataParseException("POM", resource, e);
+                    }
+                }
+            }).getResult();
+            snapshots.put(key, snapshot);
+        }
+        return snapshot.toDocument(systemId);
+    }
+
+    private static class CacheKey {
+        private final ModuleIdentifier module;
+        private final String path;
+        private final long length;
+        private final long lastModified;
+
+        CacheKey(ModuleIdentifier module, File file) {
+            this.module = module;
+            this.path = file.getAbsolutePath();
+            this.length = file.length();
+            this.lastModified = file.lastModified();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            CacheKey cacheKey = (CacheKey) o;
+            return length == cacheKey.length
+                && lastModified == cacheKey.lastModified
+                && module.equals(cacheKey.module)
+                && path.equals(cacheKey.path);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hashCode(module, path, length, lastModified);
+        }
+    }
+}
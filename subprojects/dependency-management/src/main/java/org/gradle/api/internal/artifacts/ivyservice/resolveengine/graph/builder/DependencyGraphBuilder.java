@@ -66,6 +66,7 @@ import org.gradle.internal.resolve.result.DefaultBuildableComponentResolveResult
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.annotation.Nullable;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
@@ -164,20 +165,12 @@ public class DependencyGraphBuilder {
      */
     private void traverseGraph(final ResolveState resolveState, final Map<ModuleVersionIdentifier, ComponentIdentifier> componentIdentifierCache) {
         resolveState.onMoreSelected(resolveState.getRoot());
-        final List<EdgeState> dependencies = Lists.newArrayList();
+        final List<NodeState> nodes = Lists.newArrayList();
+        final List<List<EdgeState>> dependencies = Lists.newArrayList();
 
         while (resolveState.peek() != null || moduleConflictHandler.hasConflicts() || capabilitiesConflictHandler.hasConflicts()) {
             if (resolveState.peek() != null) {
-                final NodeState node = resolveState.pop();
-                LOGGER.debug("Visiting configuration {}.", node);
-
-                // Register capabilities for this node
-                registerCapabilities(resolveState, node);
-
-                // Initialize and collect any new outgoing edges of this node
-                dependencies.clear();
-                node.visitOutgoingDependencies(dependencies);
-                resolveEdges(node, dependencies, resolveState, componentIdentifierCache);
+                visitQueuedNodes(resolveState, nodes, dependencies, componentIdentifierCache);
             } else {
                 // We have some batched up conflicts. Resolve the first, and continue traversing the graph
                 if (moduleConflictHandler.hasConflicts()) {
@@ -190,6 +183,62 @@ public class DependencyGraphBuilder {
         }
     }
 
+    /**
+     * Visits a batch of queued nodes. Selection is performed for each node in queue order, then the metadata for all the newly selected
+     * components of the batch is downloaded at once, and finally the edges are attached in queue order.
+     *
+     * A node is only added to the batch when doing so cannot change the outcome of the traversal: the batch stops as soon as a selection
+     * introduces a conflict or changes a previous selection, or when the next node declares capabilities, because these depend on the
+     * nodes attached by the previous ones.
+     */
+    private void visitQueuedNodes(ResolveState resolveState, List<NodeState> nodes, List<List<EdgeState>> dependencies, Map<ModuleVersionIdentifier, ComponentIdentifier> componentIdentifierCache) {
+        nodes.clear();
+        boolean selectionChanged;
+        boolean canVisitMore;
+        do {
+            final NodeState node = resolveState.pop();
+            LOGGER.debug("Visiting configuration {}.", node);
+
+            // Register capabilities for this node
+            registerCapabilities(resolveState, node);
+
+            // Initialize and collect any new outgoing edges of this node
+            List<EdgeState> nodeDependencies = dependenciesAt(dependencies, nodes.size());
+            node.visitOutgoingDependencies(nodeDependencies);
+            nodes.add(node);
+
+            selectionChanged = performSelectionSerially(nodeDependencies, resolveState);
+            canVisitMore = !selectionChanged && canJoinBatch(resolveState.peek());
+        } while (canVisitMore);
+
+        if (nodes.size() > 1 && (selectionChanged || moduleConflictHandler.hasConflicts() || capabilitiesConflictHandler.hasConflicts())) {
+            // The last selection may have deselected nodes visited earlier in this batch, in which case their outgoing edges have been removed and must not be attached
+            for (int i = 0; i < nodes.size() - 1; i++) {
+                dependencies.get(i).retainAll(nodes.get(i).getOutgoingEdges());
+            }
+        }
+        maybeDownloadMetadataInParallel(nodes, dependencies, componentIdentifierCache);
+        for (int i = 0; i < nodes.size(); i++) {
+            attachToTargetRevisionsSerially(dependencies.get(i));
+        }
+    }
+
+    private static List<EdgeState> dependenciesAt(List<List<EdgeState>> dependencies, int index) {
+        if (index == dependencies.size()) {
+            dependencies.add(Lists.<EdgeState>newArrayList());
+        }
+        List<EdgeState> nodeDependencies = dependencies.get(index);
+        nodeDependencies.clear();
+        return nodeDependencies;
+    }
+
+    private boolean canJoinBatch(@Nullable NodeState next) {
+        return next != null
+            && !moduleConflictHandler.hasConflicts()
+            && !capabilitiesConflictHandler.hasConflicts()
+            && !next.hasCapabilities();
+    }
+
     private void registerCapabilities(final ResolveState resolveState, final NodeState node) {
         node.forEachCapability(new Action<Capability>() {
             @Override
@@ -228,31 +277,23 @@ public class DependencyGraphBuilder {
         });
     }
 
-    private void resolveEdges(final NodeState node,
-                              final List<EdgeState> dependencies,
-                              final ResolveState resolveState,
-                              final Map<ModuleVersionIdentifier, ComponentIdentifier> componentIdentifierCache) {
-        if (dependencies.isEmpty()) {
-            return;
-        }
-        performSelectionSerially(dependencies, resolveState);
-        maybeDownloadMetadataInParallel(node, componentIdentifierCache, dependencies);
-        attachToTargetRevisionsSerially(dependencies);
-
-    }
-
-    private void performSelectionSerially(List<EdgeState> dependencies, ResolveState resolveState) {
+    /**
+     * Performs selection for the given dependencies, returning true if an existing selection was changed.
+     */
+    private boolean performSelectionSerially(List<EdgeState> dependencies, ResolveState resolveState) {
+        boolean selectionChanged = false;
         for (EdgeState dependency : dependencies) {
             SelectorState selector = dependency.getSelector();
             ModuleResolveState module = selector.getTargetModule();
 
             if (!selector.isResolved()) {
                 // Have an unprocessed/new selector for this module. Need to re-select the target version.
-                performSelection(resolveState, module);
+                selectionChanged |= performSelection(resolveState, module);
             }
 
             module.addUnattachedDependency(dependency);
         }
+        return selectionChanged;
     }
 
     /**
@@ -260,22 +301,26 @@ public class DependencyGraphBuilder {
      * On successful resolve, a `ComponentState` is constructed for the identifier, recorded as {@link ModuleResolveState#selected},
      * and added to the graph.
      * On resolve failure, the failure is recorded and no `ComponentState` is selected.
+     *
+     * @return true if a previously selected component was replaced
      */
-    private void performSelection(ResolveState resolveState, ModuleResolveState module) {
+    private boolean performSelection(ResolveState resolveState, ModuleResolveState module) {
         ComponentState currentSelection = module.getSelected();
 
         try {
             module.maybeUpdateSelection();
         } catch (ModuleVersionResolveException e) {
             // Ignore: All selectors failed, and will have failures recorded
-            return;
+            return currentSelection != null && module.getSelected() != currentSelection;
         }
 
         // If no current selection for module, just use the candidate.
         if (currentSelection == null) {
             // This is the first time we've seen the module, so register with conflict resolver.
             checkForModuleConflicts(resolveState, module);
+            return false;
         }
+        return module.getSelected() != currentSelection;
     }
 
     private void checkForModuleConflicts(ResolveState resolveState, ModuleResolveState module) {
@@ -294,25 +339,28 @@ public class DependencyGraphBuilder {
     /**
      * Prepares the resolution of edges, either serially or concurrently.
      * It uses a simple heuristic to determine if we should perform concurrent resolution, based on the the number of edges, and whether they have unresolved metadata.
+     * Components selected by several nodes of the batch are only downloaded once.
      */
-    private void maybeDownloadMetadataInParallel(NodeState node, Map<ModuleVersionIdentifier, ComponentIdentifier> componentIdentifierCache, List<EdgeState> dependencies) {
-        List<ComponentState> requiringDownload = null;
-        for (EdgeState dependency : dependencies) {
-            ComponentState targetComponent = dependency.getTargetComponent();
-            if (targetComponent != null && targetComponent.isSelected() && !targetComponent.alreadyResolved()) {
-                if (!metaDataResolver.isFetchingMetadataCheap(toComponentId(targetComponent.getId(), componentIdentifierCache))) {
-                    // Avoid initializing the list if there are no components requiring download (a common case)
-                    if (requiringDownload == null) {
-                        requiringDownload = Lists.newArrayList();
+    private void maybeDownloadMetadataInParallel(List<NodeState> nodes, List<List<EdgeState>> dependencies, Map<ModuleVersionIdentifier, ComponentIdentifier> componentIdentifierCache) {
+        Set<ComponentState> requiringDownload = null;
+        for (int i = 0; i < nodes.size(); i++) {
+            for (EdgeState dependency : dependencies.get(i)) {
+                ComponentState targetComponent = dependency.getTargetComponent();
+                if (targetComponent != null && targetComponent.isSelected() && !targetComponent.alreadyResolved()) {
+                    if (!metaDataResolver.isFetchingMetadataCheap(toComponentId(targetComponent.getId(), componentIdentifierCache))) {
+                        // Avoid initializing the set if there are no components requiring download (a common case)
+                        if (requiringDownload == null) {
+                            requiringDownload = Sets.newLinkedHashSet();
+                        }
+                        requiringDownload.add(targetComponent);
                     }
-                    requiringDownload.add(targetComponent);
                 }
             }
         }
         // Only download in parallel if there is more than 1 component to download
         if (requiringDownload != null && requiringDownload.size() > 1) {
             final ImmutableList<ComponentState> toDownloadInParallel = ImmutableList.copyOf(requiringDownload);
-            LOGGER.debug("Submitting {} metadata files to resolve in parallel for {}", toDownloadInParallel.size(), node);
+            LOGGER.debug("Submitting {} metadata files to resolve in parallel for {}", toDownloadInParallel.size(), nodes);
             buildOperationExecutor.runAll(new Action<BuildOperationQueue<RunnableBuildOperation>>() {
                 @Override
                 public void execute(BuildOperationQueue<RunnableBuildOperation> buildOperationQueue) {
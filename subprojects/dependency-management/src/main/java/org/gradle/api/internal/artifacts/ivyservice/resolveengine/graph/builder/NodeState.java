@@ -568,6 +568,13 @@ public class NodeState implements DependencyGraphNode {
         incomingEdges.clear();
     }
 
+    /**
+     * Returns true if {@link #forEachCapability(Action)} would visit at least one capability.
+     */
+    boolean hasCapabilities() {
+        return !metaData.getCapabilities().getCapabilities().isEmpty() || component.hasMoreThanOneSelectedNodeUsingVariantAwareResolution();
+    }
+
     void forEachCapability(Action<? super Capability> action) {
         List<? extends Capability> capabilities = metaData.getCapabilities().getCapabilities();
         // If there's more than one node selected for the same component, we need to add
@@ -0,0 +1,154 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice.ivyresolve.parser
+
+import org.apache.ivy.plugins.parser.m2.PomReader as IvyPomReader
+import org.gradle.api.internal.artifacts.DefaultImmutableModuleIdentifierFactory
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.parser.data.PomDependencyMgt
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
+import org.w3c.dom.Document
+import org.xml.sax.EntityResolver
+import org.xml.sax.InputSource
+import org.xml.sax.SAXException
+import spock.lang.Specification
+import spock.lang.Unroll
+
+import javax.xml.parsers.DocumentBuilderFactory
+
+class PomDomBuilderTest extends Specification {
+    @Rule
+    final TestNameTestDirectoryProvider tmpDir = new TestNameTestDirectoryProvider()
+    final moduleIdentifierFactory = new DefaultImmutableModuleIdentifierFactory()
+
+    @Unroll
+    def "builds a document giving the same POM model as the full DOM of #pom.name"() {
+        when:
+        def expected = model(fullDom(pom))
+        def actual = model(streamedDom(pom))
+
+        then:
+        actual == expected
+
+        where:
+        pom << poms()
+    }
+
+    def "builds a document giving the same relocation and exclusions as the full DOM"() {
+        given:
+        def pom = tmpDir.file("relocated.pom") << """
+<project>
+    <groupId>group-one</groupId>
+    <artifactId>artifact-one</artifactId>
+    <version>1.0</version>
+    <build>
+        <plugins>
+            <plugin><artifactId>ignored</artifactId></plugin>
+        </plugins>
+    </build>
+    <dependencies>
+        <dependency>
+            <groupId>group-two</groupId>
+            <artifactId>artifact-two</artifactId>
+            <version>2.0</version>
+            <optional>true</optional>
+            <exclusions>
+                <exclusion>
+                    <groupId>group-three</groupId>
+                    <artifactId>artifact-three</artifactId>
+                </exclusion>
+            </exclusions>
+        </dependency>
+    </dependencies>
+    <distributionManagement>
+        <relocation>
+            <groupId>group-four</groupId>
+        </relocation>
+    </distributionManagement>
+</project>
+"""
+
+        when:
+        def expected = model(fullDom(pom))
+        def actual = model(streamedDom(pom))
+
+        then:
+        expected.relocation == "group-four:artifact-one:1.0"
+        expected.dependencies == [["group-two", "artifact-two", "2.0", null, "jar", null, ["group-three:artifact-three"], true]]
+        actual == expected
+    }
+
+    private static List<File> poms() {
+        def dir = new File(PomDomBuilderTest.getResource("poms").toURI())
+        return dir.listFiles().findAll { it.name.endsWith(".pom") }.sort { it.name }
+    }
+
+    private static Document fullDom(File pom) {
+        def builder = DocumentBuilderFactory.newInstance().newDocumentBuilder()
+        builder.entityResolver = new EntityResolver() {
+            @Override
+            InputSource resolveEntity(String publicId, String systemId) throws SAXException, IOException {
+                if (systemId != null && systemId.endsWith("m2-entities.ent")) {
+                    return new InputSource(IvyPomReader.getResourceAsStream("m2-entities.ent"))
+                }
+                return null
+            }
+        }
+        return pom.withInputStream { builder.parse(new PomDomParser.AddDTDFilterInputStream(it), pom.toURI().toASCIIString()) }
+    }
+
+    private static Document streamedDom(File pom) {
+        return pom.withInputStream { PomDomBuilder.parse(it, pom.toURI().toASCIIString()) }
+    }
+
+    private Map<String, Object> model(Document document) {
+        def reader = new PomReader(document, moduleIdentifierFactory, [:])
+        def model = [
+            parent: reader.hasParent() ? [reader.parentGroupId, reader.parentArtifactId, reader.parentVersion] : null,
+            relocation: reader.relocation?.toString(),
+            properties: new TreeMap(reader.properties),
+            dependencies: dependencies(reader.dependencies.values()),
+            dependencyManagement: dependencies(reader.dependencyMgt.values()),
+            profiles: profiles(reader, document)
+        ]
+        reader.resolveGAV()
+        model.gav = [reader.groupId, reader.artifactId, reader.version, reader.packaging]
+        return model
+    }
+
+    private static List<Map<String, Object>> profiles(PomReader reader, Document document) {
+        def profilesElement = PomDomParser.getFirstChildElement(document.documentElement, "profiles")
+        if (profilesElement == null) {
+            return []
+        }
+        return PomDomParser.getAllChilds(profilesElement).findAll { it.nodeName == "profile" }.collect {
+            def profile = new PomReader.PomProfileElement(reader, it)
+            [
+                id: profile.id,
+                properties: profile.properties,
+                dependencies: dependencies(profile.dependencies),
+                dependencyManagement: dependencies(profile.dependencyMgts)
+            ]
+        }
+    }
+
+    private static List<List<Object>> dependencies(Collection<? extends PomDependencyMgt> dependencies) {
+        return dependencies.collect {
+            [it.groupId, it.artifactId, it.version, it.scope, it.type, it.classifier, it.excludedModules*.toString(), it instanceof PomReader.PomDependencyData ? it.optional : null]
+        }
+    }
+}
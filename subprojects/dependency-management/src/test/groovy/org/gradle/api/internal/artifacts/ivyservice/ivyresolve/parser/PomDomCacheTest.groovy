@@ -0,0 +1,105 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice.ivyresolve.parser
+
+import org.gradle.api.internal.artifacts.DefaultModuleIdentifier
+import org.gradle.api.internal.file.TestFiles
+import org.gradle.internal.resource.local.LocallyAvailableExternalResource
+import org.gradle.test.fixtures.file.TestFile
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
+import spock.lang.Specification
+
+class PomDomCacheTest extends Specification {
+    @Rule
+    final TestNameTestDirectoryProvider tmpDir = new TestNameTestDirectoryProvider()
+    final fileRepository = TestFiles.fileRepository()
+    final module = DefaultModuleIdentifier.newId('group', 'parent')
+    final cache = new PomDomCache()
+    int reads
+
+    def "does not read a POM file again when it has not changed"() {
+        given:
+        def file = tmpDir.file("parent.pom") << pom('1.0')
+        def resource = resource(file)
+
+        when:
+        def firstDocument = cache.getDocument(module, resource)
+        def secondDocument = cache.getDocument(module, resource)
+
+        then:
+        reads == 1
+        !firstDocument.is(secondDocument)
+        firstDocument.documentURI == file.toURI().toASCIIString()
+        secondDocument.documentURI == file.toURI().toASCIIString()
+        new PomReader(secondDocument, null, [:]).version == '1.0'
+    }
+
+    def "parses a POM file again when it changes"() {
+        given:
+        def file = tmpDir.file("parent.pom")
+        def resource = resource(file)
+
+        when:
+        file.text = pom('1.0')
+        def firstDocument = cache.getDocument(module, resource)
+        file.text = pom('10.0')
+        file.lastModified = file.lastModified() + 2000
+        def secondDocument = cache.getDocument(module, resource)
+
+        then:
+        reads == 2
+        new PomReader(firstDocument, null, [:]).version == '1.0'
+        new PomReader(secondDocument, null, [:]).version == '10.0'
+    }
+
+    def "changes to a document are not visible to later callers"() {
+        given:
+        def file = tmpDir.file("parent.pom") << pom('1.0')
+
+        when:
+        def firstDocument = cache.getDocument(module, fileRepository.resource(file))
+        firstDocument.getElementsByTagName('version').item(0).textContent = '2.0'
+        def secondDocument = cache.getDocument(module, fileRepository.resource(file))
+
+        then:
+        new PomReader(secondDocument, null, [:]).version == '1.0'
+    }
+
+    private LocallyAvailableExternalResource resource(TestFile file) {
+        def resource = fileRepository.resource(file)
+        return Mock(LocallyAvailableExternalResource) {
+            _ * getFile() >> file
+            _ * withContent(_) >> { args ->
+                reads++
+                resource.withContent(args[0])
+            }
+        }
+    }
+
+    private static String pom(String version) {
+        """
+<project>
+    <modelVersion>4.0.0</modelVersion>
+    <groupId>group</groupId>
+    <artifactId>parent</artifactId>
+    <version>${version}</version>
+    <packaging>pom</packaging>
+</project>
+"""
+    }
+}
@@ -1016,4 +1016,80 @@ class PomReaderTest extends AbstractPomReaderTest {
         then:
         def excluded = pomReader.dependencies[keyGroupTwo].excludedModules
         excluded == [DefaultModuleIdentifier.newId('*', '*')]
-    }}
+    }
+
+    def "ignores dependencies declared in sections of the POM that are not used for dependency resolution"() {
+        when:
+        pomFile << """
+<project>
+    <modelVersion>4.0.0</modelVersion>
+    <groupId>group-one</groupId>
+    <artifactId>artifact-one</artifactId>
+    <version>version-one</version>
+    <build>
+        <plugins>
+            <plugin>
+                <groupId>plugin-group</groupId>
+                <artifactId>plugin</artifactId>
+                <dependencies>
+                    <dependency>
+                        <groupId>group-three</groupId>
+                        <artifactId>artifact-three</artifactId>
+                        <version>version-three</version>
+                    </dependency>
+                </dependencies>
+            </plugin>
+        </plugins>
+    </build>
+    <dependencies>
+        <dependency>
+            <groupId>group-two</groupId>
+            <artifactId>artifact-two</artifactId>
+            <version>version-two</version>
+        </dependency>
+    </dependencies>
+    <profiles>
+        <profile>
+            <id>profile-1</id>
+            <build>
+                <plugins>
+                    <plugin>
+                        <artifactId>plugin</artifactId>
+                        <dependencies>
+                            <dependency>
+                                <groupId>group-four</groupId>
+                                <artifactId>artifact-four</artifactId>
+                                <version>version-four</version>
+                            </dependency>
+                        </dependencies>
+                    </plugin>
+                </plugins>
+            </build>
+        </profile>
+    </profiles>
+</project>
+"""
+        pomReader = new PomReader(locallyAvailableExternalResource, moduleIdentifierFactory)
+
+        then:
+        pomReader.dependencies.keySet() == [new MavenDependencyKey('group-two', 'artifact-two', 'jar', null)] as Set
+    }
+
+    def "resolves entities and CDATA sections"() {
+        when:
+        pomFile << """
+<project>
+    <modelVersion>4.0.0</modelVersion>
+    <groupId>group&amp;one</groupId>
+    <artifactId><![CDATA[artifact<one>]]></artifactId>
+    <version>version-&oslash;ne</version>
+</project>
+"""
+        pomReader = new PomReader(locallyAvailableExternalResource, moduleIdentifierFactory)
+
+        then:
+        pomReader.groupId == 'group&one'
+        pomReader.artifactId == 'artifact<one>'
+        pomReader.version == 'version-\u00f8ne'
+    }
+}
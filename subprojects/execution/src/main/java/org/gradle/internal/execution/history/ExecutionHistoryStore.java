@@ -28,6 +28,11 @@ import java.util.Optional;
 public interface ExecutionHistoryStore {
     Optional<AfterPreviousExecutionState> load(String key);
 
+    /**
+     * Loads the execution time of the last execution with the given key, without loading the rest of its history.
+     */
+    Optional<Long> loadExecutionTime(String key);
+
     void store(String key,
                OriginMetadata originMetadata,
                ImplementationSnapshot implementation,
@@ -27,6 +27,7 @@ import org.gradle.internal.execution.history.ExecutionHistoryCacheAccess;
 import org.gradle.internal.execution.history.ExecutionHistoryStore;
 import org.gradle.internal.fingerprint.CurrentFileCollectionFingerprint;
 import org.gradle.internal.fingerprint.FileCollectionFingerprint;
+import org.gradle.internal.hash.Hashing;
 import org.gradle.internal.snapshot.ValueSnapshot;
 import org.gradle.internal.snapshot.impl.ImplementationSnapshot;
 
@@ -34,17 +35,25 @@ import java.util.Optional;
 
 import static com.google.common.collect.ImmutableSortedMap.copyOfSorted;
 import static com.google.common.collect.Maps.transformValues;
+import static org.gradle.internal.serialize.BaseSerializerFactory.LONG_SERIALIZER;
 
 public class DefaultExecutionHistoryStore implements ExecutionHistoryStore {
 
     private final PersistentIndexedCache<String, AfterPreviousExecutionState> store;
+    // The execution times are kept apart from the rest of the history, so they can be read cheaply when planning
+    private final PersistentIndexedCache<String, Long> executionTimes;
 
     public DefaultExecutionHistoryStore(ExecutionHistoryCacheAccess executionHistoryCacheAccess, StringInterner stringInterner) {
         DefaultPreviousExecutionStateSerializer serializer = new DefaultPreviousExecutionStateSerializer(
             new FileCollectionFingerprintSerializer(stringInterner));
 
         this.store = executionHistoryCacheAccess.createCache(
-            PersistentIndexedCacheParameters.of("executionHistory", String.class, serializer),
+            PersistentIndexedCacheParameters.of(Hashing.qualifyWithContentHashFunction("executionHistory"), String.class, serializer).withLogStructuredStorage(),
+            10000,
+            false
+        );
+        this.executionTimes = executionHistoryCacheAccess.createCache(
+            PersistentIndexedCacheParameters.of("executionTimes", String.class, LONG_SERIALIZER),
             10000,
             false
         );
@@ -55,6 +64,11 @@ public class DefaultExecutionHistoryStore implements ExecutionHistoryStore {
         return Optional.ofNullable(store.get(key));
     }
 
+    @Override
+    public Optional<Long> loadExecutionTime(String key) {
+        return Optional.ofNullable(executionTimes.get(key));
+    }
+
     @Override
     public void store(
         String key,
@@ -75,11 +89,13 @@ public class DefaultExecutionHistoryStore implements ExecutionHistoryStore {
             prepareForSerialization(outputFileProperties),
             successful
         ));
+        executionTimes.put(key, originMetadata.getExecutionTime());
     }
 
     @Override
     public void remove(String key) {
         store.remove(key);
+        executionTimes.remove(key);
     }
 
     private static ImmutableSortedMap<String, FileCollectionFingerprint> prepareForSerialization(ImmutableSortedMap<String, CurrentFileCollectionFingerprint> fingerprints) {
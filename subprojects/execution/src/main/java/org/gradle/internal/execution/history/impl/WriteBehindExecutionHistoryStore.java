@@ -0,0 +1,200 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.execution.history.impl;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSortedMap;
+import org.gradle.caching.internal.origin.OriginMetadata;
+import org.gradle.internal.UncheckedException;
+import org.gradle.internal.concurrent.ExecutorFactory;
+import org.gradle.internal.concurrent.ManagedExecutor;
+import org.gradle.internal.execution.history.AfterPreviousExecutionState;
+import org.gradle.internal.execution.history.ExecutionHistoryStore;
+import org.gradle.internal.fingerprint.CurrentFileCollectionFingerprint;
+import org.gradle.internal.fingerprint.FileCollectionFingerprint;
+import org.gradle.internal.snapshot.ValueSnapshot;
+import org.gradle.internal.snapshot.impl.ImplementationSnapshot;
+
+import javax.annotation.Nullable;
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * An {@link ExecutionHistoryStore} which makes the writes to the backing store on a dedicated writer thread, so that the threads executing
+ * work do not wait for the cross-process cache lock or for the backing cache to accept the history.
+ *
+ * <p>Writes are queued and handed to the backing store in batches. A queued write is visible to {@link #load(String)} until the backing store
+ * has it. {@link #flush()} waits for all the queued writes to be made, and is called at the end of each build and when the store is closed.
+ * A failure to write the history is rethrown by the next flush.</p>
+ */
+public class WriteBehindExecutionHistoryStore implements ExecutionHistoryStore, Closeable {
+    private final ExecutionHistoryStore delegate;
+    private final ManagedExecutor writer;
+    private final ConcurrentMap<String, PendingWrite> pendingWrites = new ConcurrentHashMap<>();
+    private final Queue<PendingWrite> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean writeScheduled = new AtomicBoolean();
+    private final AtomicReference<RuntimeException> failure = new AtomicReference<>();
+
+    public WriteBehindExecutionHistoryStore(ExecutionHistoryStore delegate, ExecutorFactory executorFactory) {
+        this.delegate = delegate;
+        this.writer = executorFactory.create("Execution history writer", 1);
+    }
+
+    @Override
+    public Optional<AfterPreviousExecutionState> load(String key) {
+        PendingWrite pendingWrite = pendingWrites.get(key);
+        if (pendingWrite != null) {
+            return Optional.ofNullable(pendingWrite.state);
+        }
+        return delegate.load(key);
+    }
+
+    @Override
+    public Optional<Long> loadExecutionTime(String key) {
+        PendingWrite pendingWrite = pendingWrites.get(key);
+        if (pendingWrite != null) {
+            return pendingWrite.state == null ? Optional.empty() : Optional.of(pendingWrite.state.getOriginMetadata().getExecutionTime());
+        }
+        return delegate.loadExecutionTime(key);
+    }
+
+    @Override
+    public void store(
+        String key,
+        OriginMetadata originMetadata,
+        ImplementationSnapshot implementation,
+        ImmutableList<ImplementationSnapshot> additionalImplementations,
+        ImmutableSortedMap<String, ValueSnapshot> inputProperties,
+        ImmutableSortedMap<String, CurrentFileCollectionFingerprint> inputFileProperties,
+        ImmutableSortedMap<String, CurrentFileCollectionFingerprint> outputFileProperties,
+        boolean successful
+    ) {
+        AfterPreviousExecutionState state = new DefaultAfterPreviousExecutionState(
+            originMetadata,
+            implementation,
+            additionalImplementations,
+            inputProperties,
+            ImmutableSortedMap.<String, FileCollectionFingerprint>copyOfSorted(inputFileProperties),
+            ImmutableSortedMap.<String, FileCollectionFingerprint>copyOfSorted(outputFileProperties),
+            successful
+        );
+        enqueue(new PendingWrite(key, state) {
+            @Override
+            void writeTo(ExecutionHistoryStore store) {
+                store.store(key, originMetadata, implementation, additionalImplementations, inputProperties, inputFileProperties, outputFileProperties, successful);
+            }
+        });
+    }
+
+    @Override
+    public void remove(String key) {
+        enqueue(new PendingWrite(key, null) {
+            @Override
+            void writeTo(ExecutionHistoryStore store) {
+                store.remove(key);
+            }
+        });
+    }
+
+    /**
+     * Waits for all the queued writes to be made to the backing store.
+     */
+    public void flush() {
+        if (!writer.isShutdown()) {
+            try {
+                // The writer is single threaded, so this runs once the writes queued so far have been made
+                writer.submit(() -> { }).get();
+            } catch (InterruptedException | ExecutionException e) {
+                throw UncheckedException.throwAsUncheckedException(e);
+            }
+        }
+        RuntimeException failure = this.failure.getAndSet(null);
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            flush();
+        } finally {
+            writer.stop();
+        }
+    }
+
+    private void enqueue(PendingWrite write) {
+        pendingWrites.put(write.key, write);
+        queue.add(write);
+        if (writeScheduled.compareAndSet(false, true)) {
+            writer.execute(this::writeQueued);
+        }
+    }
+
+    private void writeQueued() {
+        List<PendingWrite> batch = new ArrayList<>();
+        while (true) {
+            PendingWrite write;
+            while ((write = queue.poll()) != null) {
+                batch.add(write);
+            }
+            if (batch.isEmpty()) {
+                writeScheduled.set(false);
+                // Something may have been queued after the queue was found to be empty, but before the flag was cleared
+                if (queue.isEmpty() || !writeScheduled.compareAndSet(false, true)) {
+                    return;
+                }
+                continue;
+            }
+            for (PendingWrite pendingWrite : batch) {
+                try {
+                    // Only the latest write for a key needs to be made
+                    if (pendingWrites.get(pendingWrite.key) == pendingWrite) {
+                        pendingWrite.writeTo(delegate);
+                    }
+                } catch (RuntimeException e) {
+                    failure.compareAndSet(null, e);
+                } finally {
+                    pendingWrites.remove(pendingWrite.key, pendingWrite);
+                }
+            }
+            batch.clear();
+        }
+    }
+
+    private abstract static class PendingWrite {
+        final String key;
+        // Null for a removal
+        final AfterPreviousExecutionState state;
+
+        PendingWrite(String key, @Nullable AfterPreviousExecutionState state) {
+            this.key = key;
+            this.state = state;
+        }
+
+        abstract void writeTo(ExecutionHistoryStore store);
+    }
+}
@@ -0,0 +1,161 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.execution.history.impl
+
+import com.google.common.collect.ImmutableList
+import com.google.common.collect.ImmutableSortedMap
+import org.gradle.caching.internal.origin.OriginMetadata
+import org.gradle.internal.concurrent.DefaultExecutorFactory
+import org.gradle.internal.execution.history.AfterPreviousExecutionState
+import org.gradle.internal.execution.history.ExecutionHistoryStore
+import org.gradle.internal.snapshot.impl.ImplementationSnapshot
+import spock.lang.Specification
+
+import java.util.concurrent.CountDownLatch
+
+class WriteBehindExecutionHistoryStoreTest extends Specification {
+    def delegate = Mock(ExecutionHistoryStore)
+    def writerBlocked = new CountDownLatch(1)
+    def executorFactory = new DefaultExecutorFactory()
+    def store = new WriteBehindExecutionHistoryStore(delegate, executorFactory)
+
+    def cleanup() {
+        writerBlocked.countDown()
+        executorFactory.stop()
+    }
+
+    def "queued writes are visible before they are made to the backing store"() {
+        def originMetadata = Stub(OriginMetadata)
+        delegate.store("blocker", *_) >> { writerBlocked.await() }
+
+        when:
+        storeState("blocker")
+        storeState("key", originMetadata)
+
+        then:
+        store.load("key").get().originMetadata == originMetadata
+        0 * delegate.load(_)
+
+        when:
+        store.remove("key")
+
+        then:
+        !store.load("key").present
+        0 * delegate.load(_)
+    }
+
+    def "execution times of queued writes are visible before they are made to the backing store"() {
+        def originMetadata = Stub(OriginMetadata) {
+            getExecutionTime() >> 123
+        }
+        delegate.store("blocker", *_) >> { writerBlocked.await() }
+
+        when:
+        storeState("blocker")
+        storeState("key", originMetadata)
+
+        then:
+        store.loadExecutionTime("key").get() == 123
+        0 * delegate.loadExecutionTime(_)
+
+        when:
+        store.remove("key")
+
+        then:
+        !store.loadExecutionTime("key").present
+        0 * delegate.loadExecutionTime(_)
+
+        when:
+        def executionTime = store.loadExecutionTime("other")
+
+        then:
+        1 * delegate.loadExecutionTime("other") >> Optional.of(456L)
+        executionTime.get() == 456
+    }
+
+    def "flush waits for queued writes to be made"() {
+        when:
+        storeState("blocker")
+        storeState("a")
+        storeState("b")
+        store.remove("c")
+        writerBlocked.countDown()
+        store.flush()
+
+        then:
+        1 * delegate.store("blocker", *_) >> { writerBlocked.await() }
+        1 * delegate.store("a", *_)
+        1 * delegate.store("b", *_)
+        1 * delegate.remove("c")
+
+        when:
+        def state = store.load("a")
+
+        then:
+        1 * delegate.load("a") >> Optional.of(Stub(AfterPreviousExecutionState))
+        state.present
+    }
+
+    def "only makes the latest queued write for a key"() {
+        when:
+        storeState("blocker")
+        storeState("key")
+        store.remove("key")
+        writerBlocked.countDown()
+        store.flush()
+
+        then:
+        1 * delegate.store("blocker", *_) >> { writerBlocked.await() }
+        0 * delegate.store("key", *_)
+        1 * delegate.remove("key")
+    }
+
+    def "rethrows failure to write on flush"() {
+        def failure = new RuntimeException("broken")
+
+        when:
+        store.remove("key")
+        store.flush()
+
+        then:
+        1 * delegate.remove("key") >> { throw failure }
+        def e = thrown(RuntimeException)
+        e == failure
+
+        when:
+        store.flush()
+
+        then:
+        noExceptionThrown()
+    }
+
+    def "flushes queued writes when closed"() {
+        when:
+        storeState("blocker")
+        storeState("a")
+        writerBlocked.countDown()
+        store.close()
+
+        then:
+        1 * delegate.store("blocker", *_) >> { writerBlocked.await() }
+        1 * delegate.store("a", *_)
+    }
+
+    private void storeState(String key, OriginMetadata originMetadata = Stub(OriginMetadata)) {
+        store.store(key, originMetadata, Stub(ImplementationSnapshot), ImmutableList.of(), ImmutableSortedMap.of(), ImmutableSortedMap.of(), ImmutableSortedMap.of(), true)
+    }
+}
@@ -17,7 +17,12 @@
 package org.gradle.launcher.daemon
 
 import org.gradle.cache.internal.HeapProportionalCacheSizer
+import org.gradle.internal.filewatch.FileWatchingFileSystemMirror
+import org.gradle.internal.hash.Hashing
+import org.gradle.internal.snapshot.FileSystemMirror
 import org.gradle.integtests.fixtures.daemon.DaemonIntegrationSpec
+import org.gradle.util.Requires
+import org.gradle.util.TestPrecondition
 import spock.lang.Issue
 
 @Issue("GRADLE-2460")
@@ -230,6 +235,67 @@ task verify {
         daemons(gradleVersion).daemons.size() == 2
     }
 
+    def "forks new daemon for changed content hash function sys property"() {
+        setup:
+        executer.requireGradleDistribution()
+        buildScript """
+            println "GRADLE_VERSION: " + gradle.gradleVersion
+
+            task verify {
+                doFirst {
+                    println "verified = " + ${Hashing.name}.contentHashFunctionName()
+                }
+            }
+        """
+
+        when:
+        run "verify"
+
+        then:
+        String gradleVersion = (output =~ /GRADLE_VERSION: (.*)/)[0][1]
+        daemons(gradleVersion).daemons.size() == 1
+        output.contains("verified = md5")
+
+        when:
+        executer.withEnvironmentVars(GRADLE_OPTS: "-D${Hashing.CONTENT_HASH_FUNCTION_PROPERTY}=murmur3");
+        run "verify"
+
+        then:
+        output.contains("verified = murmur3")
+        daemons(gradleVersion).daemons.size() == 2
+    }
+
+    @Requires(TestPrecondition.NOT_MAC_OS_X)
+    def "forks new daemon for changed file system watching sys property"() {
+        setup:
+        executer.requireGradleDistribution()
+        buildScript """
+            println "GRADLE_VERSION: " + gradle.gradleVersion
+
+            task verify {
+                doFirst {
+                    println "verified = " + services.get(${FileSystemMirror.name}).getClass().simpleName
+                }
+            }
+        """
+
+        when:
+        run "verify"
+
+        then:
+        String gradleVersion = (output =~ /GRADLE_VERSION: (.*)/)[0][1]
+        daemons(gradleVersion).daemons.size() == 1
+        output.contains("verified = DefaultFileSystemMirror")
+
+        when:
+        executer.withEnvironmentVars(GRADLE_OPTS: "-D${FileWatchingFileSystemMirror.RETAIN_FILE_SYSTEM_STATE_PROPERTY}=true");
+        run "verify"
+
+        then:
+        output.contains("verified = FileWatchingFileSystemMirror")
+        daemons(gradleVersion).daemons.size() == 2
+    }
+
     String tempFolder(String folderName) {
         def dir = temporaryFolder.createDir(folderName)
         dir.mkdirs();
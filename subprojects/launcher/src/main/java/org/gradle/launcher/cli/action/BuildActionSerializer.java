@@ -22,6 +22,7 @@ import org.gradle.api.logging.LogLevel;
 import org.gradle.api.logging.configuration.ConsoleOutput;
 import org.gradle.api.logging.configuration.ShowStacktrace;
 import org.gradle.api.logging.configuration.WarningMode;
+import org.gradle.caching.internal.compress.BuildCacheCompression;
 import org.gradle.internal.DefaultTaskExecutionRequest;
 import org.gradle.internal.invocation.BuildAction;
 import org.gradle.internal.serialize.BaseSerializerFactory;
@@ -54,6 +55,7 @@ public class BuildActionSerializer {
         private final Serializer<ShowStacktrace> showStacktraceSerializer;
         private final Serializer<ConsoleOutput> consoleOutputSerializer;
         private final Serializer<WarningMode> warningModeSerializer;
+        private final Serializer<BuildCacheCompression> buildCacheCompressionSerializer;
         private final Serializer<File> nullableFileSerializer = new NullableFileSerializer();
         private final Serializer<List<String>> stringListSerializer = new ListSerializer<String>(BaseSerializerFactory.STRING_SERIALIZER);
         private final Serializer<List<File>> fileListSerializer = new ListSerializer<File>(BaseSerializerFactory.FILE_SERIALIZER);
@@ -65,6 +67,7 @@ public class BuildActionSerializer {
             showStacktraceSerializer = serializerFactory.getSerializerFor(ShowStacktrace.class);
             consoleOutputSerializer = serializerFactory.getSerializerFor(ConsoleOutput.class);
             warningModeSerializer = serializerFactory.getSerializerFor(WarningMode.class);
+            buildCacheCompressionSerializer = serializerFactory.getSerializerFor(BuildCacheCompression.class);
         }
 
         @Override
@@ -118,6 +121,7 @@ public class BuildActionSerializer {
             encoder.writeBoolean(startParameter.isBuildScan());
             encoder.writeBoolean(startParameter.isNoBuildScan());
             encoder.writeBoolean(startParameter.isWriteDependencyLocks());
+            buildCacheCompressionSerializer.write(encoder, startParameter.getBuildCacheCompression());
 
             // Deprecations (these should just be rendered on the client instead of being sent to the daemon to send them back again)
             stringSetSerializer.write(encoder, startParameter.getDeprecations());
@@ -188,6 +192,7 @@ public class BuildActionSerializer {
             startParameter.setBuildScan(decoder.readBoolean());
             startParameter.setNoBuildScan(decoder.readBoolean());
             startParameter.setWriteDependencyLocks(decoder.readBoolean());
+            startParameter.setBuildCacheCompression(buildCacheCompressionSerializer.read(decoder));
 
             for (String warning : stringSetSerializer.read(decoder)) {
                 startParameter.addDeprecation(warning);
@@ -17,6 +17,7 @@
 package org.gradle.launcher.cli
 
 import org.gradle.api.internal.StartParameterInternal
+import org.gradle.caching.internal.compress.BuildCacheCompression
 import org.gradle.internal.serialize.SerializerSpec
 import org.gradle.launcher.cli.action.BuildActionSerializer
 import org.gradle.launcher.cli.action.ExecuteBuildAction
@@ -41,6 +42,7 @@ class BuildActionSerializerTest extends SerializerSpec {
         startParameter.taskNames = ['a', 'b']
         startParameter.addDeprecation('warning 1')
         startParameter.addDeprecation('warning 2')
+        startParameter.buildCacheCompression = BuildCacheCompression.LZ4
         def action = new ExecuteBuildAction(startParameter)
 
         expect:
@@ -48,6 +50,7 @@ class BuildActionSerializerTest extends SerializerSpec {
         result instanceof ExecuteBuildAction
         result.startParameter.taskNames == ['a', 'b']
         result.startParameter.deprecations == ['warning 1', 'warning 2'] as Set
+        result.startParameter.buildCacheCompression == BuildCacheCompression.LZ4
     }
 
     def "serializes other actions"() {
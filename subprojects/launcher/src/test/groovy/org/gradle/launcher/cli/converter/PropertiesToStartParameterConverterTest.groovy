@@ -18,6 +18,7 @@ package org.gradle.launcher.cli.converter
 
 import org.gradle.api.internal.StartParameterInternal
 import org.gradle.api.logging.LogLevel
+import org.gradle.caching.internal.compress.BuildCacheCompression
 import org.gradle.initialization.ParallelismBuildOptions
 import org.gradle.initialization.StartParameterBuildOptions
 import org.gradle.internal.logging.LoggingConfigurationBuildOptions
@@ -35,6 +36,18 @@ class PropertiesToStartParameterConverterTest extends Specification {
         converter.convert([(StartParameterBuildOptions.BuildCacheOption.GRADLE_PROPERTY): "true"], new StartParameterInternal()).buildCacheEnabled
         converter.convert([(StartParameterBuildOptions.ConfigureOnDemandOption.GRADLE_PROPERTY): "TRUE"], new StartParameterInternal()).configureOnDemand
         !converter.convert([(StartParameterBuildOptions.ConfigureOnDemandOption.GRADLE_PROPERTY): "xxx"], new StartParameterInternal()).configureOnDemand
+        converter.convert([(StartParameterBuildOptions.BuildCacheCompressionOption.GRADLE_PROPERTY): "lz4"], new StartParameterInternal()).buildCacheCompression == BuildCacheCompression.LZ4
+        converter.convert([(StartParameterBuildOptions.BuildCacheCompressionOption.GRADLE_PROPERTY): "LZ4"], new StartParameterInternal()).buildCacheCompression == BuildCacheCompression.LZ4
+        converter.convert([(StartParameterBuildOptions.BuildCacheCompressionOption.GRADLE_PROPERTY): "deflate_best"], new StartParameterInternal()).buildCacheCompression == BuildCacheCompression.DEFLATE_BEST
+        converter.convert([:], new StartParameterInternal()).buildCacheCompression == BuildCacheCompression.DEFLATE
+    }
+
+    def invalidBuildCacheCompressionProperty() {
+        when:
+        converter.convert([(StartParameterBuildOptions.BuildCacheCompressionOption.GRADLE_PROPERTY): "bzip2"], new StartParameterInternal())
+        then:
+        def ex = thrown(IllegalArgumentException)
+        ex.message == "Value 'bzip2' given for org.gradle.caching.compression Gradle property is invalid (must be one of deflate, deflate_best or lz4)"
     }
 
     def invalidMaxWorkersProperty() {
@@ -16,8 +16,12 @@
 
 package org.gradle.performance.regression.buildcache
 
+import com.google.common.util.concurrent.MoreExecutors
 import org.apache.commons.compress.archivers.tar.TarArchiveInputStream
 import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream
+import org.gradle.caching.internal.compress.BuildCacheCompression
+import org.gradle.caching.internal.compress.ChunkedCompressingOutputStream
+import org.gradle.caching.internal.compress.ChunkedDecompressingInputStream
 import org.gradle.performance.fixture.BuildExperimentInvocationInfo
 import org.gradle.performance.fixture.BuildExperimentListenerAdapter
 import org.gradle.performance.fixture.GradleInvocationSpec
@@ -225,13 +229,15 @@ class TaskOutputCachingJavaPerformanceTest extends AbstractTaskOutputCachingPerf
         dir.eachFile { File cacheArchiveFile ->
             if (cacheArchiveFile.name ==~ /[a-z0-9]{32}/) {
                 def tempFile = temporaryFolder.file("re-tar-temp")
+                // Baseline versions may still use the older gzip compressed format
+                boolean gzip = isGzipCompressed(cacheArchiveFile)
                 tempFile.withOutputStream { outputStream ->
-                    def tarOutput = new TarArchiveOutputStream(new GZIPOutputStream(outputStream))
+                    def tarOutput = new TarArchiveOutputStream(gzip ? new GZIPOutputStream(outputStream) : new ChunkedCompressingOutputStream(outputStream, MoreExecutors.directExecutor(), BuildCacheCompression.DEFLATE, 1))
                     tarOutput.setLongFileMode(TarArchiveOutputStream.LONGFILE_POSIX)
                     tarOutput.setBigNumberMode(TarArchiveOutputStream.BIGNUMBER_POSIX)
                     tarOutput.setAddPaxHeadersForNonAsciiNames(true)
                     cacheArchiveFile.withInputStream { inputStream ->
-                        def tarInput = new TarArchiveInputStream(new GZIPInputStream(inputStream))
+                        def tarInput = new TarArchiveInputStream(gzip ? new GZIPInputStream(inputStream) : new ChunkedDecompressingInputStream(inputStream, MoreExecutors.directExecutor(), 1))
                         while (true) {
                             def tarEntry = tarInput.nextTarEntry
                             if (tarEntry == null) {
@@ -257,6 +263,12 @@ class TaskOutputCachingJavaPerformanceTest extends AbstractTaskOutputCachingPerf
         println "Changed file dates in $count cache artifacts in $dir in ${time} ms"
     }
 
+    private static boolean isGzipCompressed(File file) {
+        file.withInputStream { inputStream ->
+            inputStream.read() == 0x1f && inputStream.read() == 0x8b
+        }
+    }
+
     private def setupTestProject(JavaTestProject testProject, String tasks) {
         runner.testProject = testProject
         runner.gradleOpts = ["-Xms${testProject.daemonMemory}", "-Xmx${testProject.daemonMemory}"]
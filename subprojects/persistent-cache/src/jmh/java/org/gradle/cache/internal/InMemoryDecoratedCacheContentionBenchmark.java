@@ -0,0 +1,216 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.cache.internal;
+
+import com.google.common.io.Files;
+import org.apache.commons.io.FileUtils;
+import org.gradle.api.Action;
+import org.gradle.api.Transformer;
+import org.gradle.cache.FileLock;
+import org.gradle.cache.FileLockReleasedSignal;
+import org.gradle.cache.MultiProcessSafePersistentIndexedCache;
+import org.gradle.cache.PersistentIndexedCacheParameters;
+import org.gradle.cache.internal.locklistener.FileLockContentionHandler;
+import org.gradle.internal.concurrent.DefaultExecutorFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.gradle.cache.FileLockManager.LockMode.None;
+import static org.gradle.cache.internal.filelock.LockOptionsBuilder.mode;
+
+/**
+ * Measures how reads of entries held in memory by an in-memory decorated cache scale with the number of threads reading from the cache,
+ * when the cache is opened with an on-demand cross-process lock as most caches in the Gradle user home are.
+ */
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@State(Scope.Benchmark)
+public class InMemoryDecoratedCacheContentionBenchmark {
+    @Param({"10000"})
+    int entries;
+
+    private File cacheDir;
+    private DefaultExecutorFactory executorFactory;
+    private DefaultCacheAccess cacheAccess;
+    private MultiProcessSafePersistentIndexedCache<String, String> cache;
+    private String[] keys;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        cacheDir = Files.createTempDir();
+        executorFactory = new DefaultExecutorFactory();
+        DefaultFileLockManager lockManager = new DefaultFileLockManager(new BenchmarkProcessMetaDataProvider(), new NoOpContentionHandler());
+        cacheAccess = new DefaultCacheAccess("benchmark cache", new File(cacheDir, "cache.properties"), mode(None), cacheDir, lockManager, new NoOpInitializationAction(), new NoOpCleanupAction(), executorFactory);
+        cacheAccess.open();
+
+        InMemoryCacheDecoratorFactory decoratorFactory = new InMemoryCacheDecoratorFactory(true, new BenchmarkCrossBuildInMemoryCacheFactory());
+        cache = cacheAccess.newCache(PersistentIndexedCacheParameters.of("entries", String.class, String.class).withCacheDecorator(decoratorFactory.decorator(entries, true)));
+
+        keys = new String[entries];
+        for (int i = 0; i < entries; i++) {
+            keys[i] = "/some/project/src/main/java/org/gradle/Class" + i + ".java";
+            cache.put(keys[i], Integer.toHexString(keys[i].hashCode()));
+        }
+        for (String key : keys) {
+            cache.get(key);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        cacheAccess.close();
+        executorFactory.stop();
+        FileUtils.deleteQuietly(cacheDir);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public String get_1_thread() {
+        return get();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public String get_4_threads() {
+        return get();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public String get_8_threads() {
+        return get();
+    }
+
+    @Benchmark
+    @Threads(16)
+    public String get_16_threads() {
+        return get();
+    }
+
+    private String get() {
+        return cache.get(keys[ThreadLocalRandom.current().nextInt(keys.length)]);
+    }
+
+    private static class BenchmarkProcessMetaDataProvider implements ProcessMetaDataProvider {
+        @Override
+        public String getProcessIdentifier() {
+            return "benchmark";
+        }
+
+        @Override
+        public String getProcessDisplayName() {
+            return "benchmark";
+        }
+    }
+
+    private static class NoOpContentionHandler implements FileLockContentionHandler {
+        @Override
+        public void start(long lockId, Action<FileLockReleasedSignal> whenContended) {
+        }
+
+        @Override
+        public void stop(long lockId) {
+        }
+
+        @Override
+        public int reservePort() {
+            return -1;
+        }
+
+        @Override
+        public boolean maybePingOwner(int port, long lockId, String displayName, long timeElapsed, FileLockReleasedSignal signal) {
+            return false;
+        }
+    }
+
+    private static class NoOpInitializationAction implements CacheInitializationAction {
+        @Override
+        public boolean requiresInitialization(FileLock fileLock) {
+            return false;
+        }
+
+        @Override
+        public void initialize(FileLock fileLock) {
+        }
+    }
+
+    private static class NoOpCleanupAction implements CacheCleanupAction {
+        @Override
+        public boolean requiresCleanup() {
+            return false;
+        }
+
+        @Override
+        public void cleanup() {
+        }
+    }
+
+    private static class BenchmarkCrossBuildInMemoryCacheFactory extends CrossBuildInMemoryCacheFactory {
+        @Override
+        public <K, V> CrossBuildInMemoryCache<K, V> newCache() {
+            return new MapBackedCrossBuildInMemoryCache<K, V>();
+        }
+
+        @Override
+        public <V> CrossBuildInMemoryCache<Class<?>, V> newClassCache() {
+            return new MapBackedCrossBuildInMemoryCache<Class<?>, V>();
+        }
+    }
+
+    private static class MapBackedCrossBuildInMemoryCache<K, V> implements CrossBuildInMemoryCache<K, V> {
+        private final ConcurrentHashMap<K, V> entries = new ConcurrentHashMap<K, V>();
+
+        @Override
+        public synchronized V get(K key, Transformer<V, K> factory) {
+            V value = entries.get(key);
+            if (value == null) {
+                value = factory.transform(key);
+                entries.put(key, value);
+            }
+            return value;
+        }
+
+        @Override
+        public V get(K key) {
+            return entries.get(key);
+        }
+
+        @Override
+        public void put(K key, V value) {
+            entries.put(key, value);
+        }
+
+        @Override
+        public void clear() {
+            entries.clear();
+        }
+    }
+}
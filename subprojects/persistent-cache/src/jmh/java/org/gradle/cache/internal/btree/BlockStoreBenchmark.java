@@ -0,0 +1,108 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.cache.internal.btree;
+
+import org.gradle.internal.serialize.BaseSerializerFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+
+/**
+ * Compares the throughput of a {@link BTreePersistentIndexedCache} backed by a {@link FileBackedBlockStore} with one backed by
+ * a {@link MemoryMappedBlockStore}, for a cache of string keys and values similar in size to file hashes.
+ */
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@State(Scope.Benchmark)
+public class BlockStoreBenchmark {
+    private static final BaseSerializerFactory SERIALIZER_FACTORY = new BaseSerializerFactory();
+
+    @Param({"file", "mapped"})
+    String store;
+
+    @Param({"100000"})
+    int entries;
+
+    private File cacheFile;
+    private BTreePersistentIndexedCache<String, String> cache;
+    private String[] keys;
+    private Random random;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        cacheFile = File.createTempFile("block-store", ".bin");
+        cacheFile.delete();
+        keys = new String[entries];
+        for (int i = 0; i < entries; i++) {
+            keys[i] = "/some/project/src/main/java/org/gradle/Class" + i + ".java";
+        }
+        cache = createCache();
+        for (String key : keys) {
+            cache.put(key, value(key));
+        }
+        random = new Random(1234);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        cache.close();
+        cacheFile.delete();
+    }
+
+    @Benchmark
+    public String get() {
+        return cache.get(randomKey());
+    }
+
+    @Benchmark
+    public void put() {
+        String key = randomKey();
+        cache.put(key, value(key));
+    }
+
+    @Benchmark
+    public void removeAndPut() {
+        String key = randomKey();
+        cache.remove(key);
+        cache.put(key, value(key));
+    }
+
+    private BTreePersistentIndexedCache<String, String> createCache() {
+        BlockStore blockStore = store.equals("mapped") ? new MemoryMappedBlockStore(cacheFile) : new FileBackedBlockStore(cacheFile);
+        return new BTreePersistentIndexedCache<String, String>(cacheFile, SERIALIZER_FACTORY.getSerializerFor(String.class), SERIALIZER_FACTORY.getSerializerFor(String.class), blockStore);
+    }
+
+    private String randomKey() {
+        return keys[random.nextInt(keys.length)];
+    }
+
+    private static String value(String key) {
+        return Integer.toHexString(key.hashCode()) + "0123456789abcdef0123456789abcdef";
+    }
+}
@@ -23,10 +23,22 @@ import org.gradle.cache.MultiProcessSafePersistentIndexedCache;
 import org.gradle.internal.Factory;
 
 import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
+/**
+ * Applies updates to the backing cache on the cache access worker.
+ *
+ * <p>Updates to the same key are coalesced while waiting to be applied, so that a burst of updates to a key results in a single write
+ * to the backing cache. At most one update task per key is queued at any time, and reads see the latest pending update for a key
+ * without waiting for the queue to drain.</p>
+ */
 public class AsyncCacheAccessDecoratedCache<K, V> implements MultiProcessSafeAsyncPersistentIndexedCache<K, V> {
     private final AsyncCacheAccess asyncCacheAccess;
     private final MultiProcessSafePersistentIndexedCache<K, V> persistentCache;
+    private final Map<K, PendingUpdate<V>> pendingUpdates = new HashMap<K, PendingUpdate<V>>();
 
     public AsyncCacheAccessDecoratedCache(AsyncCacheAccess asyncCacheAccess, MultiProcessSafePersistentIndexedCache<K, V> persistentCache) {
         this.asyncCacheAccess = asyncCacheAccess;
@@ -41,6 +53,12 @@ public class AsyncCacheAccessDecoratedCache<K, V> implements MultiProcessSafeAsy
     @Nullable
     @Override
     public V get(final K key) {
+        synchronized (pendingUpdates) {
+            PendingUpdate<V> pendingUpdate = pendingUpdates.get(key);
+            if (pendingUpdate != null) {
+                return pendingUpdate.value;
+            }
+        }
         return asyncCacheAccess.read(new Factory<V>() {
             @Override
             public V create() {
@@ -49,6 +67,12 @@ public class AsyncCacheAccessDecoratedCache<K, V> implements MultiProcessSafeAsy
         });
     }
 
+    @Nullable
+    @Override
+    public V getIfPresentInMemory(K key) {
+        return null;
+    }
+
     @Override
     public V get(K key, Transformer<? extends V, ? super K> producer, Runnable completion) {
         throw new UnsupportedOperationException();
@@ -56,38 +80,55 @@ public class AsyncCacheAccessDecoratedCache<K, V> implements MultiProcessSafeAsy
 
     @Override
     public void putLater(final K key, final V value, final Runnable completion) {
-        try {
-            asyncCacheAccess.enqueue(new Runnable() {
-                @Override
-                public void run() {
-                    try {
-                        persistentCache.put(key, value);
-                    } finally {
-                        completion.run();
-                    }
-                }
-            });
-        } catch (RuntimeException e) {
-            completion.run();
-            throw e;
-        }
+        update(key, value, completion);
     }
 
     @Override
     public void removeLater(final K key, final Runnable completion) {
+        update(key, null, completion);
+    }
+
+    /**
+     * Records the update as pending, and queues a task to apply it when there is no task already queued for the key.
+     * A null value removes the entry.
+     */
+    private void update(final K key, @Nullable V value, Runnable completion) {
+        PendingUpdate<V> pendingUpdate;
+        synchronized (pendingUpdates) {
+            pendingUpdate = pendingUpdates.get(key);
+            if (pendingUpdate != null) {
+                // A task to apply the update is already queued, so replace the value it will write
+                pendingUpdate.value = value;
+                pendingUpdate.completions.add(completion);
+                return;
+            }
+            pendingUpdate = new PendingUpdate<V>(value, completion);
+            pendingUpdates.put(key, pendingUpdate);
+        }
         try {
             asyncCacheAccess.enqueue(new Runnable() {
                 @Override
                 public void run() {
+                    PendingUpdate<V> update;
+                    synchronized (pendingUpdates) {
+                        update = pendingUpdates.remove(key);
+                    }
                     try {
-                        persistentCache.remove(key);
+                        if (update.value == null) {
+                            persistentCache.remove(key);
+                        } else {
+                            persistentCache.put(key, update.value);
+                        }
                     } finally {
-                        completion.run();
+                        update.completed();
                     }
                 }
             });
         } catch (RuntimeException e) {
-            completion.run();
+            synchronized (pendingUpdates) {
+                pendingUpdates.remove(key);
+            }
+            pendingUpdate.completed();
             throw e;
         }
     }
@@ -106,4 +147,34 @@ public class AsyncCacheAccessDecoratedCache<K, V> implements MultiProcessSafeAsy
     public void beforeLockRelease(FileLock.State currentCacheState) {
         persistentCache.beforeLockRelease(currentCacheState);
     }
+
+    private static class PendingUpdate<V> {
+        // Guarded by the pending updates map
+        V value;
+        final List<Runnable> completions = new ArrayList<Runnable>(1);
+
+        PendingUpdate(@Nullable V value, Runnable completion) {
+            this.value = value;
+            completions.add(completion);
+        }
+
+        /**
+         * Runs the completion action of each update that was coalesced into this update.
+         */
+        void completed() {
+            RuntimeException failure = null;
+            for (Runnable completion : completions) {
+                try {
+                    completion.run();
+                } catch (RuntimeException e) {
+                    if (failure == null) {
+                        failure = e;
+                    }
+                }
+            }
+            if (failure != null) {
+                throw failure;
+            }
+        }
+    }
 }
@@ -24,6 +24,8 @@ import org.gradle.internal.concurrent.ExecutorPolicy;
 import org.gradle.internal.concurrent.Stoppable;
 import org.gradle.internal.time.CountdownTimer;
 import org.gradle.internal.time.Time;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -34,8 +36,14 @@ import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.FutureTask;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 class CacheAccessWorker implements Runnable, Stoppable, AsyncCacheAccess {
+    /**
+     * When set, the statistics of each worker are reported when it is stopped, which is when its cache is closed.
+     */
+    public static final String CACHE_STATISTICS_PROPERTY = "org.gradle.internal.cache.stats";
+    private static final Logger LOGGER = LoggerFactory.getLogger(CacheAccessWorker.class);
     private final BlockingQueue<Runnable> workQueue;
     private final String displayName;
     private final CacheAccess cacheAccess;
@@ -46,6 +54,12 @@ class CacheAccessWorker implements Runnable, Stoppable, AsyncCacheAccess {
     private boolean stopSeen;
     private final CountDownLatch doneSignal = new CountDownLatch(1);
     private final ExecutorPolicy.CatchAndRecordFailures failureHandler = new ExecutorPolicy.CatchAndRecordFailures();
+    private final AtomicLong operationCount = new AtomicLong();
+    private final AtomicLong batchCount = new AtomicLong();
+    private final AtomicLong maxQueueDepth = new AtomicLong();
+    private final AtomicLong flushCount = new AtomicLong();
+    private final AtomicLong totalFlushNanos = new AtomicLong();
+    private final AtomicLong maxFlushNanos = new AtomicLong();
 
     CacheAccessWorker(String displayName, CacheAccess cacheAccess) {
         this.displayName = displayName;
@@ -93,13 +107,80 @@ class CacheAccessWorker implements Runnable, Stoppable, AsyncCacheAccess {
     @Override
     public synchronized void flush() {
         if (!workerCompleted && !closed) {
+            long start = System.nanoTime();
             FlushOperationsCommand flushOperationsCommand = new FlushOperationsCommand();
             addToQueue(flushOperationsCommand);
             flushOperationsCommand.await();
+            recordFlush(System.nanoTime() - start);
         }
         rethrowFailure();
     }
 
+    private void recordFlush(long nanos) {
+        flushCount.incrementAndGet();
+        totalFlushNanos.addAndGet(nanos);
+        if (nanos > maxFlushNanos.get()) {
+            maxFlushNanos.set(nanos);
+        }
+    }
+
+    /**
+     * Returns the number of operations waiting to be executed.
+     */
+    int getQueueDepth() {
+        return workQueue.size();
+    }
+
+    /**
+     * Returns the largest number of operations found waiting when the worker started a batch of operations.
+     */
+    long getMaxQueueDepth() {
+        return maxQueueDepth.get();
+    }
+
+    /**
+     * Returns the number of operations executed under the cache lock.
+     */
+    long getOperationCount() {
+        return operationCount.get();
+    }
+
+    /**
+     * Returns the number of times the worker has acquired the cache lock to execute a batch of operations.
+     */
+    long getBatchCount() {
+        return batchCount.get();
+    }
+
+    /**
+     * Returns the number of calls to {@link #flush()} which waited for the queued operations to complete.
+     */
+    long getFlushCount() {
+        return flushCount.get();
+    }
+
+    /**
+     * Returns the longest time, in milliseconds, that a call to {@link #flush()} waited for the queued operations to complete.
+     */
+    long getMaxFlushLatencyMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(maxFlushNanos.get());
+    }
+
+    private void logStatistics() {
+        boolean reportStatistics = System.getProperty(CACHE_STATISTICS_PROPERTY) != null;
+        if ((reportStatistics || LOGGER.isDebugEnabled()) && operationCount.get() > 0) {
+            long flushes = flushCount.get();
+            String message = "Cache worker for {} executed {} operations in {} batches, maximum queue depth {}, {} flushes with average latency {}ms and maximum latency {}ms.";
+            Object[] arguments = {displayName, operationCount.get(), batchCount.get(), maxQueueDepth.get(), flushes,
+                flushes == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(totalFlushNanos.get() / flushes), getMaxFlushLatencyMillis()};
+            if (reportStatistics) {
+                LOGGER.warn(message, arguments);
+            } else {
+                LOGGER.debug(message, arguments);
+            }
+        }
+    }
+
     private void rethrowFailure() {
         failureHandler.onStop();
     }
@@ -170,6 +251,11 @@ class CacheAccessWorker implements Runnable, Stoppable, AsyncCacheAccess {
 
     private void flushOperations(final Runnable updateOperation) {
         final List<FlushOperationsCommand> flushOperations = new ArrayList<FlushOperationsCommand>();
+        long queueDepth = workQueue.size() + 1;
+        if (queueDepth > maxQueueDepth.get()) {
+            maxQueueDepth.set(queueDepth);
+        }
+        batchCount.incrementAndGet();
         try {
             cacheAccess.useCache(new Runnable() {
                 @Override
@@ -177,11 +263,13 @@ class CacheAccessWorker implements Runnable, Stoppable, AsyncCacheAccess {
                     CountdownTimer timer = Time.startCountdownTimer(maximumLockingTimeMillis, TimeUnit.MILLISECONDS);
                     if (updateOperation != null) {
                         failureHandler.onExecute(updateOperation);
+                        operationCount.incrementAndGet();
                     }
                     Runnable otherOperation;
                     try {
                         while ((otherOperation = workQueue.poll(batchWindowMillis, TimeUnit.MILLISECONDS)) != null) {
                             failureHandler.onExecute(otherOperation);
+                            operationCount.incrementAndGet();
                             final Class<? extends Runnable> runnableClass = otherOperation.getClass();
                             if (runnableClass == FlushOperationsCommand.class) {
                                 flushOperations.add((FlushOperationsCommand) otherOperation);
@@ -220,6 +308,7 @@ class CacheAccessWorker implements Runnable, Stoppable, AsyncCacheAccess {
             } catch (InterruptedException e) {
                 Thread.currentThread().interrupt();
             }
+            logStatistics();
         }
         rethrowFailure();
     }
@@ -26,6 +26,7 @@ import javax.annotation.Nullable;
 
 /**
  * Applies cross-process file locking to a backing cache, to ensure that any in-memory and on file state is kept in sync while this process is read from or writing to the cache.
+ * Reads of entries held in memory while this process holds the lock are served without acquiring the lock.
  */
 public class CrossProcessSynchronizingCache<K, V> implements MultiProcessSafePersistentIndexedCache<K, V> {
     private final CrossProcessCacheAccess cacheAccess;
@@ -44,6 +45,10 @@ public class CrossProcessSynchronizingCache<K, V> implements MultiProcessSafePer
     @Nullable
     @Override
     public V get(final K key) {
+        V value = target.getIfPresentInMemory(key);
+        if (value != null) {
+            return value;
+        }
         return cacheAccess.withFileLock(new Factory<V>() {
             @Override
             public V create() {
@@ -54,6 +59,10 @@ public class CrossProcessSynchronizingCache<K, V> implements MultiProcessSafePer
 
     @Override
     public V get(final K key, final Transformer<? extends V, ? super K> producer) {
+        V value = target.getIfPresentInMemory(key);
+        if (value != null) {
+            return value;
+        }
         Runnable runnable = cacheAccess.acquireFileLock();
         return target.get(key, producer, runnable);
     }
@@ -0,0 +1,39 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.cache.internal;
+
+import javax.annotation.Nullable;
+
+/**
+ * Keeps the entries of a persistent cache in memory, as an alternative to the default heap based store
+ * for caches whose entries can be represented more compactly.
+ *
+ * Implementations must be thread-safe, and may discard entries at any time.
+ */
+public interface InMemoryCacheStore<K, V> {
+    @Nullable
+    V get(K key);
+
+    void put(K key, V value);
+
+    void remove(K key);
+
+    void clear();
+
+    interface Factory<K, V> {
+        InMemoryCacheStore<K, V> create(int maxEntries);
+    }
+}
@@ -26,6 +26,8 @@ import org.gradle.internal.UncheckedException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.annotation.Nullable;
+
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.atomic.AtomicReference;
@@ -37,6 +39,8 @@ class InMemoryDecoratedCache<K, V> implements MultiProcessSafeAsyncPersistentInd
     private final Cache<Object, Object> inMemoryCache;
     private final String cacheId;
     private final AtomicReference<FileLock.State> fileLockStateReference;
+    // Set while this process holds the lock on the cache and the in-memory entries are up-to-date with the backing cache
+    private volatile boolean inMemoryCacheCurrent;
 
     public InMemoryDecoratedCache(MultiProcessSafeAsyncPersistentIndexedCache<K, V> delegate, Cache<Object, Object> inMemoryCache, String cacheId, AtomicReference<FileLock.State> fileLockStateReference) {
         this.delegate = delegate;
@@ -73,6 +77,19 @@ class InMemoryDecoratedCache<K, V> implements MultiProcessSafeAsyncPersistentInd
         }
     }
 
+    @Nullable
+    @Override
+    public V getIfPresentInMemory(K key) {
+        if (!inMemoryCacheCurrent) {
+            return null;
+        }
+        Object value = inMemoryCache.getIfPresent(key);
+        if (value == null || value == NULL) {
+            return null;
+        }
+        return Cast.uncheckedCast(value);
+    }
+
     @Override
     public V get(final K key, final Transformer<? extends V, ? super K> producer, final Runnable completion) {
         final AtomicReference<Runnable> completionRef = new AtomicReference<Runnable>(completion);
@@ -140,6 +157,7 @@ class InMemoryDecoratedCache<K, V> implements MultiProcessSafeAsyncPersistentInd
             inMemoryCache.invalidateAll();
         }
         delegate.afterLockAcquire(currentCacheState);
+        inMemoryCacheCurrent = true;
     }
 
     @Override
@@ -149,6 +167,7 @@ class InMemoryDecoratedCache<K, V> implements MultiProcessSafeAsyncPersistentInd
 
     @Override
     public void beforeLockRelease(FileLock.State currentCacheState) {
+        inMemoryCacheCurrent = false;
         fileLockStateReference.set(currentCacheState);
         delegate.beforeLockRelease(currentCacheState);
     }
@@ -0,0 +1,129 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.cache.internal;
+
+import org.gradle.api.Transformer;
+import org.gradle.cache.FileLock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Same as {@link InMemoryDecoratedCache}, but keeps the entries in an {@link InMemoryCacheStore}. Missing entries are not remembered.
+ */
+class InMemoryStoreDecoratedCache<K, V> implements MultiProcessSafeAsyncPersistentIndexedCache<K, V> {
+    private final static Logger LOG = LoggerFactory.getLogger(InMemoryStoreDecoratedCache.class);
+    private final MultiProcessSafeAsyncPersistentIndexedCache<K, V> delegate;
+    private final InMemoryCacheStore<K, V> store;
+    private final String cacheId;
+    private final AtomicReference<FileLock.State> fileLockStateReference;
+    // Set while this process holds the lock on the cache and the in-memory entries are up-to-date with the backing cache
+    private volatile boolean storeCurrent;
+
+    public InMemoryStoreDecoratedCache(MultiProcessSafeAsyncPersistentIndexedCache<K, V> delegate, InMemoryCacheStore<K, V> store, String cacheId, AtomicReference<FileLock.State> fileLockStateReference) {
+        this.delegate = delegate;
+        this.store = store;
+        this.cacheId = cacheId;
+        this.fileLockStateReference = fileLockStateReference;
+    }
+
+    @Override
+    public String toString() {
+        return "{in-memory-store cache: " + delegate + "}";
+    }
+
+    @Override
+    public V get(K key) {
+        V value = store.get(key);
+        if (value == null) {
+            value = delegate.get(key);
+            if (value != null) {
+                store.put(key, value);
+            }
+        }
+        return value;
+    }
+
+    @Nullable
+    @Override
+    public V getIfPresentInMemory(K key) {
+        return storeCurrent ? store.get(key) : null;
+    }
+
+    @Override
+    public V get(K key, Transformer<? extends V, ? super K> producer, Runnable completion) {
+        boolean completionDelegated = false;
+        try {
+            V value = get(key);
+            if (value != null) {
+                return value;
+            }
+            value = producer.transform(key);
+            store.put(key, value);
+            completionDelegated = true;
+            delegate.putLater(key, value, completion);
+            return value;
+        } finally {
+            if (!completionDelegated) {
+                completion.run();
+            }
+        }
+    }
+
+    @Override
+    public void putLater(K key, V value, Runnable completion) {
+        store.put(key, value);
+        delegate.putLater(key, value, completion);
+    }
+
+    @Override
+    public void removeLater(K key, Runnable completion) {
+        store.remove(key);
+        delegate.removeLater(key, completion);
+    }
+
+    @Override
+    public void afterLockAcquire(FileLock.State currentCacheState) {
+        boolean outOfDate = false;
+        FileLock.State previousState = fileLockStateReference.get();
+        if (previousState == null) {
+            outOfDate = true;
+        } else if (currentCacheState.hasBeenUpdatedSince(previousState)) {
+            LOG.info("Invalidating in-memory store of {}", cacheId);
+            outOfDate = true;
+        }
+        if (outOfDate) {
+            store.clear();
+        }
+        delegate.afterLockAcquire(currentCacheState);
+        storeCurrent = true;
+    }
+
+    @Override
+    public void finishWork() {
+        delegate.finishWork();
+    }
+
+    @Override
+    public void beforeLockRelease(FileLock.State currentCacheState) {
+        storeCurrent = false;
+        fileLockStateReference.set(currentCacheState);
+        delegate.beforeLockRelease(currentCacheState);
+    }
+}
@@ -30,6 +30,13 @@ public interface MultiProcessSafeAsyncPersistentIndexedCache<K, V> extends UnitO
     @Nullable
     V get(K key);
 
+    /**
+     * Fetches the given entry when it can be served from an in-memory copy that is known to be up-to-date with the backing cache, without
+     * requiring the cross-process lock. Returns {@code null} when the entry must be fetched using {@link #get(Object)} instead.
+     */
+    @Nullable
+    V getIfPresentInMemory(K key);
+
     /**
      * Fetches the given entry, producing if necessary, blocking until the result is available. This method may or may not block until any updates have completed and will invoke the given completion action when the operation is complete.
      */
@@ -0,0 +1,660 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.cache.internal.logstructured;
+
+import org.gradle.api.UncheckedIOException;
+import org.gradle.cache.FileBackedIndexedCache;
+import org.gradle.internal.serialize.Serializer;
+import org.gradle.internal.serialize.kryo.KryoBackedDecoder;
+import org.gradle.internal.serialize.kryo.KryoBackedEncoder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+
+/**
+ * An indexed cache which appends each change to a log, instead of updating entries in place.
+ *
+ * <p>The log is split into segment files. Each record in a segment holds a serialized key and value, or a marker that the key was removed,
+ * followed by a checksum. An in-memory index maps each key to its latest record.</p>
+ *
+ * <p>A checkpoint file holds the index of a prefix of the log. On open, the index is loaded from the checkpoint, and the records appended
+ * after that prefix are read from the segments. Writing the checkpoint means writing the whole index, and with on-demand locking the cache is
+ * closed each time another process asks for its lock. So the checkpoint is only rewritten on close once more than a segment's worth of records
+ * has been appended after it, or when it no longer matches the log because a segment was compacted. Without a usable checkpoint, the index is
+ * rebuilt by reading all segments. A record which was only partly written to the last segment, for example because the process was killed,
+ * is discarded.</p>
+ *
+ * <p>Records which have been replaced or removed are garbage. Once the garbage is larger than both a segment and the live records, the oldest
+ * segments are compacted by copying their live records to the end of the log and deleting the segment. This keeps the files at most about
+ * twice the size of the live records. Compacting the oldest segment first means that a removal marker can be dropped when its segment
+ * is compacted, as there is no older segment left holding a value for the key.</p>
+ *
+ * <p>This cache is not thread safe.</p>
+ */
+public class LogStructuredPersistentIndexedCache<K, V> implements FileBackedIndexedCache<K, V> {
+    public static final long DEFAULT_SEGMENT_SIZE = 16 * 1024 * 1024;
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(LogStructuredPersistentIndexedCache.class);
+    private static final Pattern SEGMENT_FILE_NAME = Pattern.compile("segment-(\\d+)\\.bin");
+    private static final String CHECKPOINT_FILE_NAME = "index.bin";
+    private static final int SEGMENT_MAGIC = 0x4c534547;
+    private static final int CHECKPOINT_MAGIC = 0x4c534958;
+    private static final int FORMAT_VERSION = 1;
+    private static final int SEGMENT_HEADER_SIZE = 8; // magic, version
+    private static final int RECORD_OVERHEAD = 12; // key length, value length, checksum
+    private static final int REMOVED = -1;
+
+    private final File dir;
+    private final Serializer<K> keySerializer;
+    private final Serializer<V> valueSerializer;
+    private final long segmentSize;
+    private final ByteArrayOutputStream serializedBytes = new ByteArrayOutputStream();
+    private final KryoBackedEncoder encoder = new KryoBackedEncoder(serializedBytes);
+    private final Map<Key, Location> index = new HashMap<Key, Location>();
+    private final List<Segment> segments = new ArrayList<Segment>();
+    private Segment active;
+    private DataOutputStream activeOutput;
+    private long flushedSize;
+    private long totalBytes;
+    private long liveBytes;
+    // Whether the checkpoint file holds the index of a prefix of the log
+    private boolean checkpointValid;
+    // The number of bytes appended to the log after the prefix covered by the checkpoint
+    private long bytesSinceCheckpoint;
+
+    public LogStructuredPersistentIndexedCache(File dir, Serializer<K> keySerializer, Serializer<V> valueSerializer) {
+        this(dir, keySerializer, valueSerializer, DEFAULT_SEGMENT_SIZE);
+    }
+
+    public LogStructuredPersistentIndexedCache(File dir, Serializer<K> keySerializer, Serializer<V> valueSerializer, long segmentSize) {
+        this.dir = dir;
+        this.keySerializer = keySerializer;
+        this.valueSerializer = valueSerializer;
+        this.segmentSize = segmentSize;
+        try {
+            open();
+        } catch (Exception e) {
+            throw new UncheckedIOException(String.format("Could not open %s.", this), e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "cache " + dir.getName() + " (" + dir + ")";
+    }
+
+    @Nullable
+    @Override
+    public V get(K key) {
+        try {
+            Location location = index.get(new Key(serialize(keySerializer, key)));
+            if (location == null) {
+                return null;
+            }
+            byte[] record = readRecord(location);
+            return valueSerializer.read(new KryoBackedDecoder(new ByteArrayInputStream(record, 8 + location.keyLength, location.valueLength)));
+        } catch (CorruptedCacheException e) {
+            LOGGER.warn("{} is corrupt. Discarding.", this);
+            try {
+                discardAll();
+            } catch (Exception discardFailure) {
+                throw new UncheckedIOException(String.format("Could not discard %s.", this), discardFailure);
+            }
+            return null;
+        } catch (Exception e) {
+            throw new UncheckedIOException(String.format("Could not read entry '%s' from %s.", key, this), e);
+        }
+    }
+
+    @Override
+    public void put(K key, V value) {
+        try {
+            byte[] keyBytes = serialize(keySerializer, key);
+            byte[] valueBytes = serialize(valueSerializer, value);
+            Location location = append(encodeRecord(keyBytes, valueBytes));
+            discard(index.put(new Key(keyBytes), location));
+            location.segment.liveBytes += location.length;
+            liveBytes += location.length;
+            compactIfRequired();
+        } catch (Exception e) {
+            throw new UncheckedIOException(String.format("Could not add entry '%s' to %s.", key, this), e);
+        }
+    }
+
+    @Override
+    public void remove(K key) {
+        try {
+            byte[] keyBytes = serialize(keySerializer, key);
+            Location previous = index.remove(new Key(keyBytes));
+            if (previous == null) {
+                // No segment holds a value for the key, so there is nothing to mark as removed
+                return;
+            }
+            discard(previous);
+            append(encodeRecord(keyBytes, null));
+            compactIfRequired();
+        } catch (Exception e) {
+            throw new UncheckedIOException(String.format("Could not remove entry '%s' from %s.", key, this), e);
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            closeSegments();
+            if (!checkpointValid || bytesSinceCheckpoint > segmentSize) {
+                writeCheckpoint();
+            }
+        } catch (Exception e) {
+            throw new UncheckedIOException(String.format("Could not close %s.", this), e);
+        }
+    }
+
+    /**
+     * Returns the number of bytes used by the segment files.
+     */
+    public long getSizeOnDisk() {
+        return totalBytes;
+    }
+
+    private void open() throws IOException {
+        dir.mkdirs();
+        List<Segment> existing = findSegments();
+        try {
+            if (!loadCheckpoint(existing)) {
+                rebuildIndex(existing);
+            }
+        } catch (CorruptedCacheException e) {
+            LOGGER.warn("{} is corrupt. Discarding.", this);
+            closeQuietly(existing);
+            discardAll();
+            return;
+        }
+        segments.addAll(existing);
+        for (Segment segment : segments) {
+            totalBytes += segment.size;
+        }
+        if (!segments.isEmpty() && segments.get(segments.size() - 1).size < segmentSize) {
+            active = segments.get(segments.size() - 1);
+            activeOutput = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(active.file, true)));
+            flushedSize = active.size;
+        } else {
+            startSegment(segments.isEmpty() ? 1 : segments.get(segments.size() - 1).id + 1);
+        }
+    }
+
+    private List<Segment> findSegments() throws IOException {
+        List<Segment> segments = new ArrayList<Segment>();
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                Matcher matcher = SEGMENT_FILE_NAME.matcher(file.getName());
+                if (matcher.matches()) {
+                    segments.add(new Segment(Long.parseLong(matcher.group(1)), file));
+                }
+            }
+        }
+        Collections.sort(segments, new Comparator<Segment>() {
+            @Override
+            public int compare(Segment segment1, Segment segment2) {
+                return Long.compare(segment1.id, segment2.id);
+            }
+        });
+        return segments;
+    }
+
+    private boolean loadCheckpoint(List<Segment> segments) throws IOException {
+        File checkpointFile = new File(dir, CHECKPOINT_FILE_NAME);
+        if (!checkpointFile.isFile()) {
+            return false;
+        }
+        DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(checkpointFile)));
+        try {
+            if (input.readInt() != CHECKPOINT_MAGIC || input.readInt() != FORMAT_VERSION) {
+                return false;
+            }
+            int checkpointSegments = input.readInt();
+            if (checkpointSegments == 0 || checkpointSegments > segments.size()) {
+                return false;
+            }
+            // The checkpoint covers a prefix of the log. Records are only ever appended to the last segment, so only the last segment
+            // of the checkpoint can have grown since, and segments which were compacted since are missing
+            long checkpointLength = 0;
+            for (int i = 0; i < checkpointSegments; i++) {
+                Segment segment = segments.get(i);
+                long fileLength = segment.file.length();
+                checkpointLength = input.readLong() == segment.id ? input.readLong() : -1;
+                if (checkpointLength < 0 || fileLength < checkpointLength || (i < checkpointSegments - 1 && fileLength != checkpointLength)) {
+                    return false;
+                }
+            }
+            int entries = input.readInt();
+            for (int i = 0; i < entries; i++) {
+                byte[] key = new byte[input.readInt()];
+                input.readFully(key);
+                Segment segment = segments.get(input.readInt());
+                long offset = input.readLong();
+                int valueLength = input.readInt();
+                Location location = new Location(segment, offset, key.length, valueLength);
+                index.put(new Key(key), location);
+                segment.liveBytes += location.length;
+                liveBytes += location.length;
+            }
+            bytesSinceCheckpoint = readLog(segments, checkpointSegments - 1, checkpointLength);
+            checkpointValid = true;
+            openSegments(segments);
+            return true;
+        } catch (Exception e) {
+            LOGGER.debug("Could not load index of {} from checkpoint.", this, e);
+            index.clear();
+            liveBytes = 0;
+            for (Segment segment : segments) {
+                segment.liveBytes = 0;
+            }
+            return false;
+        } finally {
+            input.close();
+        }
+    }
+
+    private void writeCheckpoint() throws IOException {
+        Map<Segment, Integer> segmentIndexes = new HashMap<Segment, Integer>();
+        File tempFile = new File(dir, CHECKPOINT_FILE_NAME + ".tmp");
+        DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)));
+        try {
+            output.writeInt(CHECKPOINT_MAGIC);
+            output.writeInt(FORMAT_VERSION);
+            output.writeInt(segments.size());
+            for (Segment segment : segments) {
+                segmentIndexes.put(segment, segmentIndexes.size());
+                output.writeLong(segment.id);
+                output.writeLong(segment.size);
+            }
+            output.writeInt(index.size());
+            for (Map.Entry<Key, Location> entry : index.entrySet()) {
+                Location location = entry.getValue();
+                output.writeInt(entry.getKey().bytes.length);
+                output.write(entry.getKey().bytes);
+                output.writeInt(segmentIndexes.get(location.segment));
+                output.writeLong(location.offset);
+                output.writeInt(location.valueLength);
+            }
+        } finally {
+            output.close();
+        }
+        File checkpointFile = new File(dir, CHECKPOINT_FILE_NAME);
+        checkpointFile.delete();
+        if (tempFile.renameTo(checkpointFile)) {
+            checkpointValid = true;
+            bytesSinceCheckpoint = 0;
+        } else {
+            tempFile.delete();
+        }
+    }
+
+    private void rebuildIndex(List<Segment> segments) throws IOException {
+        checkpointValid = false;
+        readLog(segments, 0, SEGMENT_HEADER_SIZE);
+        openSegments(segments);
+    }
+
+    /**
+     * Adds the records of the segments to the index, starting from the given offset of the given segment. Returns the number of bytes read.
+     */
+    private long readLog(List<Segment> segments, int first, long firstOffset) throws IOException {
+        long bytesRead = 0;
+        for (int i = first; i < segments.size(); i++) {
+            Segment segment = segments.get(i);
+            long startOffset = i == first ? firstOffset : SEGMENT_HEADER_SIZE;
+            long validSize = readSegment(segment, startOffset);
+            long fileSize = segment.file.length();
+            if (validSize < fileSize) {
+                if (i < segments.size() - 1) {
+                    throw new CorruptedCacheException();
+                }
+                // The last record of the log was not completely written
+                LOGGER.debug("Discarding incomplete record at offset {} of {}.", validSize, segment.file);
+                RandomAccessFile file = new RandomAccessFile(segment.file, "rw");
+                try {
+                    file.setLength(validSize);
+                } finally {
+                    file.close();
+                }
+            }
+            bytesRead += validSize - startOffset;
+        }
+        return bytesRead;
+    }
+
+    /**
+     * Adds the records of the given segment from the given offset to the index, returning the size of the complete records.
+     */
+    private long readSegment(Segment segment, long startOffset) throws IOException {
+        long fileSize = segment.file.length();
+        DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(segment.file)));
+        try {
+            if (fileSize < SEGMENT_HEADER_SIZE || input.readInt() != SEGMENT_MAGIC || input.readInt() != FORMAT_VERSION) {
+                throw new CorruptedCacheException();
+            }
+            long offset = SEGMENT_HEADER_SIZE;
+            while (offset < startOffset) {
+                long skipped = input.skip(startOffset - offset);
+                if (skipped <= 0) {
+                    throw new CorruptedCacheException();
+                }
+                offset += skipped;
+            }
+            CRC32 checksum = new CRC32();
+            while (offset + RECORD_OVERHEAD <= fileSize) {
+                int keyLength = input.readInt();
+                int valueLength = input.readInt();
+                if (keyLength < 0 || valueLength < REMOVED) {
+                    return offset;
+                }
+                long recordLength = (long) RECORD_OVERHEAD + keyLength + Math.max(valueLength, 0);
+                if (offset + recordLength > fileSize) {
+                    return offset;
+                }
+                byte[] record = new byte[(int) recordLength];
+                ByteBuffer.wrap(record).putInt(keyLength).putInt(valueLength);
+                input.readFully(record, 8, record.length - 8);
+                checksum.reset();
+                checksum.update(record, 0, record.length - 4);
+                if ((int) checksum.getValue() != ByteBuffer.wrap(record).getInt(record.length - 4)) {
+                    return offset;
+                }
+
+                Key key = new Key(Arrays.copyOfRange(record, 8, 8 + keyLength));
+                if (valueLength == REMOVED) {
+                    discard(index.remove(key));
+                } else {
+                    Location location = new Location(segment, offset, keyLength, valueLength);
+                    discard(index.put(key, location));
+                    segment.liveBytes += location.length;
+                    liveBytes += location.length;
+                }
+                offset += recordLength;
+            }
+            return offset;
+        } finally {
+            input.close();
+        }
+    }
+
+    private void openSegments(List<Segment> segments) throws IOException {
+        for (Segment segment : segments) {
+            segment.size = segment.file.length();
+            segment.input = new RandomAccessFile(segment.file, "r");
+        }
+    }
+
+    private byte[] readRecord(Location location) throws IOException {
+        if (location.segment == active && location.offset + location.length > flushedSize) {
+            flushActiveSegment();
+        }
+        byte[] record = new byte[location.length];
+        RandomAccessFile input = location.segment.input;
+        input.seek(location.offset);
+        input.readFully(record);
+        ByteBuffer buffer = ByteBuffer.wrap(record);
+        if (buffer.getInt(0) != location.keyLength || buffer.getInt(4) != location.valueLength) {
+            throw new CorruptedCacheException();
+        }
+        CRC32 checksum = new CRC32();
+        checksum.update(record, 0, record.length - 4);
+        if ((int) checksum.getValue() != buffer.getInt(record.length - 4)) {
+            throw new CorruptedCacheException();
+        }
+        return record;
+    }
+
+    private static byte[] encodeRecord(byte[] key, @Nullable byte[] value) {
+        int valueLength = value == null ? REMOVED : value.length;
+        byte[] record = new byte[RECORD_OVERHEAD + key.length + Math.max(valueLength, 0)];
+        ByteBuffer buffer = ByteBuffer.wrap(record);
+        buffer.putInt(key.length);
+        buffer.putInt(valueLength);
+        buffer.put(key);
+        if (value != null) {
+            buffer.put(value);
+        }
+        CRC32 checksum = new CRC32();
+        checksum.update(record, 0, record.length - 4);
+        buffer.putInt((int) checksum.getValue());
+        return record;
+    }
+
+    private Location append(byte[] record) throws IOException {
+        return append(record, 0, record.length);
+    }
+
+    private Location append(byte[] bytes, int offset, int length) throws IOException {
+        if (active.size > SEGMENT_HEADER_SIZE && active.size + length > segmentSize) {
+            startSegment(active.id + 1);
+        }
+        ByteBuffer record = ByteBuffer.wrap(bytes, offset, length);
+        Location location = new Location(active, active.size, record.getInt(offset), record.getInt(offset + 4));
+        activeOutput.write(bytes, offset, length);
+        active.size += length;
+        totalBytes += length;
+        bytesSinceCheckpoint += length;
+        return location;
+    }
+
+    private void discard(@Nullable Location location) {
+        if (location != null) {
+            location.segment.liveBytes -= location.length;
+            liveBytes -= location.length;
+        }
+    }
+
+    private void compactIfRequired() throws IOException {
+        long garbage = totalBytes - liveBytes;
+        if (garbage <= segmentSize || garbage <= liveBytes) {
+            return;
+        }
+        if (segments.size() == 1) {
+            // Only the oldest segments are compacted, so start a new segment to be able to compact the current one
+            startSegment(active.id + 1);
+        }
+        // Compact down to half of the allowed garbage, so that compaction does not run again straight away
+        while (segments.size() > 1 && totalBytes - liveBytes > liveBytes / 2) {
+            compactOldestSegment();
+        }
+    }
+
+    private void compactOldestSegment() throws IOException {
+        Segment oldest = segments.get(0);
+        byte[] content = new byte[(int) oldest.size];
+        oldest.input.seek(0);
+        oldest.input.readFully(content);
+        for (Map.Entry<Key, Location> entry : index.entrySet()) {
+            Location location = entry.getValue();
+            if (location.segment == oldest) {
+                Location copy = append(content, (int) location.offset, location.length);
+                copy.segment.liveBytes += copy.length;
+                entry.setValue(copy);
+            }
+        }
+        // The checkpoint refers to the segment, so it no longer matches the log
+        invalidateCheckpoint();
+        segments.remove(0);
+        totalBytes -= oldest.size;
+        oldest.input.close();
+        if (!oldest.file.delete()) {
+            throw new IOException(String.format("Could not delete %s.", oldest.file));
+        }
+    }
+
+    private void startSegment(long id) throws IOException {
+        if (activeOutput != null) {
+            activeOutput.close();
+        }
+        File file = new File(dir, "segment-" + id + ".bin");
+        activeOutput = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+        activeOutput.writeInt(SEGMENT_MAGIC);
+        activeOutput.writeInt(FORMAT_VERSION);
+        activeOutput.flush();
+        active = new Segment(id, file);
+        active.size = SEGMENT_HEADER_SIZE;
+        active.input = new RandomAccessFile(file, "r");
+        flushedSize = active.size;
+        segments.add(active);
+        totalBytes += active.size;
+    }
+
+    private void invalidateCheckpoint() {
+        if (checkpointValid) {
+            new File(dir, CHECKPOINT_FILE_NAME).delete();
+            checkpointValid = false;
+        }
+    }
+
+    private void flushActiveSegment() throws IOException {
+        activeOutput.flush();
+        flushedSize = active.size;
+    }
+
+    private void closeSegments() throws IOException {
+        try {
+            if (activeOutput != null) {
+                activeOutput.close();
+            }
+        } finally {
+            activeOutput = null;
+            closeQuietly(segments);
+        }
+    }
+
+    private void discardAll() throws IOException {
+        closeSegments();
+        index.clear();
+        segments.clear();
+        active = null;
+        totalBytes = 0;
+        liveBytes = 0;
+        checkpointValid = false;
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                if (SEGMENT_FILE_NAME.matcher(file.getName()).matches() || file.getName().startsWith(CHECKPOINT_FILE_NAME)) {
+                    if (!file.delete()) {
+                        throw new IOException(String.format("Could not delete %s.", file));
+                    }
+                }
+            }
+        }
+        startSegment(1);
+    }
+
+    private static void closeQuietly(List<Segment> segments) {
+        for (Segment segment : segments) {
+            if (segment.input != null) {
+                try {
+                    segment.input.close();
+                } catch (IOException e) {
+                    // Ignore
+                }
+                segment.input = null;
+            }
+        }
+    }
+
+    private byte[] serialize(Serializer<?> serializer, Object value) throws Exception {
+        serializedBytes.reset();
+        @SuppressWarnings("unchecked")
+        Serializer<Object> objectSerializer = (Serializer<Object>) serializer;
+        objectSerializer.write(encoder, value);
+        encoder.flush();
+        return serializedBytes.toByteArray();
+    }
+
+    private static class Segment {
+        private final long id;
+        private final File file;
+        private RandomAccessFile input;
+        private long size;
+        private long liveBytes;
+
+        Segment(long id, File file) {
+            this.id = id;
+            this.file = file;
+        }
+    }
+
+    private static class Location {
+        private final Segment segment;
+        private final long offset;
+        private final int keyLength;
+        private final int valueLength;
+        private final int length;
+
+        Location(Segment segment, long offset, int keyLength, int valueLength) {
+            this.segment = segment;
+            this.offset = offset;
+            this.keyLength = keyLength;
+            this.valueLength = valueLength;
+            this.length = RECORD_OVERHEAD + keyLength + Math.max(valueLength, 0);
+        }
+    }
+
+    private static class Key {
+        private final byte[] bytes;
+        private final int hashCode;
+
+        Key(byte[] bytes) {
+            this.bytes = bytes;
+            this.hashCode = Arrays.hashCode(bytes);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof Key && Arrays.equals(bytes, ((Key) obj).bytes);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+
+    private static class CorruptedCacheException extends RuntimeException {
+    }
+}
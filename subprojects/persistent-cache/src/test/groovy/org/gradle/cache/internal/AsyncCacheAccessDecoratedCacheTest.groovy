@@ -0,0 +1,149 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.cache.internal
+
+import org.gradle.cache.AsyncCacheAccess
+import org.gradle.cache.MultiProcessSafePersistentIndexedCache
+import org.gradle.internal.Factory
+import spock.lang.Specification
+
+class AsyncCacheAccessDecoratedCacheTest extends Specification {
+    def queue = []
+    def asyncCacheAccess = Stub(AsyncCacheAccess) {
+        enqueue(_) >> { Runnable task -> queue << task }
+        read(_) >> { Factory factory -> factory.create() }
+    }
+    def persistentCache = Mock(MultiProcessSafePersistentIndexedCache)
+    def cache = new AsyncCacheAccessDecoratedCache<String, String>(asyncCacheAccess, persistentCache)
+
+    def "coalesces pending updates to the same key"() {
+        def completion1 = Mock(Runnable)
+        def completion2 = Mock(Runnable)
+        def completion3 = Mock(Runnable)
+
+        when:
+        cache.putLater("key", "1", completion1)
+        cache.putLater("key", "2", completion2)
+        cache.putLater("key", "3", completion3)
+
+        then:
+        queue.size() == 1
+        0 * _
+
+        when:
+        queue.remove(0).run()
+
+        then:
+        1 * persistentCache.put("key", "3")
+
+        then:
+        1 * completion1.run()
+        1 * completion2.run()
+        1 * completion3.run()
+        0 * _
+    }
+
+    def "applies the latest of a put and a remove"() {
+        when:
+        cache.putLater("key", "1", {})
+        cache.removeLater("key", {})
+        queue.remove(0).run()
+
+        then:
+        1 * persistentCache.remove("key")
+        0 * _
+
+        when:
+        cache.removeLater("key", {})
+        cache.putLater("key", "2", {})
+        queue.remove(0).run()
+
+        then:
+        1 * persistentCache.put("key", "2")
+        0 * _
+    }
+
+    def "queues a separate update for each key"() {
+        when:
+        cache.putLater("a", "1", {})
+        cache.putLater("b", "2", {})
+        cache.putLater("a", "3", {})
+
+        then:
+        queue.size() == 2
+
+        when:
+        queue.each { it.run() }
+
+        then:
+        1 * persistentCache.put("a", "3")
+        1 * persistentCache.put("b", "2")
+        0 * _
+    }
+
+    def "queues a new update for a key once the pending update has been applied"() {
+        when:
+        cache.putLater("key", "1", {})
+        queue.remove(0).run()
+        cache.putLater("key", "2", {})
+
+        then:
+        1 * persistentCache.put("key", "1")
+        queue.size() == 1
+    }
+
+    def "reads pending update without querying the backing cache"() {
+        when:
+        cache.putLater("key", "1", {})
+        cache.removeLater("removed", {})
+        def value = cache.get("key")
+        def removed = cache.get("removed")
+
+        then:
+        value == "1"
+        removed == null
+        0 * persistentCache._
+
+        when:
+        queue.each { it.run() }
+        def result = cache.get("key")
+
+        then:
+        1 * persistentCache.get("key") >> "1"
+        result == "1"
+    }
+
+    def "runs completions when update fails"() {
+        def failure = new RuntimeException()
+        def completion1 = Mock(Runnable)
+        def completion2 = Mock(Runnable)
+
+        given:
+        cache.putLater("key", "1", completion1)
+        cache.putLater("key", "2", completion2)
+
+        when:
+        queue.remove(0).run()
+
+        then:
+        1 * persistentCache.put("key", "2") >> { throw failure }
+        1 * completion1.run()
+        1 * completion2.run()
+        def e = thrown(RuntimeException)
+        e == failure
+    }
+}
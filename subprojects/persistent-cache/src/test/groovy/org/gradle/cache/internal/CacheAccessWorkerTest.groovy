@@ -198,4 +198,28 @@ class CacheAccessWorkerTest extends ConcurrentSpec {
         def e = thrown(RuntimeException)
         e == failure
     }
+
+    def "records queue depth and flush statistics"() {
+        given:
+        def counter = 0
+        cacheAccessWorker.enqueue { counter++ }
+        cacheAccessWorker.enqueue { counter++ }
+        cacheAccessWorker.enqueue { counter++ }
+
+        when:
+        start(cacheAccessWorker)
+        cacheAccessWorker.flush()
+
+        then:
+        counter == 3
+        cacheAccessWorker.queueDepth == 0
+        // The flush command may already be queued when the worker starts its first batch
+        cacheAccessWorker.maxQueueDepth >= 3
+        cacheAccessWorker.operationCount >= 3
+        cacheAccessWorker.batchCount >= 1
+        cacheAccessWorker.flushCount == 1
+
+        cleanup:
+        cacheAccessWorker?.stop()
+    }
 }
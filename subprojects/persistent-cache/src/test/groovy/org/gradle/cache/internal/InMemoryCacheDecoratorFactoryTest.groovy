@@ -18,6 +18,7 @@ package org.gradle.cache.internal
 
 import org.gradle.cache.AsyncCacheAccess
 import org.gradle.cache.CrossProcessCacheAccess
+import org.gradle.cache.FileLock
 import org.gradle.cache.MultiProcessSafePersistentIndexedCache
 import org.gradle.internal.Factory
 import spock.lang.Specification
@@ -66,6 +67,41 @@ class InMemoryCacheDecoratorFactoryTest extends Specification {
         0 * target._
     }
 
+    def "keeps entries in store created by store factory and reuses it for other instances with the same cache id"() {
+        given:
+        def store = Mock(InMemoryCacheStore)
+        def storeFactory = Mock(InMemoryCacheStore.Factory)
+        def cache = cacheFactory.decorator(100, true, storeFactory).decorate("path/fileHashes.bin", "fileHashes", target, crossProcessCacheAccess, asyncCacheAccess)
+
+        when:
+        def result = cache.get("key")
+
+        then:
+        result == "result"
+
+        and:
+        1 * storeFactory.create(_) >> store
+        1 * crossProcessCacheAccess.withFileLock(_) >> { Factory task -> task.create() }
+        1 * store.get("key") >> null
+        1 * asyncCacheAccess.read(_) >> { Factory task -> task.create() }
+        1 * target.get("key") >> "result"
+        1 * store.put("key", "result")
+        0 * target._
+
+        when:
+        def cache2 = cacheFactory.decorator(100, true, storeFactory).decorate("path/fileHashes.bin", "fileHashes", target, crossProcessCacheAccess, asyncCacheAccess)
+        result = cache2.get("key")
+
+        then:
+        result == "result"
+
+        and:
+        0 * storeFactory._
+        1 * crossProcessCacheAccess.withFileLock(_) >> { Factory task -> task.create() }
+        1 * store.get("key") >> "result"
+        0 * target._
+    }
+
     def "does not cache result when not long running process"() {
         given:
         def cache = cacheFactory.decorator(100, false).decorate("path/fileSnapshots.bin", "fileSnapshots", target, crossProcessCacheAccess, asyncCacheAccess)
@@ -200,4 +236,65 @@ class InMemoryCacheDecoratorFactoryTest extends Specification {
         0 * target._
     }
 
+    def "reads entry held in memory without acquiring lock while lock is held"() {
+        def state = Stub(FileLock.State)
+
+        given:
+        def cache = cacheFactory.decorator(100, true).decorate("path/fileSnapshots.bin", "fileSnapshots", target, crossProcessCacheAccess, asyncCacheAccess)
+        cache.afterLockAcquire(state)
+
+        when:
+        def result = cache.get("key")
+
+        then:
+        result == "result"
+
+        and:
+        1 * crossProcessCacheAccess.withFileLock(_) >> { Factory task -> task.create() }
+        1 * asyncCacheAccess.read(_) >> { Factory task -> task.create() }
+        1 * target.get("key") >> "result"
+        0 * _._
+
+        when:
+        result = cache.get("key")
+
+        then:
+        result == "result"
+
+        and:
+        0 * _._
+
+        when:
+        cache.beforeLockRelease(state)
+        result = cache.get("key")
+
+        then:
+        result == "result"
+
+        and:
+        1 * target.beforeLockRelease(state)
+        1 * crossProcessCacheAccess.withFileLock(_) >> { Factory task -> task.create() }
+        0 * _._
+    }
+
+    def "acquires lock to read entry which is known to be missing"() {
+        def state = Stub(FileLock.State)
+
+        given:
+        def cache = cacheFactory.decorator(100, true).decorate("path/fileSnapshots.bin", "fileSnapshots", target, crossProcessCacheAccess, asyncCacheAccess)
+        cache.afterLockAcquire(state)
+
+        when:
+        cache.get("key")
+        def result = cache.get("key")
+
+        then:
+        result == null
+
+        and:
+        2 * crossProcessCacheAccess.withFileLock(_) >> { Factory task -> task.create() }
+        1 * asyncCacheAccess.read(_) >> { Factory task -> task.create() }
+        1 * target.get("key") >> null
+        0 * _._
+    }
 }
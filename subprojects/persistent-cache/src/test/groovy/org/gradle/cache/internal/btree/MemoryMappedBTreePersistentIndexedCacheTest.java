@@ -0,0 +1,106 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.cache.internal.btree;
+
+import org.gradle.internal.serialize.DefaultSerializer;
+import org.gradle.test.fixtures.file.TestFile;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assume.assumeTrue;
+
+public class MemoryMappedBTreePersistentIndexedCacheTest extends BTreePersistentIndexedCacheTest {
+    @Before
+    public void checkSupported() {
+        assumeTrue(MemoryMappedBlockStore.isSupported());
+    }
+
+    @Override
+    protected BlockStore createBlockStore(File cacheFile) {
+        return new MemoryMappedBlockStore(cacheFile);
+    }
+
+    @Override
+    @Test
+    public void handlesOpeningATruncatedCacheFile() throws IOException {
+        // The file is grown ahead of the blocks written to it while the cache is open, so truncate it once it has been closed
+        TestFile cacheFile = tmpDir.file("cache.bin");
+        BTreePersistentIndexedCache<String, Integer> cache = newCache(cacheFile);
+        cache.put("key_1", 99);
+        cache.close();
+
+        RandomAccessFile file = new RandomAccessFile(cacheFile, "rw");
+        file.setLength(file.length() - 10);
+        file.close();
+
+        cache = newCache(cacheFile);
+        assertNull(cache.get("key_1"));
+        cache.verify();
+        cache.close();
+    }
+
+    @Test
+    public void truncatesSpaceReservedForGrowthWhenClosed() {
+        TestFile cacheFile = tmpDir.file("cache.bin");
+        BTreePersistentIndexedCache<String, Integer> cache = newCache(cacheFile);
+        for (int i = 0; i < 100; i++) {
+            cache.put("key_" + i, i);
+        }
+        cache.close();
+        long length = cacheFile.length();
+
+        cache = newCache(cacheFile);
+        for (int i = 0; i < 100; i++) {
+            assertThat(cache.get("key_" + i), equalTo(i));
+        }
+        cache.close();
+
+        assertThat(cacheFile.length(), equalTo(length));
+    }
+
+    @Test
+    public void canReadCacheWrittenByFileBackedStore() {
+        TestFile cacheFile = tmpDir.file("cache.bin");
+        BTreePersistentIndexedCache<String, Integer> cache = new BTreePersistentIndexedCache<String, Integer>(cacheFile, new DefaultSerializer<String>(), new DefaultSerializer<Integer>());
+        for (int i = 0; i < 100; i++) {
+            cache.put("key_" + i, i);
+        }
+        cache.close();
+
+        cache = newCache(cacheFile);
+        for (int i = 0; i < 100; i++) {
+            assertThat(cache.get("key_" + i), equalTo(i));
+        }
+        cache.put("key_100", 100);
+        cache.close();
+
+        cache = new BTreePersistentIndexedCache<String, Integer>(cacheFile, new DefaultSerializer<String>(), new DefaultSerializer<Integer>());
+        assertThat(cache.get("key_100"), equalTo(100));
+        cache.verify();
+        cache.close();
+    }
+
+    private BTreePersistentIndexedCache<String, Integer> newCache(File cacheFile) {
+        return new BTreePersistentIndexedCache<String, Integer>(cacheFile, new DefaultSerializer<String>(), new DefaultSerializer<Integer>(), createBlockStore(cacheFile));
+    }
+}
@@ -0,0 +1,233 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.cache.internal.logstructured
+
+import org.gradle.internal.serialize.DefaultSerializer
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
+import spock.lang.Specification
+
+class LogStructuredPersistentIndexedCacheTest extends Specification {
+    @Rule
+    TestNameTestDirectoryProvider tmpDir = new TestNameTestDirectoryProvider()
+    def dir = tmpDir.file("cache")
+    LogStructuredPersistentIndexedCache<String, Integer> cache
+
+    def cleanup() {
+        cache?.close()
+    }
+
+    def "gets, puts and removes entries"() {
+        given:
+        open()
+
+        expect:
+        cache.get("a") == null
+
+        when:
+        cache.put("a", 1)
+        cache.put("b", 2)
+        cache.put("a", 3)
+        cache.remove("b")
+        cache.remove("c")
+
+        then:
+        cache.get("a") == 3
+        cache.get("b") == null
+        cache.get("c") == null
+    }
+
+    def "entries are persisted when cache is #description"() {
+        given:
+        open()
+        (1..100).each { cache.put("key_$it", it) }
+        (1..100).step(2) { cache.remove("key_$it") }
+        cache.close()
+
+        when:
+        if (checkpointDeleted) {
+            new File(dir, "index.bin").delete()
+        }
+        open()
+
+        then:
+        (1..100).every { cache.get("key_$it") == (it % 2 == 0 ? it : null) }
+
+        where:
+        description                             | checkpointDeleted
+        "reopened from checkpoint"              | false
+        "reopened without checkpoint"           | true
+    }
+
+    def "reads records added after the checkpoint without rewriting the checkpoint"() {
+        given:
+        open()
+        (1..100).each { cache.put("key_$it", it) }
+        cache.close()
+        def checkpoint = new File(dir, "index.bin").bytes
+
+        when:
+        open()
+        cache.put("key_1", 101)
+        cache.remove("key_2")
+        cache.put("key_101", 101)
+        cache.close()
+
+        then:
+        new File(dir, "index.bin").bytes == checkpoint
+
+        when:
+        open()
+
+        then:
+        cache.get("key_1") == 101
+        cache.get("key_2") == null
+        cache.get("key_3") == 3
+        cache.get("key_101") == 101
+    }
+
+    def "rewrites the checkpoint once more than a segment has been added after it"() {
+        given:
+        open(1024)
+        cache.put("key_0", 0)
+        cache.close()
+        def checkpoint = new File(dir, "index.bin").bytes
+
+        when:
+        open(1024)
+        (1..100).each { cache.put("key_$it", it) }
+        cache.close()
+
+        then:
+        new File(dir, "index.bin").bytes != checkpoint
+
+        when:
+        open(1024)
+
+        then:
+        (0..100).every { cache.get("key_$it") == it }
+    }
+
+    def "ignores checkpoint which refers to a compacted segment"() {
+        given:
+        open(1024)
+        (1..10).each { cache.put("key_$it", it) }
+        cache.close()
+        def checkpoint = new File(dir, "index.bin").bytes
+
+        when:
+        open(1024)
+        500.times { cache.put("key_${it % 5}", it) }
+        cache.close()
+        new File(dir, "index.bin").bytes = checkpoint
+        open(1024)
+
+        then:
+        !new File(dir, "segment-1.bin").exists()
+        (0..4).every { cache.get("key_$it") == 495 + it }
+        (5..10).every { cache.get("key_$it") == it }
+    }
+
+    def "discards record which was not completely written"() {
+        given:
+        open()
+        cache.put("a", 1)
+        cache.put("b", 2)
+        cache.close()
+        new File(dir, "index.bin").delete()
+        new File(dir, "segment-1.bin").append([0, 0, 0, 1, 0, 0, 0, 9, 1, 2] as byte[])
+
+        when:
+        open()
+        cache.put("c", 3)
+        cache.close()
+        new File(dir, "index.bin").delete()
+        open()
+
+        then:
+        cache.get("a") == 1
+        cache.get("b") == 2
+        cache.get("c") == 3
+    }
+
+    def "discards corrupt cache"() {
+        given:
+        open(1024)
+        (1..100).each { cache.put("key_$it", it) }
+        cache.close()
+        new File(dir, "index.bin").delete()
+        def file = new RandomAccessFile(new File(dir, "segment-1.bin"), "rw")
+        file.seek(20)
+        file.write([9, 9, 9, 9] as byte[])
+        file.close()
+
+        when:
+        open(1024)
+
+        then:
+        cache.get("key_1") == null
+        cache.get("key_100") == null
+
+        when:
+        cache.put("key_1", 1)
+
+        then:
+        cache.get("key_1") == 1
+    }
+
+    def "compacts segments which hold mostly replaced entries"() {
+        given:
+        open(4096)
+
+        when:
+        1000.times { i ->
+            cache.put("key_${i % 10}", i)
+        }
+
+        then:
+        cache.sizeOnDisk < 3 * 4096
+        (0..9).every { cache.get("key_$it") == 990 + it }
+
+        when:
+        cache.close()
+        open(4096)
+
+        then:
+        (0..9).every { cache.get("key_$it") == 990 + it }
+    }
+
+    def "does not bring back removed entries when compacting"() {
+        given:
+        open(1024)
+
+        when:
+        (1..20).each { cache.put("removed_$it", it) }
+        (1..20).each { cache.remove("removed_$it") }
+        500.times { cache.put("key_${it % 5}", it) }
+        cache.close()
+        new File(dir, "index.bin").delete()
+        open(1024)
+
+        then:
+        (1..20).every { cache.get("removed_$it") == null }
+        (0..4).every { cache.get("key_$it") == 495 + it }
+    }
+
+    private void open(long segmentSize = LogStructuredPersistentIndexedCache.DEFAULT_SEGMENT_SIZE) {
+        cache = new LogStructuredPersistentIndexedCache<String, Integer>(dir, new DefaultSerializer<String>(), new DefaultSerializer<Integer>(), segmentSize)
+    }
+}
@@ -17,7 +17,11 @@
 package org.gradle.internal.resource.transport.http;
 
 import com.google.common.collect.Iterables;
+import org.apache.http.HttpClientConnection;
+import org.apache.http.HttpException;
 import org.apache.http.HttpHeaders;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpResponse;
 import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpHead;
@@ -26,6 +30,7 @@ import org.apache.http.impl.client.CloseableHttpClient;
 import org.apache.http.impl.client.HttpClientBuilder;
 import org.apache.http.protocol.BasicHttpContext;
 import org.apache.http.protocol.HttpContext;
+import org.apache.http.protocol.HttpRequestExecutor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -45,6 +50,7 @@ public class HttpClientHelper implements Closeable {
     private static final Logger LOGGER = LoggerFactory.getLogger(HttpClientHelper.class);
     private CloseableHttpClient client;
     private final HttpSettings settings;
+    private final HttpConnectionStatistics connectionStatistics = new HttpConnectionStatistics();
 
     /**
      * Maintains a queue of contexts which are shared between threads when authentication
@@ -167,11 +173,19 @@ public class HttpClientHelper implements Closeable {
         if (client == null) {
             HttpClientBuilder builder = HttpClientBuilder.create();
             new HttpClientConfigurer(settings).configure(builder);
+            builder.setRequestExecutor(new StatisticsRecordingRequestExecutor(connectionStatistics));
             this.client = builder.build();
         }
         return client;
     }
 
+    /**
+     * Returns the number of requests sent by this client and the number of connections opened to send them.
+     */
+    public HttpConnectionStatistics getConnectionStatistics() {
+        return connectionStatistics;
+    }
+
     @Override
     public synchronized void close() throws IOException {
         if (client != null) {
@@ -182,6 +196,21 @@ public class HttpClientHelper implements Closeable {
         }
     }
 
+    private static class StatisticsRecordingRequestExecutor extends HttpRequestExecutor {
+        private final HttpConnectionStatistics statistics;
+
+        private StatisticsRecordingRequestExecutor(HttpConnectionStatistics statistics) {
+            this.statistics = statistics;
+        }
+
+        @Override
+        public HttpResponse execute(HttpRequest request, HttpClientConnection connection, HttpContext context) throws IOException, HttpException {
+            // A connection that has not sent any requests yet has been opened for this request, otherwise it has been reused from the pool
+            statistics.requestSent(connection.getMetrics().getRequestCount() == 0);
+            return super.execute(request, connection, context);
+        }
+    }
+
     private static class FailureFromRedirectLocation extends IOException {
         private final URI lastRedirectLocation;
 
@@ -0,0 +1,60 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.resource.transport.http;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts the requests sent by an HTTP client and the connections that were opened to send them.
+ */
+public class HttpConnectionStatistics {
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong connections = new AtomicLong();
+
+    void requestSent(boolean newConnection) {
+        requests.incrementAndGet();
+        if (newConnection) {
+            connections.incrementAndGet();
+        }
+    }
+
+    /**
+     * Returns the number of requests sent, including requests sent to establish a tunnel through a proxy.
+     */
+    public long getRequestCount() {
+        return requests.get();
+    }
+
+    /**
+     * Returns the number of connections opened.
+     */
+    public long getConnectionCount() {
+        return connections.get();
+    }
+
+    /**
+     * Returns the number of requests that were sent over a connection that had already been used by a previous request.
+     */
+    public long getReusedConnectionCount() {
+        return requests.get() - connections.get();
+    }
+
+    @Override
+    public String toString() {
+        return getRequestCount() + " requests using " + getConnectionCount() + " connections";
+    }
+}
@@ -57,10 +57,10 @@ import java.util.EnumSet;
 import java.util.List;
 
 public class DirectorySnapshotter {
-    private final FileHasher hasher;
-    private final FileSystem fileSystem;
-    private final StringInterner stringInterner;
-    private final DefaultExcludes defaultExcludes;
+    final FileHasher hasher;
+    final FileSystem fileSystem;
+    final StringInterner stringInterner;
+    final DefaultExcludes defaultExcludes;
 
     public DirectorySnapshotter(FileHasher hasher, FileSystem fileSystem, StringInterner stringInterner, String... defaultExcludes) {
         this.hasher = hasher;
@@ -235,7 +235,7 @@ public class DirectorySnapshotter {
         }
     }
 
-    private static class PathBackedFileTreeElement implements FileTreeElement {
+    static class PathBackedFileTreeElement implements FileTreeElement {
         private final Path path;
         private final String name;
         private final boolean isDirectory;
@@ -0,0 +1,316 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.snapshot.impl;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import org.gradle.api.GradleException;
+import org.gradle.api.file.FileTreeElement;
+import org.gradle.api.internal.cache.StringInterner;
+import org.gradle.api.specs.Spec;
+import org.gradle.api.tasks.util.PatternSet;
+import org.gradle.internal.Factories;
+import org.gradle.internal.Factory;
+import org.gradle.internal.MutableBoolean;
+import org.gradle.internal.file.FileType;
+import org.gradle.internal.hash.FileHasher;
+import org.gradle.internal.hash.HashCode;
+import org.gradle.internal.nativeintegration.filesystem.DefaultFileMetadata;
+import org.gradle.internal.nativeintegration.filesystem.FileSystem;
+import org.gradle.internal.snapshot.FileSystemLocationSnapshot;
+import org.gradle.internal.snapshot.MerkleDirectorySnapshotBuilder;
+import org.gradle.internal.snapshot.RegularFileSnapshot;
+
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A {@link DirectorySnapshotter} which walks and hashes the directories of a tree in parallel, using a {@link ForkJoinPool}.
+ *
+ * Each directory is listed by its own task, and directories with many entries are split into several tasks.
+ * The result is the same as for the sequential {@link DirectorySnapshotter}, since the children of each directory are sorted by name
+ * before the directory snapshot is assembled.
+ */
+public class ParallelDirectorySnapshotter extends DirectorySnapshotter {
+    private static final int ENTRIES_PER_TASK = 64;
+
+    private final Factory<ForkJoinPool> poolFactory;
+
+    public ParallelDirectorySnapshotter(FileHasher hasher, FileSystem fileSystem, StringInterner stringInterner, ForkJoinPool pool, String... defaultExcludes) {
+        this(hasher, fileSystem, stringInterner, Factories.constant(pool), defaultExcludes);
+    }
+
+    /**
+     * Creates a snapshotter which asks the given factory for the pool to use for each walk, so the pool can be replaced between walks.
+     */
+    public ParallelDirectorySnapshotter(FileHasher hasher, FileSystem fileSystem, StringInterner stringInterner, Factory<ForkJoinPool> poolFactory, String... defaultExcludes) {
+        super(hasher, fileSystem, stringInterner, defaultExcludes);
+        this.poolFactory = poolFactory;
+    }
+
+    @Override
+    public FileSystemLocationSnapshot snapshot(String absolutePath, @Nullable PatternSet patterns, MutableBoolean hasBeenFiltered) {
+        Path rootPath = Paths.get(absolutePath);
+        Spec<FileTreeElement> spec = (patterns == null || patterns.isEmpty()) ? null : patterns.getAsSpec();
+        BasicFileAttributes attrs;
+        try {
+            attrs = Files.readAttributes(rootPath, BasicFileAttributes.class);
+        } catch (IOException e) {
+            throw new GradleException(String.format("Could not read path '%s'.", rootPath), e);
+        }
+        Walk walk = new Walk(spec, hasBeenFiltered);
+        String name = stringInterner.intern(rootPath.getFileName().toString());
+        FileSystemLocationSnapshot result = poolFactory.create().invoke(new DirectoryTask(walk, rootPath, name, ImmutableList.<String>of(), new Ancestor(null, rootPath, attrs.fileKey())));
+        walk.rethrowFailure();
+        return result;
+    }
+
+    /**
+     * State shared by all the tasks walking the same tree.
+     */
+    private class Walk {
+        private final Spec<FileTreeElement> spec;
+        private final MutableBoolean hasBeenFiltered;
+        // Failures are collected here instead of being propagated by the tasks, since the fork/join pool does not preserve the exception messages
+        private final AtomicReference<RuntimeException> failure = new AtomicReference<RuntimeException>();
+
+        Walk(@Nullable Spec<FileTreeElement> spec, MutableBoolean hasBeenFiltered) {
+            this.spec = spec;
+            this.hasBeenFiltered = hasBeenFiltered;
+        }
+
+        boolean isAllowed(Path path, String name, boolean isDirectory, @Nullable BasicFileAttributes attrs, Iterable<String> relativePath) {
+            if (isDirectory) {
+                if (defaultExcludes.excludeDir(name)) {
+                    return false;
+                }
+            } else if (defaultExcludes.excludeFile(name)) {
+                return false;
+            }
+            if (spec == null) {
+                return true;
+            }
+            boolean allowed = spec.isSatisfiedBy(new PathBackedFileTreeElement(path, name, isDirectory, attrs, relativePath, fileSystem));
+            if (!allowed) {
+                hasBeenFiltered.set(true);
+            }
+            return allowed;
+        }
+
+        void failed(RuntimeException e) {
+            failure.compareAndSet(null, e);
+        }
+
+        boolean hasFailed() {
+            return failure.get() != null;
+        }
+
+        void rethrowFailure() {
+            RuntimeException e = failure.get();
+            if (e != null) {
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * The directories on the path from the root to the current directory, used to detect loops via symbolic links.
+     */
+    private static class Ancestor {
+        private final Ancestor parent;
+        private final Path path;
+        private final Object fileKey;
+
+        Ancestor(@Nullable Ancestor parent, Path path, @Nullable Object fileKey) {
+            this.parent = parent;
+            this.path = path;
+            this.fileKey = fileKey;
+        }
+
+        boolean wouldLoop(Path dir, @Nullable Object dirFileKey) {
+            for (Ancestor ancestor = this; ancestor != null; ancestor = ancestor.parent) {
+                if (dirFileKey != null && ancestor.fileKey != null) {
+                    if (dirFileKey.equals(ancestor.fileKey)) {
+                        return true;
+                    }
+                } else {
+                    try {
+                        if (Files.isSameFile(dir, ancestor.path)) {
+                            return true;
+                        }
+                    } catch (IOException e) {
+                        // Same as Files.walkFileTree(), assume this is not a loop
+                    }
+                }
+            }
+            return false;
+        }
+    }
+
+    private class DirectoryTask extends RecursiveTask<FileSystemLocationSnapshot> {
+        private final Walk walk;
+        private final Path dir;
+        private final String name;
+        // The relative path of the children of the directory, which does not include the name of the root directory
+        private final ImmutableList<String> relativePath;
+        private final Ancestor ancestors;
+
+        DirectoryTask(Walk walk, Path dir, String name, ImmutableList<String> relativePath, Ancestor ancestors) {
+            this.walk = walk;
+            this.dir = dir;
+            this.name = name;
+            this.relativePath = relativePath;
+            this.ancestors = ancestors;
+        }
+
+        @Override
+        protected FileSystemLocationSnapshot compute() {
+            try {
+                return walkDirectory();
+            } catch (RuntimeException e) {
+                walk.failed(e);
+                return null;
+            }
+        }
+
+        @Nullable
+        private FileSystemLocationSnapshot walkDirectory() {
+            if (walk.hasFailed()) {
+                return null;
+            }
+            List<Path> entries = new ArrayList<Path>();
+            try {
+                DirectoryStream<Path> stream = Files.newDirectoryStream(dir);
+                try {
+                    for (Path entry : stream) {
+                        entries.add(entry);
+                    }
+                } finally {
+                    stream.close();
+                }
+            } catch (IOException e) {
+                throw new GradleException(String.format("Could not read path '%s'.", dir), e);
+            }
+
+            List<EntriesTask> tasks = new ArrayList<EntriesTask>();
+            for (List<Path> batch : Lists.partition(entries, ENTRIES_PER_TASK)) {
+                tasks.add(new EntriesTask(this, batch));
+            }
+            invokeAll(tasks);
+            if (walk.hasFailed()) {
+                return null;
+            }
+
+            MerkleDirectorySnapshotBuilder builder = MerkleDirectorySnapshotBuilder.sortingRequired();
+            builder.preVisitDirectory(stringInterner.intern(dir.toString()), name);
+            for (EntriesTask task : tasks) {
+                for (FileSystemLocationSnapshot child : task.join()) {
+                    builder.visit(child);
+                }
+            }
+            builder.postVisitDirectory();
+            return builder.getResult();
+        }
+    }
+
+    private class EntriesTask extends RecursiveTask<List<FileSystemLocationSnapshot>> {
+        private final DirectoryTask parent;
+        private final List<Path> entries;
+
+        EntriesTask(DirectoryTask parent, List<Path> entries) {
+            this.parent = parent;
+            this.entries = entries;
+        }
+
+        @Override
+        protected List<FileSystemLocationSnapshot> compute() {
+            try {
+                return walkEntries();
+            } catch (RuntimeException e) {
+                parent.walk.failed(e);
+                return null;
+            }
+        }
+
+        @Nullable
+        private List<FileSystemLocationSnapshot> walkEntries() {
+            Walk walk = parent.walk;
+            ImmutableList<String> relativePath = parent.relativePath;
+            List<FileSystemLocationSnapshot> children = new ArrayList<FileSystemLocationSnapshot>(entries.size());
+            List<DirectoryTask> subDirectories = new ArrayList<DirectoryTask>();
+            for (Path entry : entries) {
+                String name = stringInterner.intern(entry.getFileName().toString());
+                BasicFileAttributes attrs;
+                try {
+                    attrs = Files.readAttributes(entry, BasicFileAttributes.class);
+                } catch (IOException e) {
+                    visitUnreadableEntry(walk, entry, name, relativePath, e);
+                    continue;
+                }
+                if (attrs.isDirectory()) {
+                    // Loops via symbolic links are ignored, so that each file is included only once
+                    if (!parent.ancestors.wouldLoop(entry, attrs.fileKey()) && walk.isAllowed(entry, name, true, attrs, relativePath)) {
+                        ImmutableList<String> childRelativePath = ImmutableList.<String>builder().addAll(relativePath).add(name).build();
+                        subDirectories.add(new DirectoryTask(walk, entry, name, childRelativePath, new Ancestor(parent.ancestors, entry, attrs.fileKey())));
+                    }
+                } else if (walk.isAllowed(entry, name, false, attrs, relativePath)) {
+                    children.add(fileSnapshot(entry, name, attrs));
+                }
+            }
+            invokeAll(subDirectories);
+            if (walk.hasFailed()) {
+                return null;
+            }
+            for (DirectoryTask subDirectory : subDirectories) {
+                children.add(subDirectory.join());
+            }
+            return children;
+        }
+
+        private void visitUnreadableEntry(Walk walk, Path entry, String name, Iterable<String> relativePath, IOException failure) {
+            BasicFileAttributes linkAttrs;
+            try {
+                linkAttrs = Files.readAttributes(entry, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+            } catch (IOException e) {
+                if (walk.isAllowed(entry, name, false, null, relativePath)) {
+                    throw new GradleException(String.format("Could not read path '%s'.", entry), failure);
+                }
+                return;
+            }
+            if (walk.isAllowed(entry, name, false, linkAttrs, relativePath)) {
+                throw new GradleException(String.format("Could not list contents of '%s'. Couldn't follow symbolic link.", entry));
+            }
+        }
+
+        private RegularFileSnapshot fileSnapshot(Path file, String name, BasicFileAttributes attrs) {
+            DefaultFileMetadata metadata = new DefaultFileMetadata(FileType.RegularFile, attrs.lastModifiedTime().toMillis(), attrs.size());
+            HashCode hash = hasher.hash(file.toFile(), metadata);
+            return new RegularFileSnapshot(stringInterner.intern(file.toString()), name, hash, metadata.getLastModified());
+        }
+    }
+}
@@ -0,0 +1,256 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.snapshot.impl;
+
+import org.gradle.internal.file.FileMetadataSnapshot;
+import org.gradle.internal.snapshot.DirectorySnapshot;
+import org.gradle.internal.snapshot.FileSystemLocationSnapshot;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+import java.io.File;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A tree of file system state, with one node per path segment.
+ *
+ * Paths share the nodes for their common prefix, so looking up, adding and invalidating the state for a path is proportional to the depth of the path,
+ * and not to the number of locations in the tree. When there is no state recorded for a path, but there is a {@link DirectorySnapshot} for one of
+ * its ancestors, the snapshot for the path is looked up in the children of the directory snapshot.
+ */
+@ThreadSafe
+public class SnapshotHierarchy {
+    private static final char SEPARATOR = File.separatorChar;
+
+    private final Node root = new Node();
+
+    @Nullable
+    public FileSystemLocationSnapshot getSnapshot(String absolutePath) {
+        Node node = root;
+        DirectorySnapshot ancestorSnapshot = null;
+        int ancestorSegmentsEnd = 0;
+        int segmentStart = 0;
+        while (segmentStart <= absolutePath.length()) {
+            FileSystemLocationSnapshot snapshot = node.snapshot;
+            if (snapshot instanceof DirectorySnapshot) {
+                ancestorSnapshot = (DirectorySnapshot) snapshot;
+                ancestorSegmentsEnd = segmentStart;
+            }
+            int segmentEnd = segmentEnd(absolutePath, segmentStart);
+            node = node.getChild(absolutePath.substring(segmentStart, segmentEnd));
+            if (node == null) {
+                break;
+            }
+            segmentStart = segmentEnd + 1;
+        }
+        if (node != null && node.snapshot != null) {
+            return node.snapshot;
+        }
+        if (ancestorSnapshot == null) {
+            return null;
+        }
+        return findDescendant(ancestorSnapshot, absolutePath, ancestorSegmentsEnd);
+    }
+
+    public void putSnapshot(FileSystemLocationSnapshot snapshot) {
+        getOrCreateNode(snapshot.getAbsolutePath()).snapshot = snapshot;
+    }
+
+    @Nullable
+    public FileMetadataSnapshot getMetadata(String absolutePath) {
+        Node node = findNode(absolutePath);
+        return node == null ? null : node.metadata;
+    }
+
+    public void putMetadata(String absolutePath, FileMetadataSnapshot metadata) {
+        getOrCreateNode(absolutePath).metadata = metadata;
+    }
+
+    /**
+     * Discards the state for the given path, for all its descendants and for all its ancestors, since their snapshots contain the path.
+     */
+    public void invalidate(String absolutePath) {
+        Node parent = null;
+        Node node = root;
+        String name = null;
+        int segmentStart = 0;
+        while (segmentStart <= absolutePath.length()) {
+            node.clear();
+            int segmentEnd = segmentEnd(absolutePath, segmentStart);
+            parent = node;
+            name = absolutePath.substring(segmentStart, segmentEnd);
+            node = node.getChild(name);
+            if (node == null) {
+                return;
+            }
+            segmentStart = segmentEnd + 1;
+        }
+        parent.removeChild(name);
+    }
+
+    public void clear() {
+        root.clear();
+        root.children = null;
+    }
+
+    /**
+     * Visits all the locations which have some state recorded.
+     */
+    public void visit(Visitor visitor) {
+        Map<String, Node> children = root.children;
+        if (children != null) {
+            for (Map.Entry<String, Node> entry : children.entrySet()) {
+                visit(entry.getKey(), entry.getValue(), visitor);
+            }
+        }
+    }
+
+    private static void visit(String absolutePath, Node node, Visitor visitor) {
+        FileSystemLocationSnapshot snapshot = node.snapshot;
+        FileMetadataSnapshot metadata = node.metadata;
+        if (snapshot != null || metadata != null) {
+            visitor.visit(absolutePath, snapshot, metadata);
+        }
+        Map<String, Node> children = node.children;
+        if (children != null) {
+            for (Map.Entry<String, Node> entry : children.entrySet()) {
+                visit(absolutePath + SEPARATOR + entry.getKey(), entry.getValue(), visitor);
+            }
+        }
+    }
+
+    @Nullable
+    private Node findNode(String absolutePath) {
+        Node node = root;
+        int segmentStart = 0;
+        while (node != null && segmentStart <= absolutePath.length()) {
+            int segmentEnd = segmentEnd(absolutePath, segmentStart);
+            node = node.getChild(absolutePath.substring(segmentStart, segmentEnd));
+            segmentStart = segmentEnd + 1;
+        }
+        return node;
+    }
+
+    private Node getOrCreateNode(String absolutePath) {
+        Node node = root;
+        int segmentStart = 0;
+        while (segmentStart <= absolutePath.length()) {
+            int segmentEnd = segmentEnd(absolutePath, segmentStart);
+            node = node.getOrCreateChild(absolutePath.substring(segmentStart, segmentEnd));
+            segmentStart = segmentEnd + 1;
+        }
+        return node;
+    }
+
+    @Nullable
+    private static FileSystemLocationSnapshot findDescendant(DirectorySnapshot ancestor, String absolutePath, int segmentStart) {
+        FileSystemLocationSnapshot current = ancestor;
+        while (segmentStart <= absolutePath.length()) {
+            if (!(current instanceof DirectorySnapshot)) {
+                return null;
+            }
+            int segmentEnd = segmentEnd(absolutePath, segmentStart);
+            current = findChild((DirectorySnapshot) current, absolutePath.substring(segmentStart, segmentEnd));
+            if (current == null) {
+                return null;
+            }
+            segmentStart = segmentEnd + 1;
+        }
+        return current;
+    }
+
+    /**
+     * Finds a child by its name. The children of a directory snapshot are sorted by {@link FileSystemLocationSnapshot#BY_NAME}.
+     */
+    @Nullable
+    private static FileSystemLocationSnapshot findChild(DirectorySnapshot directory, String name) {
+        List<FileSystemLocationSnapshot> children = directory.getChildren();
+        int low = 0;
+        int high = children.size() - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            FileSystemLocationSnapshot child = children.get(middle);
+            int comparison = child.getName().compareTo(name);
+            if (comparison < 0) {
+                low = middle + 1;
+            } else if (comparison > 0) {
+                high = middle - 1;
+            } else {
+                return child;
+            }
+        }
+        return null;
+    }
+
+    private static int segmentEnd(String absolutePath, int segmentStart) {
+        int separator = absolutePath.indexOf(SEPARATOR, segmentStart);
+        return separator < 0 ? absolutePath.length() : separator;
+    }
+
+    public interface Visitor {
+        void visit(String absolutePath, @Nullable FileSystemLocationSnapshot snapshot, @Nullable FileMetadataSnapshot metadata);
+    }
+
+    private static class Node {
+        private volatile FileSystemLocationSnapshot snapshot;
+        private volatile FileMetadataSnapshot metadata;
+        private volatile ConcurrentMap<String, Node> children;
+
+        @Nullable
+        Node getChild(String name) {
+            Map<String, Node> children = this.children;
+            return children == null ? null : children.get(name);
+        }
+
+        Node getOrCreateChild(String name) {
+            ConcurrentMap<String, Node> children = this.children;
+            if (children == null) {
+                synchronized (this) {
+                    children = this.children;
+                    if (children == null) {
+                        children = new ConcurrentHashMap<String, Node>(4);
+                        this.children = children;
+                    }
+                }
+            }
+            Node child = children.get(name);
+            if (child == null) {
+                Node newChild = new Node();
+                child = children.putIfAbsent(name, newChild);
+                if (child == null) {
+                    child = newChild;
+                }
+            }
+            return child;
+        }
+
+        void removeChild(String name) {
+            Map<String, Node> children = this.children;
+            if (children != null) {
+                children.remove(name);
+            }
+        }
+
+        void clear() {
+            snapshot = null;
+            metadata = null;
+        }
+    }
+}
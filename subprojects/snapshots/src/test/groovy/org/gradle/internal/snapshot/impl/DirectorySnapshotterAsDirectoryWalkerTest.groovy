@@ -32,6 +32,7 @@ import org.gradle.internal.snapshot.DirectorySnapshot
 import org.gradle.internal.snapshot.FileSystemLocationSnapshot
 import org.gradle.internal.snapshot.FileSystemSnapshotVisitor
 
+import java.util.concurrent.ForkJoinPool
 import java.util.concurrent.atomic.AtomicInteger
 
 class DirectorySnapshotterAsDirectoryWalkerTest extends AbstractDirectoryWalkerTest<DirectorySnapshotter> {
@@ -66,10 +67,25 @@ class DirectorySnapshotterAsDirectoryWalkerTest extends AbstractDirectoryWalkerT
         visitedWithJdk7Walker.empty
     }
 
+    def "parallel directory snapshotter creates the same snapshot as directory snapshotter"() {
+        given:
+        def rootDir = tmpDir.createDir("root")
+        generateFilesAndSubDirectories(rootDir, 100, 5, 3, 1, new AtomicInteger(0))
+
+        when:
+        def sequential = directorySnapshotter().snapshot(rootDir.absolutePath, null, new MutableBoolean())
+        def parallel = parallelDirectorySnapshotter().snapshot(rootDir.absolutePath, null, new MutableBoolean())
+
+        then:
+        parallel.hash == sequential.hash
+        walkDirForPaths(parallelDirectorySnapshotter(), rootDir, new PatternSet()) == walkDirForPaths(directorySnapshotter(), rootDir, new PatternSet())
+    }
+
     @Override
     protected List<DirectorySnapshotter> getWalkers() {
         [
-            directorySnapshotter()
+            directorySnapshotter(),
+            parallelDirectorySnapshotter()
         ]
     }
 
@@ -77,6 +93,10 @@ class DirectorySnapshotterAsDirectoryWalkerTest extends AbstractDirectoryWalkerT
         new DirectorySnapshotter(TestFiles.fileHasher(), TestFiles.fileSystem(), new StringInterner())
     }
 
+    private static DirectorySnapshotter parallelDirectorySnapshotter() {
+        new ParallelDirectorySnapshotter(TestFiles.fileHasher(), TestFiles.fileSystem(), new StringInterner(), new ForkJoinPool(4))
+    }
+
     private static List<FileVisitDetails> walkFiles(rootDir, walkerInstance) {
         def fileTree = new DirectoryFileTree(rootDir, new PatternSet(), { walkerInstance } as Factory, TestFiles.fileSystem(), false)
         def visited = []
@@ -0,0 +1,148 @@
+/*
+ * Copyright 2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.snapshot.impl
+
+import org.gradle.internal.file.FileMetadataSnapshot
+import org.gradle.internal.hash.HashCode
+import org.gradle.internal.snapshot.DirectorySnapshot
+import org.gradle.internal.snapshot.FileSystemLocationSnapshot
+import org.gradle.internal.snapshot.RegularFileSnapshot
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
+import spock.lang.Specification
+
+class SnapshotHierarchyTest extends Specification {
+    @Rule
+    TestNameTestDirectoryProvider tmpDir = new TestNameTestDirectoryProvider()
+
+    def hierarchy = new SnapshotHierarchy()
+
+    def "can add and look up state for a path"() {
+        def file = tmpDir.file("some/dir/file.txt")
+        def snapshot = regularFile(file)
+        def metadata = Stub(FileMetadataSnapshot)
+
+        when:
+        hierarchy.putSnapshot(snapshot)
+        hierarchy.putMetadata(file.path, metadata)
+
+        then:
+        hierarchy.getSnapshot(file.path) == snapshot
+        hierarchy.getMetadata(file.path) == metadata
+        hierarchy.getSnapshot(file.parentFile.path) == null
+        hierarchy.getMetadata(file.parentFile.path) == null
+        hierarchy.getSnapshot(tmpDir.file("some/dir/other.txt").path) == null
+    }
+
+    def "finds snapshot of descendant in directory snapshot of ancestor"() {
+        def dir = tmpDir.file("dir")
+        def file = dir.file("sub/file.txt")
+        def fileSnapshot = regularFile(file)
+        def subDirSnapshot = directory(file.parentFile, fileSnapshot)
+        def dirSnapshot = directory(dir, subDirSnapshot)
+
+        when:
+        hierarchy.putSnapshot(dirSnapshot)
+
+        then:
+        hierarchy.getSnapshot(dir.path) == dirSnapshot
+        hierarchy.getSnapshot(file.parentFile.path) == subDirSnapshot
+        hierarchy.getSnapshot(file.path) == fileSnapshot
+        hierarchy.getSnapshot(dir.file("sub/missing.txt").path) == null
+        hierarchy.getSnapshot(dir.file("sub/file.txt/child").path) == null
+        hierarchy.getMetadata(file.path) == null
+    }
+
+    def "finds each child in directory snapshot with many children"() {
+        def dir = tmpDir.file("dir")
+        def names = (0..<20).collect { "file${it}.txt".toString() } + ["a", "B", "z", "file1"]
+        def snapshots = names.collect { regularFile(dir.file(it)) }
+
+        when:
+        hierarchy.putSnapshot(directory(dir, snapshots as FileSystemLocationSnapshot[]))
+
+        then:
+        names.each { name ->
+            assert hierarchy.getSnapshot(dir.file(name).path) == snapshots[names.indexOf(name)]
+        }
+        ["0", "A", "b", "file", "file20.txt", "zz"].each { name ->
+            assert hierarchy.getSnapshot(dir.file(name).path) == null
+        }
+    }
+
+    def "invalidating a path discards state for the path, its ancestors and its descendants"() {
+        def dir = tmpDir.file("dir")
+        def sub = dir.file("sub")
+        def file = sub.file("file.txt")
+        def sibling = dir.file("sibling.txt")
+        def fileSnapshot = regularFile(file)
+        def siblingSnapshot = regularFile(sibling)
+        hierarchy.putSnapshot(directory(dir, directory(sub, fileSnapshot), siblingSnapshot))
+        hierarchy.putSnapshot(directory(sub, fileSnapshot))
+        hierarchy.putSnapshot(fileSnapshot)
+        hierarchy.putSnapshot(siblingSnapshot)
+        hierarchy.putMetadata(file.path, Stub(FileMetadataSnapshot))
+
+        when:
+        hierarchy.invalidate(sub.path)
+
+        then:
+        hierarchy.getSnapshot(dir.path) == null
+        hierarchy.getSnapshot(sub.path) == null
+        hierarchy.getSnapshot(file.path) == null
+        hierarchy.getMetadata(file.path) == null
+        hierarchy.getSnapshot(sibling.path) == siblingSnapshot
+    }
+
+    def "visits all locations with state"() {
+        def dir = tmpDir.file("dir")
+        def file = dir.file("sub/file.txt")
+        def fileSnapshot = regularFile(file)
+        def metadata = Stub(FileMetadataSnapshot)
+        def visited = [:]
+        hierarchy.putSnapshot(fileSnapshot)
+        hierarchy.putMetadata(dir.path, metadata)
+
+        when:
+        hierarchy.visit { String path, FileSystemLocationSnapshot snapshot, FileMetadataSnapshot fileMetadata ->
+            visited[path] = [snapshot, fileMetadata]
+        }
+
+        then:
+        visited == [(dir.path): [null, metadata], (file.path): [fileSnapshot, null]]
+    }
+
+    def "clear discards all state"() {
+        def file = tmpDir.file("file.txt")
+        hierarchy.putSnapshot(regularFile(file))
+
+        when:
+        hierarchy.clear()
+
+        then:
+        hierarchy.getSnapshot(file.path) == null
+    }
+
+    private static RegularFileSnapshot regularFile(File file) {
+        new RegularFileSnapshot(file.path, file.name, HashCode.fromInt(file.path.hashCode()), 1234)
+    }
+
+    private static DirectorySnapshot directory(File dir, FileSystemLocationSnapshot... children) {
+        // Children are sorted by name, as done by MerkleDirectorySnapshotBuilder
+        new DirectorySnapshot(dir.path, dir.name, (children as List).sort(false, FileSystemLocationSnapshot.BY_NAME), HashCode.fromInt(dir.path.hashCode()))
+    }
+}